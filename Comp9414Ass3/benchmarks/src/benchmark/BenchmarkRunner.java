@@ -0,0 +1,29 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so that the allocation rate of each benchmark is 
+ * reported along with its time. Any of the usual JMH options can be given, e.g. a regular 
+ * expression to run only some of the benchmarks, or -h to list the options. 
+ * 
+ * @author Barry Skalrud
+ *
+ */
+public class BenchmarkRunner {
+	
+	public static void main(String[] args) throws Exception
+	{
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		Options options = new OptionsBuilder()
+				.parent(commandLineOptions)
+				.addProfiler(GCProfiler.class)
+				.build();
+		
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,73 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import main.Block;
+import main.Player;
+import main.PositionState;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the Block methods used at every node of the search. The block has X in 
+ * positions 1 and 5 and O in position 3, so that the heuristic and the move ordering have 
+ * something to work with. 
+ * 
+ * @author Barry Skalrud
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockBenchmark {
+	
+	private Block block;
+	
+	@Setup
+	public void setUp()
+	{
+		Player player = new Player();
+		player.initiateGame(PositionState.X);
+		
+		block = new Block(player);
+		block.setPosition(1, PositionState.X);
+		block.setPosition(5, PositionState.X);
+		block.setPosition(3, PositionState.O);
+	}
+	
+	/**
+	 * Makes and takes back a move, as the search does for every node.
+	 */
+	@Benchmark
+	public int setPosition()
+	{
+		block.setPosition(9, PositionState.O);
+		block.setPosition(9, PositionState.E);
+		return block.getStateIndex();
+	}
+	
+	@Benchmark
+	public int calculateHeuristicValue()
+	{
+		return block.calculateHeuristicValue();
+	}
+	
+	@Benchmark
+	public List<Integer> getListOfBestMovesForThisCell()
+	{
+		return block.getListOfBestMovesForThisCell(PositionState.X);
+	}
+}
@@ -0,0 +1,81 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import main.EndgameSolver;
+import main.Game;
+import main.Player;
+import main.SearchResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares solving a position outright with the EndgameSolver against searching it to a fixed 
+ * depth with the heuristic, on the positions of the PositionCorpus near the end of the game. 
+ * The solver should be the quicker of the two for the player to use it instead of the search. 
+ * 
+ * As in GameBenchmark, the tables of the solver and of the player are cleared before every 
+ * solve or search, so that each does the same work rather than finding the results of the 
+ * last one. 
+ * 
+ * @author Barry Skalrud
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EndgameBenchmark {
+	
+	@Param({PositionCorpus.ENDGAME, PositionCorpus.LATE})
+	public String position;
+	
+	@Param({"13"})
+	public int depth;
+	
+	private Player player;
+	private Game game;
+	private EndgameSolver endgameSolver;
+	
+	@Setup
+	public void setUp()
+	{
+		player = PositionCorpus.createPlayer(position);
+		game = new Game(player.getCurrentState(), player.getPlayersMark());
+		game.setSearchDeadline(Game.NO_DEADLINE);
+		endgameSolver = new EndgameSolver();
+	}
+	
+	@Setup(Level.Invocation)
+	public void clearTables()
+	{
+		endgameSolver.clear();
+		player.getTranspositionTable().clear();
+		player.getMoveOrderingHistory().clear();
+	}
+	
+	@Benchmark
+	public SearchResult solve()
+	{
+		return endgameSolver.solve(game, Long.MAX_VALUE);
+	}
+	
+	@Benchmark
+	public int alphaBetaSearchResult()
+	{
+		return game.alphaBetaSearchResult(depth, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+}
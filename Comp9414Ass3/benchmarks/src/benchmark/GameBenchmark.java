@@ -0,0 +1,94 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import main.Game;
+import main.Player;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the evaluation and fixed depth search of a whole game, run on each of the 
+ * positions in the PositionCorpus. 
+ * 
+ * The transposition table and move ordering history are cleared before every search, so 
+ * that each search does the same work rather than finding the results of the last one. 
+ * 
+ * @author Barry Skalrud
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+	
+	@Param({PositionCorpus.EARLY, PositionCorpus.MIDDLE, PositionCorpus.LATE})
+	public String position;
+	
+	@Param({"6"})
+	public int depth;
+	
+	private Game game;
+	
+	@Setup
+	public void setUp()
+	{
+		game = PositionCorpus.createPlayer(position).getCurrentState();
+	}
+	
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public int heuristicFunctionValueOfGame()
+	{
+		return game.heuristicFunctionValueOfGame();
+	}
+	
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int alphaBetaSearchResult(SearchState searchState)
+	{
+		return searchState.game.alphaBetaSearchResult(depth, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+	
+	
+	/**
+	 * The game searched by the search benchmark. The search makes and unmakes its moves in 
+	 * place, so the same game is searched every time and only the player's tables need to 
+	 * be cleared. This is kept apart from the other benchmarks so that the clearing is only 
+	 * done for the search. 
+	 */
+	@State(Scope.Thread)
+	public static class SearchState
+	{
+		private Player player;
+		private Game game;
+		
+		@Setup
+		public void setUp(GameBenchmark benchmark)
+		{
+			player = PositionCorpus.createPlayer(benchmark.position);
+			game = new Game(player.getCurrentState(), player.getPlayersMark());
+			game.setSearchDeadline(Game.NO_DEADLINE);
+		}
+		
+		@Setup(Level.Invocation)
+		public void clearTables()
+		{
+			player.getTranspositionTable().clear();
+			player.getMoveOrderingHistory().clear();
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package benchmark;
+
+import main.Game;
+import main.Player;
+import main.PositionState;
+
+/**
+ * The fixed positions the search benchmarks are run on. Each position is reached by playing 
+ * the start of the same fixed game, given as pairs of block and position starting with X. 
+ * Every position has X to move, so the player is always X. 
+ * 
+ * The early position is a few moves in, when there are many empty cells and the heuristic 
+ * has little to go on. The middle position has most blocks partly filled, and the late 
+ * position has few empty cells left in the blocks that are likely to be played in. The 
+ * endgame position is between the middle and late positions, with 51 empty cells, which is 
+ * about when the player starts to use the EndgameSolver. 
+ * 
+ * @author Barry Skalrud
+ *
+ */
+public final class PositionCorpus {
+	
+	public final static String EARLY = "early";
+	public final static String MIDDLE = "middle";
+	public final static String LATE = "late";
+	public final static String ENDGAME = "endgame";
+	
+	/* A single game in which neither player completes a line. The positions are the first 
+	 * 4, 20, 44 and 30 moves of it. 
+	 */
+	private final static int[][] GAME_MOVES = {
+		{5, 1}, {1, 2}, {2, 2}, {2, 7}, {7, 3}, {3, 5}, {5, 6}, {6, 4},
+		{4, 1}, {1, 4}, {4, 8}, {8, 7}, {7, 7}, {7, 6}, {6, 9}, {9, 9},
+		{9, 5}, {5, 2}, {2, 9}, {9, 1}, {1, 5}, {5, 7}, {7, 4}, {4, 5},
+		{5, 8}, {8, 3}, {3, 3}, {3, 2}, {2, 3}, {3, 1}, {1, 3}, {3, 6},
+		{6, 2}, {2, 4}, {4, 7}, {7, 9}, {9, 4}, {4, 9}, {9, 3}, {3, 7},
+		{7, 8}, {8, 9}, {9, 8}, {8, 4}
+	};
+	
+	private final static int EARLY_MOVES = 4;
+	private final static int MIDDLE_MOVES = 20;
+	private final static int LATE_MOVES = 44;
+	private final static int ENDGAME_MOVES = 30;
+	
+	private PositionCorpus() {}
+	
+	/**
+	 * Creates a player for X whose current game is the named position.
+	 * @param positionName	EARLY, MIDDLE, LATE or ENDGAME
+	 * @return				The player, with X to move in its current game
+	 */
+	public static Player createPlayer(String positionName)
+	{
+		Player player = new Player();
+		player.initiateGame(PositionState.X);
+		
+		Game game = player.getCurrentState();
+		int numberOfMoves = getNumberOfMoves(positionName);
+		for (int move = 0; move < numberOfMoves; move++)
+			game.setMove(game.whoHasNextMove, GAME_MOVES[move][0], GAME_MOVES[move][1]);
+		
+		if (game.isTerminalState() || game.whoHasNextMove != PositionState.X)
+			throw new IllegalStateException("Position " + positionName + " must have X to move");
+		return player;
+	}
+	
+	private static int getNumberOfMoves(String positionName)
+	{
+		if (positionName.equals(EARLY))
+			return EARLY_MOVES;
+		if (positionName.equals(MIDDLE))
+			return MIDDLE_MOVES;
+		if (positionName.equals(LATE))
+			return LATE_MOVES;
+		if (positionName.equals(ENDGAME))
+			return ENDGAME_MOVES;
+		throw new IllegalArgumentException("Unknown position " + positionName);
+	}
+}
@@ -0,0 +1,114 @@
+package benchmark;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
+
+import main.Controller;
+import main.PositionState;
+import main.ProtocolDecoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of decoding the messages of a whole game from the server, as read from the socket,
+ * with the ProtocolDecoder and with the String parser it replaced, i.e. readLine and
+ * Controller.translateMessageFromServer. The controller only counts the commands, so that the
+ * benchmarks measure the decoding rather than the search.
+ *
+ * @author Barry Skalrud
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolDecoderBenchmark {
+	
+	private final static String GAME = "start(o).\nsecond_move(5,5).\nnext_move(1).\nnext_move(9).\nnext_move(3).\n"
+			+ "next_move(7).\nnext_move(2).\nnext_move(8).\nnext_move(4).\nnext_move(6).\nlast_move(5).\nwin.\nend.\n";
+	
+	/**
+	 * A Controller that counts the commands given to it, rather than playing the game.
+	 */
+	private static class CountingController extends Controller {
+		
+		private int commands = 0;
+		
+		@Override
+		public void startGame(PositionState mark) {
+			commands++;
+		}
+		
+		@Override
+		public void secondMove(int blockNumber, int positionNumber) {
+			commands += blockNumber + positionNumber;
+		}
+		
+		@Override
+		public void thirdMove(int blockNumber, int positionNumber, int opponentsPositionNumber) {
+			commands += blockNumber + positionNumber + opponentsPositionNumber;
+		}
+		
+		@Override
+		public void nextMove(int position) {
+			commands += position;
+		}
+		
+		@Override
+		public void lastMove(int position) {
+			commands += position;
+		}
+		
+		@Override
+		public void gameOver(String result) {
+			commands++;
+		}
+		
+		@Override
+		public void endGame() {
+			commands++;
+		}
+	}
+	
+	private byte[] gameBytes;
+	private ProtocolDecoder decoder;
+	private CountingController controller;
+	
+	@Setup
+	public void setUp()
+	{
+		gameBytes = GAME.getBytes();
+		decoder = new ProtocolDecoder();
+		controller = new CountingController();
+	}
+	
+	@Benchmark
+	public int protocolDecoder() throws IOException
+	{
+		decoder.decode(gameBytes, 0, gameBytes.length, controller);
+		return controller.commands;
+	}
+	
+	@Benchmark
+	public int stringParser() throws IOException
+	{
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(gameBytes)));
+		for (String line = reader.readLine(); line != null; line = reader.readLine())
+			controller.translateMessageFromServer(line);
+		return controller.commands;
+	}
+}
@@ -1,5 +1,11 @@
 package main;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * 
  * This theory behind this program is to use a minimax algorithm with alpha-beta 
@@ -26,13 +32,16 @@ package main;
  * the upper hand. By mnaximising this value, the opponent will have fewer options
  * to continue play.
  * 
- * The overall search depth of this program is 13 moves. However, it does not 
- * achieve this depth immediately it is ramped up to this level as described in 
- * the Player class. 
+ * The search depth of this program is not fixed. Instead, each move is searched 
+ * one level deeper at a time until the time allowed for the move runs out, as 
+ * described in the AlphaBetaEngine class. The search is done by a SearchEngine, 
+ * so the engine and the limits on its depth, time, nodes and threads can be 
+ * chosen on the command line, see parseSearchOptions. 
  * 
- * To speed up the search, the heuristic values calculated for each Block 
- * configuration are stored in a hash table. This reduces by by allowing the 
- * program to look up the heuristic value rather than recalculate repeatedly.
+ * To speed up the search, the heuristic value of every possible Block 
+ * configuration (there are only 3^9 of them) is calculated once, when the 
+ * BlockStateTable class is loaded. This allows the program to look up the 
+ * heuristic value rather than recalculate it repeatedly.
  * 
  * @author Barry Skalrud
  *
@@ -41,24 +50,68 @@ public class Agent {
 
 	public static boolean debugMode = false;
 	
+	/* Whether a summary of the search statistics is printed at the end of each game */
+	public static boolean statisticsMode = false;
+	
+	/* Whether the search statistics are registered as an MBean, see SearchStatistics */
+	private static boolean jmxEnabled = false;
+	
+	/* The number of games to play at once, see MultiGameAgent, or 0 to play a single game */
+	private static int numberOfSessions = 0;
+	
+	/* Whether the server is connected to with a NioTransport rather than a TCPConnection */
+	private static boolean nioEnabled = false;
+	
+	private final static String USAGE = "Usage: Agent -p port [-d] [-ponder] [-stats] [-jmx] [-nio] [-sessions n] [-book file] "
+			+ "[-endgame cells] [-endgamenodes n] [-snapshot dir] "
+			+ "[-e alphabeta|pvs|mcts] [-time millis] [-depth n] [-nodes n] [-threads n] [-parallel rootsplit|lazysmp]";
+	
 	
 	public static void main(String[] args) {
 		if (args.length < 2 || !args[0].equals("-p")) {
-			System.out.println("Usage: Agent -p port");
+			System.out.println(USAGE);
+			return;
 		}
 		
 		
 		int port = Integer.valueOf(args[1]);
 		
-		if (args.length > 2 && args[2].equals("-d"))
-			debugMode = true;
-			
+		// The rest of the options follow the port
+		int firstSearchOption = 2;
+		Player player = new Player();
+		
+		try
+		{
+			parseSearchOptions(args, firstSearchOption, player);
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.out.println(e.getMessage());
+			System.out.println(USAGE);
+			return;
+		}
+		
+		if (numberOfSessions > 0)
+		{
+			playManyGames(port, Arrays.copyOfRange(args, firstSearchOption, args.length));
+			return;
+		}
 		
 		try {
+			if (jmxEnabled)
+				player.getTotalSearchStatistics().registerMBean(String.valueOf(port));
+			
 			Controller gameController = new Controller();
-			gameController.setPlayer(new Player());
-			TCPConnection server = new TCPConnection(port, gameController);
-			server.startServer();
+			gameController.setPlayer(player);
+			if (nioEnabled)
+			{
+				playGameWithNio(port, gameController);
+			}
+			else
+			{
+				TCPConnection server = new TCPConnection(port, gameController);
+				server.startServer();
+			}
 			
 		} catch (Exception e) 
 		{
@@ -68,6 +121,222 @@ public class Agent {
 		
 			
 	}
+	
+	/**
+	 * Plays a single game with a NioTransport, whose messages are handled on one thread.
+	 * @param port				The port of the game server
+	 * @param gameController	The controller to play the game with
+	 * @throws IOException		If the server couldn't be connected to
+	 * @throws InterruptedException	If the thread is interrupted while waiting for the game to end
+	 */
+	private static void playGameWithNio(int port, Controller gameController) throws IOException, InterruptedException
+	{
+		ExecutorService messageExecutor = Executors.newSingleThreadExecutor();
+		NioTransport transport = new NioTransport(messageExecutor);
+		transport.start();
+		
+		try
+		{
+			transport.connect(port, gameController).awaitClose();
+		}
+		finally
+		{
+			transport.shutdown();
+			messageExecutor.shutdown();
+		}
+	}
+	
+	/**
+	 * Plays games with the given number of sessions until the server stops accepting connections.
+	 * @param port			The port of the game server
+	 * @param options		The options given after the port, which are applied to every player
+	 */
+	private static void playManyGames(int port, String[] options)
+	{
+		MultiGameAgent multiGameAgent;
+		try
+		{
+			multiGameAgent = new MultiGameAgent(port, options);
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.out.println(e.getMessage());
+			System.out.println(USAGE);
+			return;
+		}
+		multiGameAgent.setRegisterMBeans(jmxEnabled);
+		multiGameAgent.setUseNio(nioEnabled);
+		
+		try
+		{
+			multiGameAgent.start(numberOfSessions);
+			multiGameAgent.awaitSessions();
+		}
+		catch (IOException e)
+		{
+			System.out.println("Unable to start the sessions: " + e.getMessage());
+			return;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		
+		System.out.println("Games played: " + multiGameAgent.getGamesPlayed() + ", players: " 
+				+ multiGameAgent.getPlayersCreated() + (multiGameAgent.isUsingVirtualThreads() ? ", on virtual threads" : ""));
+	}
+	
+	/**
+	 * Applies the options that choose the search engine and its limits to the given player. 
+	 * The engine is chosen with -e, and its limits with -time, -depth, -nodes and -threads, 
+	 * where a limit of 0 means no limit. -stats prints a summary of the search statistics at 
+	 * the end of each game, and -jmx makes them available to JMX clients. -nio connects with a 
+	 * NioTransport. -book plays the moves in an OpeningBook rather than searching when it can. 
+	 * -endgame solves the game outright once there are that many empty cells or fewer, giving up 
+	 * after -endgamenodes nodes or a quarter of the move time, see EndgameSolver. An -endgame 
+	 * of 0 never solves. -snapshot saves the deeper search results to the given directory after 
+	 * each game, and starts each player with the results saved there, see 
+	 * TranspositionTable.writeSnapshot. 
+	 * -sessions plays that many games at once, see MultiGameAgent, and can't be used with 
+	 * -ponder or more than one search thread. 
+	 * @param args				The command line arguments
+	 * @param firstArgument		The index of the first argument to read
+	 * @param player			The player to apply the options to
+	 * @throws IllegalArgumentException	If an option or its value is not recognised
+	 */
+	public static void parseSearchOptions(String[] args, int firstArgument, Player player)
+	{
+		SearchLimits searchLimits = player.getSearchLimits();
+		
+		for (int argument = firstArgument; argument < args.length; argument++)
+		{
+			String option = args[argument];
+			
+			if (option.equals("-d"))
+			{
+				debugMode = true;
+				continue;
+			}
+			else if (option.equals("-ponder"))
+			{
+				player.setPonderingEnabled(true);
+				continue;
+			}
+			else if (option.equals("-stats"))
+			{
+				statisticsMode = true;
+				continue;
+			}
+			else if (option.equals("-jmx"))
+			{
+				jmxEnabled = true;
+				continue;
+			}
+			else if (option.equals("-nio"))
+			{
+				nioEnabled = true;
+				continue;
+			}
+			
+			if (argument + 1 >= args.length)
+				throw new IllegalArgumentException("Missing value for " + option);
+			String value = args[++argument];
+			
+			try
+			{
+				switch (option)
+				{
+				case "-e":
+					player.setSearchAlgorithm(parseSearchAlgorithm(value));
+					break;
+				case "-time":
+					searchLimits.setTimeMillis(Long.valueOf(value));
+					break;
+				case "-depth":
+					searchLimits.setMaxDepth(Integer.valueOf(value));
+					break;
+				case "-nodes":
+					searchLimits.setMaxNodes(Long.valueOf(value));
+					break;
+				case "-threads":
+					searchLimits.setThreads(Integer.valueOf(value));
+					break;
+				case "-parallel":
+					player.setParallelMode(parseParallelMode(value));
+					break;
+				case "-book":
+					player.setOpeningBook(loadOpeningBook(value));
+					break;
+				case "-endgame":
+					player.setEndgameLimits(Integer.valueOf(value), player.getEndgameMaxNodes());
+					break;
+				case "-endgamenodes":
+					player.setEndgameLimits(player.getEndgameEmptyCells(), Long.valueOf(value));
+					break;
+				case "-snapshot":
+					File snapshotDirectory = new File(value);
+					if (!snapshotDirectory.isDirectory())
+						throw new IllegalArgumentException("Not a directory: " + value);
+					player.setSnapshotDirectory(snapshotDirectory);
+					break;
+				case "-sessions":
+					numberOfSessions = Integer.valueOf(value);
+					if (numberOfSessions < 0)
+						throw new IllegalArgumentException("Sessions must be 0 or more");
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option " + option);
+				}
+			}
+			catch (NumberFormatException e)
+			{
+				throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+			}
+		}
+		
+		if (searchLimits.isUnlimited())
+			throw new IllegalArgumentException("At least one of -time, -depth and -nodes must be more than 0");
+	}
+	
+	private static Player.SearchAlgorithm parseSearchAlgorithm(String name)
+	{
+		switch (name)
+		{
+		case "alphabeta":
+			return Player.SearchAlgorithm.ALPHA_BETA;
+		case "pvs":
+			return Player.SearchAlgorithm.PRINCIPAL_VARIATION;
+		case "mcts":
+			return Player.SearchAlgorithm.MONTE_CARLO_TREE_SEARCH;
+		default:
+			throw new IllegalArgumentException("Unknown engine " + name);
+		}
+	}
+	
+	private static Player.ParallelMode parseParallelMode(String name)
+	{
+		switch (name)
+		{
+		case "rootsplit":
+			return Player.ParallelMode.ROOT_SPLIT;
+		case "lazysmp":
+			return Player.ParallelMode.LAZY_SMP;
+		default:
+			throw new IllegalArgumentException("Unknown parallel mode " + name);
+		}
+	}
+	
+	private static OpeningBook loadOpeningBook(String fileName)
+	{
+		try
+		{
+			return OpeningBook.load(new File(fileName));
+		}
+		catch (IOException e)
+		{
+			throw new IllegalArgumentException("Unable to load the opening book: " + e.getMessage());
+		}
+	}
 		
 }
 
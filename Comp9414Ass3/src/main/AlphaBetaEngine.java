@@ -0,0 +1,327 @@
+package main;
+
+import java.util.List;
+
+/**
+ * The default SearchEngine, which searches with alpha-beta pruning and the heuristic in the
+ * Game class.
+ *
+ * The search is deepened one level at a time (1, 2, 3...) until one of the limits is reached.
+ * The move found by the last search that finished is returned, and each search tries the move
+ * found by the one before it first. The transposition table and move ordering history used by
+ * the search belong to the player, so that they are kept between moves.
+ *
+ * With more than one thread the search is run in parallel as set by setParallelMode. With
+ * principal variation search turned on, moves after the first are searched with a null window
+ * (see Game.searchMove) and each serial iteration from depth 3 is first tried with an aspiration
+ * window around the score of the iteration before it.
+ *
+ * @author Barry Skalrud
+ *
+ */
+public class AlphaBetaEngine implements SearchEngine {
+	
+	private Player.ParallelMode parallelMode = Player.ParallelMode.ROOT_SPLIT;
+	private boolean principalVariationSearch = false;
+	private int searchThreads = 1;
+	private ParallelRootSearch parallelRootSearch;
+	private LazySmpSearch lazySmpSearch;
+	private int lastSearchScore;
+	
+	/* The distance either side of the previous iteration's score at which the aspiration
+	 * window is set. This is the score of two in a row.
+	 */
+	private final static int ASPIRATION_WINDOW = 20;
+	
+	/**
+	 * Sets how the search uses more than one thread. This only has an effect if there is more
+	 * than one search thread.
+	 * @param inParallelMode	The ParallelMode to search with
+	 */
+	public void setParallelMode(Player.ParallelMode inParallelMode)
+	{
+		if (inParallelMode != parallelMode)
+		{
+			parallelMode = inParallelMode;
+			createParallelSearch();
+		}
+	}
+	
+	public Player.ParallelMode getParallelMode()
+	{
+		return parallelMode;
+	}
+	
+	/**
+	 * Sets whether principal variation search and aspiration windows are used.
+	 * @param inPrincipalVariationSearch	True to use principal variation search, false for plain alpha-beta
+	 */
+	public void setPrincipalVariationSearch(boolean inPrincipalVariationSearch)
+	{
+		principalVariationSearch = inPrincipalVariationSearch;
+	}
+	
+	public boolean isPrincipalVariationSearch()
+	{
+		return principalVariationSearch;
+	}
+	
+	/**
+	 * Sets the number of threads used to search each move. With one thread the moves at the
+	 * root of the search are searched one after the other, with more they are searched in
+	 * parallel as set by setParallelMode.
+	 * @param inSearchThreads	The number of threads to search with
+	 */
+	public void setSearchThreads(int inSearchThreads)
+	{
+		if (inSearchThreads != searchThreads)
+		{
+			searchThreads = inSearchThreads;
+			createParallelSearch();
+		}
+	}
+	
+	/**
+	 * Replaces the current parallel search with one matching the number of threads and
+	 * the parallel mode.
+	 */
+	private void createParallelSearch()
+	{
+		shutdown();
+		
+		if (searchThreads > 1 && parallelMode == Player.ParallelMode.ROOT_SPLIT)
+			parallelRootSearch = new ParallelRootSearch(searchThreads);
+		else if (searchThreads > 1 && parallelMode == Player.ParallelMode.LAZY_SMP)
+			lazySmpSearch = new LazySmpSearch(searchThreads);
+	}
+	
+	@Override
+	public SearchResult search(Game position, SearchLimits limits)
+	{
+		long startTime = System.nanoTime();
+		long deadline = limits.getTimeMillis() == 0 ? Game.NO_DEADLINE : startTime + limits.getTimeMillis() * 1000000L;
+		setSearchThreads(limits.getThreads());
+		
+		SearchStatistics searchStatistics = position.getPlayerRepresentedByThisProgram().getSearchStatistics();
+		long nodesBefore = searchStatistics.getNodesSearched();
+		long nodeLimit = limits.getMaxNodes() == 0 ? Long.MAX_VALUE : nodesBefore + limits.getMaxNodes();
+		
+		/* A search of depth n looks n + 1 moves ahead, so there is no point going deeper
+		 * than the number of empty cells left.
+		 */
+		int maxDepth = position.getNumberOfEmptyCells() - 1;
+		if (limits.getMaxDepth() != 0)
+			maxDepth = Math.min(maxDepth, limits.getMaxDepth());
+		
+		// The depth 1 search is always completed so that there is a move to make
+		int bestMoveToMake = searchToDepth(position, 1, 0, Game.NO_DEADLINE, Long.MAX_VALUE);
+		int depthReached = 1;
+		
+		if (lazySmpSearch != null)
+		{
+			// Each of the Lazy SMP threads deepens its own search
+			int moveFound = lazySmpSearch.search(new Game(position, position.whoHasNextMove), maxDepth, deadline);
+			if (moveFound != 0)
+			{
+				bestMoveToMake = moveFound;
+				depthReached = lazySmpSearch.getDepthReached();
+				lastSearchScore = lazySmpSearch.getBestScore();
+			}
+		}
+		else
+		{
+			for (int depth = 2; depth <= maxDepth && searchStatistics.getNodesSearched() < nodeLimit
+					&& (deadline == Game.NO_DEADLINE || System.nanoTime() - deadline < 0); depth++)
+			{
+				long betaCutoffsBefore = searchStatistics.getBetaCutoffs();
+				long firstMoveBetaCutoffsBefore = searchStatistics.getFirstMoveBetaCutoffs();
+				
+				int moveFound = searchWithAspirationWindow(position, depth, bestMoveToMake, deadline,
+						nodeLimit - searchStatistics.getNodesSearched());
+				
+				if (Agent.debugMode)
+				{
+					long betaCutoffs = searchStatistics.getBetaCutoffs() - betaCutoffsBefore;
+					long firstMoveBetaCutoffs = searchStatistics.getFirstMoveBetaCutoffs() - firstMoveBetaCutoffsBefore;
+					System.out.println("Depth " + depth + ": " + betaCutoffs + " cutoffs, "
+							+ (betaCutoffs == 0 ? 0 : 100 * firstMoveBetaCutoffs / betaCutoffs) + "% on the first move");
+				}
+				
+				if (moveFound == 0)
+					break;
+				
+				bestMoveToMake = moveFound;
+				depthReached = depth;
+			}
+		}
+		
+		if (Agent.debugMode)
+			System.out.println("Depth reached: " + depthReached);
+		
+		return new SearchResult(bestMoveToMake, lastSearchScore, depthReached,
+				searchStatistics.getNodesSearched() - nodesBefore, (System.nanoTime() - startTime) / 1000000);
+	}
+	
+	/**
+	 * Searches the given game to the given depth as for searchToDepth. When principal variation
+	 * search is used and there is no parallel search, the search is first tried with a narrow
+	 * window around the score of the previous iteration, and only repeated with the full window
+	 * if the score falls outside it.
+	 * @param position			The game to be searched
+	 * @param depth				The value of the depth for the alpha-beta search
+	 * @param firstMoveToTry	The move to search first, i.e. the best move found by the previous iteration
+	 * @param deadline			The time at which the search should be abandoned, as a value of System.nanoTime
+	 * @param nodeLimit			The number of nodes after which the search should be abandoned
+	 * @return					An integer representing the position of the next move to make, or 0 if the
+	 * search didn't finish within the limits.
+	 */
+	private int searchWithAspirationWindow(Game position, int depth, int firstMoveToTry, long deadline, long nodeLimit)
+	{
+		if (!principalVariationSearch || parallelRootSearch != null || depth < 3)
+			return searchToDepth(position, depth, firstMoveToTry, deadline, nodeLimit);
+		
+		int alpha = lastSearchScore - ASPIRATION_WINDOW;
+		int beta = lastSearchScore + ASPIRATION_WINDOW;
+		
+		long nodesBefore = position.getPlayerRepresentedByThisProgram().getSearchStatistics().getNodesSearched();
+		int moveFound = searchToDepth(position, depth, firstMoveToTry, deadline, nodeLimit, alpha, beta);
+		if (moveFound != 0 && lastSearchScore > alpha && lastSearchScore < beta)
+			return moveFound;
+		
+		long nodesLeft = nodeLimit - (position.getPlayerRepresentedByThisProgram().getSearchStatistics().getNodesSearched() - nodesBefore);
+		if ((deadline != Game.NO_DEADLINE && System.nanoTime() - deadline >= 0) || nodesLeft <= 0)
+			return 0;
+		
+		if (Agent.debugMode)
+			System.out.println("Aspiration window " + alpha + " to " + beta + " failed, searching again");
+		
+		return searchToDepth(position, depth, moveFound != 0 ? moveFound : firstMoveToTry, deadline, nodesLeft);
+	}
+	
+	/**
+	 * Searches the given game to the given depth, with no limit on time or nodes.
+	 * @param position	The game to be searched
+	 * @param depth		The value of the depth for the alpha-beta search
+	 * @return			An integer representing the position of the next move to make, or 0 if no
+	 * move improves on the worst possible result.
+	 */
+	public int searchToDepth(Game position, int depth)
+	{
+		return searchToDepth(position, depth, 0, Game.NO_DEADLINE, Long.MAX_VALUE);
+	}
+	
+	/**
+	 * Searches the given game to the given depth, abandoning the search if the deadline passes
+	 * or too many nodes are visited.
+	 * @param position			The game to be searched
+	 * @param depth				The value of the depth for the alpha-beta search
+	 * @param firstMoveToTry	The move to search first, e.g. the best move found by a shallower search,
+	 * or 0 to use the normal ordering
+	 * @param deadline			The time at which the search should be abandoned, as a value of System.nanoTime,
+	 * or Game.NO_DEADLINE
+	 * @param nodeLimit			The number of nodes after which a serial search should be abandoned
+	 * @return					An integer representing the position of the next move to make, or 0 if the
+	 * search didn't finish within the limits.
+	 */
+	private int searchToDepth(Game position, int depth, int firstMoveToTry, long deadline, long nodeLimit)
+	{
+		return searchToDepth(position, depth, firstMoveToTry, deadline, nodeLimit, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Searches the given game to the given depth within the given window. The window is ignored
+	 * by parallel searches.
+	 * @param position			The game to be searched
+	 * @param depth				The value of the depth for the alpha-beta search
+	 * @param firstMoveToTry	The move to search first, or 0 to use the normal ordering
+	 * @param deadline			The time at which the search should be abandoned, as a value of System.nanoTime,
+	 * or Game.NO_DEADLINE
+	 * @param nodeLimit			The number of nodes after which a serial search should be abandoned
+	 * @param windowAlpha		The lower bound of the window
+	 * @param windowBeta		The upper bound of the window
+	 * @return					An integer representing the position of the next move to make, or 0 if the
+	 * search didn't finish within the limits or no move scored more than windowAlpha.
+	 */
+	private int searchToDepth(Game position, int depth, int firstMoveToTry, long deadline, long nodeLimit,
+			int windowAlpha, int windowBeta)
+	{
+		int alpha;
+		int bestMoveToMake;
+		Player player = position.getPlayerRepresentedByThisProgram();
+		
+		/* The search is performed in place on a single copy of the current game,
+		 * making and unmaking moves rather than copying the game for each option.
+		 */
+		Game searchState = new Game(position, position.whoHasNextMove);
+		searchState.setSearchDeadline(deadline);
+		searchState.setSearchNodeLimit(nodeLimit);
+		searchState.setPrincipalVariationSearch(principalVariationSearch);
+		
+		/* Try the given move first, otherwise the best move from a previous search of
+		 * this position.
+		 */
+		List<Integer> listOfEmptyCells = searchState.getOrderedRootMoves(firstMoveToTry);
+		
+		if (lazySmpSearch != null)
+		{
+			bestMoveToMake = lazySmpSearch.search(searchState, depth, deadline);
+			if (bestMoveToMake != 0)
+				lastSearchScore = lazySmpSearch.getBestScore();
+			return bestMoveToMake;
+		}
+		else if (parallelRootSearch != null)
+		{
+			bestMoveToMake = parallelRootSearch.search(searchState, listOfEmptyCells, depth, deadline);
+			alpha = parallelRootSearch.getBestScore();
+		}
+		else
+		{
+			bestMoveToMake = searchState.searchRootMoves(depth, listOfEmptyCells, windowAlpha, windowBeta);
+			alpha = searchState.getRootScore();
+		}
+		
+		player.getSearchStatistics().addSearchCounts(searchState);
+		
+		if (searchState.isSearchAborted())
+			return 0;
+		
+		lastSearchScore = alpha;
+		
+		// A score outside the window is only a bound on the real score
+		if (bestMoveToMake != 0 && alpha < windowBeta)
+			searchState.storeSearchResult(depth + 1, alpha, TranspositionTable.EXACT, bestMoveToMake);
+		
+		if (Agent.debugMode)
+			System.out.println("Went with: " + alpha);
+		
+		return bestMoveToMake;
+	}
+	
+	/**
+	 * Returns the score of the last search that finished, from the point of view of the player
+	 * controlled by this program.
+	 * @return	The score of the best move found, or a bound on it if the score was outside the window
+	 */
+	public int getLastSearchScore()
+	{
+		return lastSearchScore;
+	}
+	
+	@Override
+	public void clear()
+	{
+		lastSearchScore = 0;
+	}
+	
+	@Override
+	public void shutdown()
+	{
+		if (parallelRootSearch != null)
+			parallelRootSearch.shutdown();
+		if (lazySmpSearch != null)
+			lazySmpSearch.shutdown();
+		
+		parallelRootSearch = null;
+		lazySmpSearch = null;
+	}
+}
@@ -1,7 +1,6 @@
 package main;
 
 import java.util.ArrayList;
-import java.util.Hashtable;
 import java.util.List;
 
 /*
@@ -9,10 +8,17 @@ import java.util.List;
  */
 public class Block {
 	
-	private String positionStates;
+	/* Each mark is stored as a bitboard where bit n is set if position n is taken 
+	 * by that mark. As with the positions themselves, bit 0 is never used. 
+	 */
+	private int xPositions;
+	private int oPositions;
+	
+	/* The base-3 index of this configuration, see BlockStateTable */
+	private int stateIndex;
 	private Player thisPlayer;
-	private final static int TOP_LEFT = 1;
-	private final static int TOP_RIGHT = 3;
+	
+	private final static int EMPTY_BLOCK_MASK = 0x3FE;
 	
 	
 	/*
@@ -20,12 +26,9 @@ public class Block {
 	 */
 	public Block(Player inPlayer) {
 		thisPlayer = inPlayer;
-		
-		/* Note that the value at index = 0 is set to E; however it should never be used.
-		 * This makes it simpler to reference the positions by array index. 
-		 */
-		positionStates = "----------";
-
+		xPositions = 0;
+		oPositions = 0;
+		stateIndex = 0;
 	}
 	
 	/**
@@ -35,8 +38,9 @@ public class Block {
 	public Block(Block copiedBlock)
 	{
 		thisPlayer = copiedBlock.getCurrentPlayer();
-		positionStates = copiedBlock.getPositionStates();
-		
+		xPositions = copiedBlock.xPositions;
+		oPositions = copiedBlock.oPositions;
+		stateIndex = copiedBlock.stateIndex;
 	}
 	
 	
@@ -56,8 +60,18 @@ public class Block {
 	 */
 	public void setPosition(int position, PositionState positionState)
 	{
-		positionStates = positionStates.substring(0, position) + positionState.getValue() + positionStates.substring(position + 1);
-
+		int positionBit = 1 << position;
+		
+		stateIndex -= BlockStateTable.getStateIndexContribution(position, getPositionState(position));
+		stateIndex += BlockStateTable.getStateIndexContribution(position, positionState);
+		
+		xPositions &= ~positionBit;
+		oPositions &= ~positionBit;
+		
+		if (positionState == PositionState.X)
+			xPositions |= positionBit;
+		else if (positionState == PositionState.O)
+			oPositions |= positionBit;
 	}
 	
 	/**
@@ -67,7 +81,7 @@ public class Block {
 	 */
 	public boolean isValidMove(int position)
 	{
-		return positionStates.charAt(position) == '-';
+		return ((xPositions | oPositions) & (1 << position)) == 0;
 	}
 	
 	/**
@@ -77,17 +91,14 @@ public class Block {
 	public List<Integer> getListOfEmptyCells()
 	{
 		ArrayList<Integer> listOfEmptyCells = new ArrayList<Integer>();
-		int i = 0;
-		for (char currentPosition : positionStates.toCharArray())
+		int emptyPositions = getEmptyPositions();
+		
+		for (int position = 1; position <= 9; position++)
 		{
-			if (currentPosition == '-')
-				listOfEmptyCells.add(i);
-			i++;
+			if ((emptyPositions & (1 << position)) != 0)
+				listOfEmptyCells.add(position);
 		}
 		
-		/* Remove the 0th element, as it is just the base element, which isn't real. */
-		listOfEmptyCells.remove(0);
-		
 		return listOfEmptyCells;
 	}
 
@@ -95,149 +106,45 @@ public class Block {
 	 * Performs a similar function to getListOfEmptyCells. Howver, instead of just returning 
 	 * a list of empty cells. This method sorts those cells in order of which move would 
 	 * generate the best heuristic value for the current block. That is, the move that
-	 * would generate the best heuristic value (for the player who has the next move) will 
+	 * would generate the best heuristic value (for the player controlled by this program) will 
 	 * be at the head of the list. 
 	 * @param whoHasNextMove	A PositionState representing who has the next move in this block
 	 * @return	Returns a list of cell positions (i.e. values 1-9) that are currently empty.
 	 */
 	public List<Integer> getListOfBestMovesForThisCell(PositionState whoHasNextMove)
 	{
-		List<Integer> emptyCells = getListOfEmptyCells();
-		ArrayList<Integer> sortedListOfMoves = new ArrayList<Integer>();
-		Hashtable<Integer, Integer> heuristicValuesForEmptyOptions = new Hashtable<Integer, Integer>();
+		long orderedMoves = getOrderedMovesForThisCell(whoHasNextMove);
+		int numberOfMoves = BlockStateTable.getNumberOfMoves(orderedMoves);
+		ArrayList<Integer> sortedListOfMoves = new ArrayList<Integer>(numberOfMoves);
 		
-		for (int emptyCell : emptyCells)
-		{
-			Block tempBlock = new Block(this);
-			tempBlock.setPosition(emptyCell, whoHasNextMove);
-			int heuristicValue = tempBlock.calculateHeuristicValue();
-			heuristicValuesForEmptyOptions.put(emptyCell, heuristicValue);
-			if (sortedListOfMoves.isEmpty())
-			{
-				sortedListOfMoves.add(emptyCell);
-			}
-			else
-			{
-				
-				int insertIndex = 0;
-				while (insertIndex < sortedListOfMoves.size())
-				{
-					int heuristicValueAIndex = heuristicValuesForEmptyOptions.get(sortedListOfMoves.get(insertIndex));
-					if (heuristicValue > heuristicValueAIndex)
-					{
-						sortedListOfMoves.add(insertIndex, emptyCell);
-						break;
-					}
-					insertIndex++;
-				}
-				
-				if (insertIndex == sortedListOfMoves.size())
-					sortedListOfMoves.add(emptyCell);
-				
-				
-			}
-			
-		}
+		for (int moveIndex = 0; moveIndex < numberOfMoves; moveIndex++)
+			sortedListOfMoves.add(BlockStateTable.getMove(orderedMoves, moveIndex));
 		
 		return sortedListOfMoves;
 	}
 	
-	
-	
-	
 	/**
-	 * Performs the heuristic function on this block. 
-	 * @return 	The value obtained by performing the heuristic function. Note that any value 
-	 * greater than 100 indicates a terminal position.
+	 * Returns the same moves as getListOfBestMovesForThisCell, in the same order, but packed 
+	 * into a long so that nothing has to be allocated. The ordering for every block configuration 
+	 * is precomputed, so this is a single table look up. 
+	 * @param whoHasNextMove	A PositionState representing who has the next move in this block
+	 * @return	The moves, packed into a long. Use BlockStateTable.getNumberOfMoves and 
+	 * BlockStateTable.getMove to read them.
 	 */
-	public int calculateHeuristicValue()
+	public long getOrderedMovesForThisCell(PositionState whoHasNextMove)
 	{
-		// Look up if we've calculated a heuristic for this block already
-		int heuristicValue = thisPlayer.getHeuristcValueIfExists(this);
-		
-		if (heuristicValue != -1000)
-			return heuristicValue;
-		
-		heuristicValue = 0;
-		
-		// Analyse top row
-		heuristicValue += getSumForGivenLine(TOP_LEFT, 1);
-		
-		// Bottom Row
-		heuristicValue += getSumForGivenLine(TOP_LEFT + 6, 1);
-		
-		// Left Column
-		heuristicValue += getSumForGivenLine(TOP_LEFT, 3);
-		
-		// Right Column
-		heuristicValue += getSumForGivenLine(TOP_RIGHT, 3);
-		
-		// Middle Column
-		heuristicValue += getSumForGivenLine(TOP_LEFT + 1, 3);
-		
-		// Middle Row
-		heuristicValue += getSumForGivenLine(TOP_LEFT + 3, 1);
-		
-		// Left Diagonal
-		heuristicValue += getSumForGivenLine(TOP_LEFT, 4);
-		
-		// Right Diagonal
-		heuristicValue += getSumForGivenLine(TOP_RIGHT, 2);
-		
-		/* Update the hash table of heuristic values so that we don't have to 
-		 * perform this calculation again.
-		 */
-		thisPlayer.updateHeuristicValue(this, heuristicValue);
-		
-		return heuristicValue;
+		return BlockStateTable.getOrderedMoves(thisPlayer.getPlayersMark(), whoHasNextMove, stateIndex);
 	}
-
-	
 	
 	/**
-	 * This method calculates the heuristic sum for the current block on the given line. 
-	 * This is based on the formula given in Question 1 in the week 10 exercises. 
-	 * @param startIndex 		The index from which the line starts (i.e. 1 = TOP LEFT)
-	 * @param incrementValue	The value being used to increment the index
-	 * @return					Will return the heuristic for the current line. If the block is already 
-	 * in a winning position, a value of 200/-200 will be returned. 
+	 * Performs the heuristic function on this block. The value for every block configuration 
+	 * is precomputed, so this is a single table look up. 
+	 * @return 	The value obtained by performing the heuristic function. Note that any value 
+	 * greater than 100 indicates a terminal position.
 	 */
-	private int getSumForGivenLine(int startIndex, int incrementValue) 
+	public int calculateHeuristicValue()
 	{
-		int sum = 0; 
-		
-		for (int position = startIndex; position <= (startIndex + (incrementValue * 2)); position += incrementValue)
-		{
-			char currentPosition = getPosition(position);
-			if (currentPosition == '-')
-				continue;
-			
-			if (currentPosition == thisPlayer.getPlayersMark().getValue())
-			{
-				if (sum < 0) // There is a mark of the opposite player on this line.
-					return 0;
-				if (sum == 0) // Line is empty so far
-					sum = 1;
-				else if (sum == 1) // There is already 1 of the current players marks on the line
-					sum = 20;
-				else if (sum == 20) // This is a win for the current player
-					return 200;
-			}
-			else // current position contains opposite player
-			{
-				if (sum > 0) // There is a mark of the opposite player on this line.
-					return 0;
-				if (sum == 0) // Line is empty so far
-					sum = -1;
-				else if (sum == -1) // There is already 1 of the opposing players marks on the line
-					sum = -20;
-				else if (sum == -20) // This is a win for the opposing player
-					return -200;
-			}
-			
-		}
-		
-		return sum;
+		return BlockStateTable.getHeuristicValue(thisPlayer.getPlayersMark(), stateIndex);
 	}
 	
 	/**
@@ -278,7 +185,54 @@ public class Block {
 	 */
 	public char getPosition(int position)
 	{
-		return positionStates.charAt(position);
+		return getPositionState(position).getValue();
+	}
+	
+	/**
+	 * Returns the PositionState of the given position
+	 * @param position	An int representing the position for which we are 
+	 * interested in
+	 * @return			The mark in the given position, or E if it is empty. 
+	 */
+	public PositionState getPositionState(int position)
+	{
+		int positionBit = 1 << position;
+		
+		if ((xPositions & positionBit) != 0)
+			return PositionState.X;
+		if ((oPositions & positionBit) != 0)
+			return PositionState.O;
+		return PositionState.E;
+	}
+	
+	/**
+	 * Returns the base-3 index that identifies the configuration of this block. 
+	 * @return An int between 0 and 19682 representing the state of each cell in the block.
+	 */
+	public int getStateIndex()
+	{
+		return stateIndex;
+	}
+	
+	/**
+	 * Returns a bitboard of the positions held by the given mark in this block, where bit n 
+	 * is set if position n holds that mark. 
+	 * @param positionState	The mark, X or O
+	 * @return				An int with a bit set for each position holding the mark (bits 1-9).
+	 */
+	public int getPositions(PositionState positionState)
+	{
+		return positionState == PositionState.X ? xPositions : oPositions;
+	}
+	
+	/**
+	 * Returns a bitboard of the empty positions in this block, where bit n is set if 
+	 * position n is empty. 
+	 * @return An int with a bit set for each empty position (bits 1-9).
+	 */
+	public int getEmptyPositions()
+	{
+		return EMPTY_BLOCK_MASK & ~(xPositions | oPositions);
 	}
 	
 	/**
@@ -287,15 +241,23 @@ public class Block {
 	 */
 	public String getPositionStates()
 	{
-		return positionStates;
+		char[] positionStates = new char[10];
+		
+		/* Note that the value at index = 0 is set to E; however it should never be used.
+		 * This makes it simpler to reference the positions by array index. 
+		 */
+		for (int position = 0; position < positionStates.length; position++)
+			positionStates[position] = getPosition(position);
+		
+		return new String(positionStates);
 	}
 
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result
-				+ ((positionStates == null) ? 0 : positionStates.hashCode());
+		result = prime * result + xPositions;
+		result = prime * result + oPositions;
 		return result;
 	}
 
@@ -308,14 +270,7 @@ public class Block {
 		if (getClass() != obj.getClass())
 			return false;
 		Block other = (Block) obj;
-		if (positionStates == null) {
-			if (other.positionStates != null)
-				return false;
-		} else if (!positionStates.equals(other.positionStates))
-			return false;
-		return true;
+		return xPositions == other.xPositions && oPositions == other.oPositions;
 	}
 	
 }
-
-
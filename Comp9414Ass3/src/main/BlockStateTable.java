@@ -0,0 +1,295 @@
+package main;
+
+/**
+ * Holds values that are precomputed for every possible configuration of a single Block. 
+ * 
+ * A block has nine cells, each of which is empty, X or O, so there are only 3^9 = 19683 
+ * possible blocks. Each configuration is identified by its base-3 state index, where 
+ * position n contributes 3^(n-1) for an X and 2 * 3^(n-1) for an O. The tables are 
+ * filled once when the class is loaded and are read-only after that, so they can be 
+ * shared freely between players and threads. 
+ * 
+ * A rotation or reflection of a block has the same value, and its moves are the same moves 
+ * rotated or reflected, so the values are only calculated for the smallest state index of 
+ * each set of symmetric blocks and copied to the rest, see BoardSymmetry. 
+ * 
+ * @author Barry Skalrud
+ *
+ */
+public final class BlockStateTable {
+
+	public final static int NUM_STATES = 19683;
+	
+	/* The eight lines through a block: top, middle and bottom rows, left, middle and 
+	 * right columns and the two diagonals. Bit n is set for position n.
+	 */
+	private final static int[] LINE_MASKS = {
+		(1 << 1) | (1 << 2) | (1 << 3),
+		(1 << 4) | (1 << 5) | (1 << 6),
+		(1 << 7) | (1 << 8) | (1 << 9),
+		(1 << 1) | (1 << 4) | (1 << 7),
+		(1 << 2) | (1 << 5) | (1 << 8),
+		(1 << 3) | (1 << 6) | (1 << 9),
+		(1 << 1) | (1 << 5) | (1 << 9),
+		(1 << 3) | (1 << 5) | (1 << 7)
+	};
+	
+	/* The value of a line, indexed by the number of marks of a single player on that line */
+	private final static int[] LINE_SCORES = {0, 1, 20, 200};
+	
+	/* The weight of each position in the state index, i.e. 3^(position - 1) */
+	private final static int[] POSITION_WEIGHTS = {0, 1, 3, 9, 27, 81, 243, 729, 2187, 6561};
+	
+	/* Heuristic values indexed by [mark of the player being evaluated for][state index] */
+	private final static int[][] HEURISTIC_VALUES = new int[2][NUM_STATES];
+	
+	/* The empty positions of each block, best move first, indexed by [mark of the player being 
+	 * evaluated for][mark of the player making the move][state index]. Each list is packed into 
+	 * a long, with the number of moves in bits 0-3 and the nth move in bits 4n+4 to 4n+7.
+	 */
+	private final static long[][][] ORDERED_MOVES = new long[2][2][NUM_STATES];
+	private final static int MOVE_BITS = 4;
+	private final static int MOVE_MASK = 0xF;
+	
+	/* Whether a bitboard of one player's positions contains a complete line, indexed by the 
+	 * bitboard shifted right by one so that position 1 is bit 0. 
+	 */
+	private final static boolean[] WINNING_POSITIONS = new boolean[1 << 9];
+	
+	static 
+	{
+		for (int positions = 0; positions < WINNING_POSITIONS.length; positions++)
+			for (int lineMask : LINE_MASKS)
+				if (((positions << 1) & lineMask) == lineMask)
+					WINNING_POSITIONS[positions] = true;
+		
+		int[] canonicalStateIndexes = new int[NUM_STATES];
+		int[] symmetriesFromCanonical = new int[NUM_STATES];
+		for (int stateIndex = 0; stateIndex < NUM_STATES; stateIndex++)
+		{
+			canonicalStateIndexes[stateIndex] = stateIndex;
+			for (int symmetry = 1; symmetry < BoardSymmetry.NUMBER_OF_SYMMETRIES; symmetry++)
+			{
+				int mappedStateIndex = BoardSymmetry.mapStateIndex(symmetry, stateIndex);
+				if (mappedStateIndex < canonicalStateIndexes[stateIndex])
+				{
+					canonicalStateIndexes[stateIndex] = mappedStateIndex;
+					symmetriesFromCanonical[stateIndex] = BoardSymmetry.getInverse(symmetry);
+				}
+			}
+		}
+		
+		for (int stateIndex = 0; stateIndex < NUM_STATES; stateIndex++)
+		{
+			int canonicalStateIndex = canonicalStateIndexes[stateIndex];
+			if (canonicalStateIndex != stateIndex)
+			{
+				HEURISTIC_VALUES[PositionState.X.ordinal()][stateIndex] = HEURISTIC_VALUES[PositionState.X.ordinal()][canonicalStateIndex];
+				HEURISTIC_VALUES[PositionState.O.ordinal()][stateIndex] = HEURISTIC_VALUES[PositionState.O.ordinal()][canonicalStateIndex];
+				continue;
+			}
+			
+			int xPositions = 0;
+			int oPositions = 0;
+			int remainingDigits = stateIndex;
+			
+			for (int position = 1; position <= 9; position++)
+			{
+				int digit = remainingDigits % 3;
+				if (digit == 1)
+					xPositions |= 1 << position;
+				else if (digit == 2)
+					oPositions |= 1 << position;
+				remainingDigits /= 3;
+			}
+			
+			HEURISTIC_VALUES[PositionState.X.ordinal()][stateIndex] = calculateHeuristicValue(xPositions, oPositions);
+			HEURISTIC_VALUES[PositionState.O.ordinal()][stateIndex] = calculateHeuristicValue(oPositions, xPositions);
+		}
+		
+		// The ordering relies on the heuristic value of every state, so is done once they are all known
+		PositionState[] marks = {PositionState.X, PositionState.O};
+		for (PositionState playersMark : marks)
+			for (PositionState movingMark : marks)
+				for (int stateIndex = 0; stateIndex < NUM_STATES; stateIndex++)
+				{
+					long[] orderedMoves = ORDERED_MOVES[playersMark.ordinal()][movingMark.ordinal()];
+					int canonicalStateIndex = canonicalStateIndexes[stateIndex];
+					if (canonicalStateIndex == stateIndex)
+						orderedMoves[stateIndex] = calculateOrderedMoves(playersMark, movingMark, stateIndex);
+					else
+						orderedMoves[stateIndex] = mapOrderedMoves(symmetriesFromCanonical[stateIndex], orderedMoves[canonicalStateIndex]);
+				}
+	}
+	
+	private BlockStateTable() {}
+	
+	/**
+	 * Returns the amount a mark in the given position contributes to the state index.
+	 * @param position		The position in the block (1-9)
+	 * @param positionState	The mark in that position
+	 * @return				An int that is added to the state index when the mark is placed.
+	 */
+	public static int getStateIndexContribution(int position, PositionState positionState)
+	{
+		if (positionState == PositionState.X)
+			return POSITION_WEIGHTS[position];
+		else if (positionState == PositionState.O)
+			return 2 * POSITION_WEIGHTS[position];
+		return 0;
+	}
+	
+	/**
+	 * Looks up the heuristic value of the given block configuration.
+	 * @param playersMark	The mark of the player that the block is being evaluated for
+	 * @param stateIndex	The state index of the block
+	 * @return				The heuristic value of the block. Note that any value greater than 100 
+	 * indicates a terminal position.
+	 */
+	public static int getHeuristicValue(PositionState playersMark, int stateIndex)
+	{
+		return HEURISTIC_VALUES[playersMark.ordinal()][stateIndex];
+	}
+	
+	/**
+	 * Determines whether the given positions, all held by one player, include a complete line.
+	 * @param positions	A bitboard of the positions held by one player, where bit n is set for position n
+	 * @return			True if the positions include three in a row, false otherwise.
+	 */
+	public static boolean isWinningPositions(int positions)
+	{
+		return WINNING_POSITIONS[positions >>> 1];
+	}
+	
+	/**
+	 * Looks up the empty positions of the given block configuration, sorted so that the move 
+	 * that would give the best heuristic value for the block comes first.
+	 * @param playersMark	The mark of the player that the block is being evaluated for
+	 * @param movingMark	The mark of the player making the move
+	 * @param stateIndex	The state index of the block
+	 * @return				The moves, packed into a long. Use getNumberOfMoves and getMove to read them.
+	 */
+	public static long getOrderedMoves(PositionState playersMark, PositionState movingMark, int stateIndex)
+	{
+		return ORDERED_MOVES[playersMark.ordinal()][movingMark.ordinal()][stateIndex];
+	}
+	
+	/**
+	 * Returns the number of moves in a packed list of moves.
+	 * @param orderedMoves	A list of moves returned by getOrderedMoves
+	 * @return				The number of moves in the list (0-9)
+	 */
+	public static int getNumberOfMoves(long orderedMoves)
+	{
+		return (int) orderedMoves & MOVE_MASK;
+	}
+	
+	/**
+	 * Returns a move from a packed list of moves.
+	 * @param orderedMoves	A list of moves returned by getOrderedMoves
+	 * @param moveIndex		The index of the move in the list, starting from 0
+	 * @return				The position of the move (1-9)
+	 */
+	public static int getMove(long orderedMoves, int moveIndex)
+	{
+		return (int) (orderedMoves >>> (MOVE_BITS * (moveIndex + 1))) & MOVE_MASK;
+	}
+	
+	/**
+	 * Sorts the empty positions of a block by the heuristic value of the block after a move 
+	 * in that position, largest first. Positions with the same value are kept in position order.
+	 * @param playersMark	The mark of the player that the block is being evaluated for
+	 * @param movingMark	The mark of the player making the move
+	 * @param stateIndex	The state index of the block
+	 * @return				The moves, packed into a long.
+	 */
+	private static long calculateOrderedMoves(PositionState playersMark, PositionState movingMark, int stateIndex)
+	{
+		int[] sortedMoves = new int[9];
+		int[] sortedValues = new int[9];
+		int numberOfMoves = 0;
+		int remainingDigits = stateIndex;
+		
+		for (int position = 1; position <= 9; position++)
+		{
+			boolean isEmpty = remainingDigits % 3 == 0;
+			remainingDigits /= 3;
+			if (!isEmpty)
+				continue;
+			
+			int heuristicValue = getHeuristicValue(playersMark, stateIndex + getStateIndexContribution(position, movingMark));
+			
+			// Insert after any moves with the same or a larger value
+			int insertIndex = numberOfMoves;
+			while (insertIndex > 0 && sortedValues[insertIndex - 1] < heuristicValue)
+			{
+				sortedMoves[insertIndex] = sortedMoves[insertIndex - 1];
+				sortedValues[insertIndex] = sortedValues[insertIndex - 1];
+				insertIndex--;
+			}
+			sortedMoves[insertIndex] = position;
+			sortedValues[insertIndex] = heuristicValue;
+			numberOfMoves++;
+		}
+		
+		long orderedMoves = numberOfMoves;
+		for (int moveIndex = 0; moveIndex < numberOfMoves; moveIndex++)
+			orderedMoves |= (long) sortedMoves[moveIndex] << (MOVE_BITS * (moveIndex + 1));
+		
+		return orderedMoves;
+	}
+	
+	/**
+	 * Moves each of the moves in a packed list by a symmetry, keeping their order.
+	 * @param symmetry		The symmetry, see BoardSymmetry
+	 * @param orderedMoves	The moves, packed into a long
+	 * @return				The moved moves, packed into a long.
+	 */
+	private static long mapOrderedMoves(int symmetry, long orderedMoves)
+	{
+		int numberOfMoves = getNumberOfMoves(orderedMoves);
+		long mappedMoves = numberOfMoves;
+		for (int moveIndex = 0; moveIndex < numberOfMoves; moveIndex++)
+			mappedMoves |= (long) BoardSymmetry.mapPosition(symmetry, getMove(orderedMoves, moveIndex)) << (MOVE_BITS * (moveIndex + 1));
+		
+		return mappedMoves;
+	}
+	
+	/**
+	 * Performs the heuristic function on a block. The value is the sum of the value of each 
+	 * of the eight lines through the block.
+	 * @param playersPositions		A bitboard of the positions held by the player being evaluated for
+	 * @param opponentsPositions	A bitboard of the positions held by the opponent
+	 * @return						The value obtained by performing the heuristic function.
+	 */
+	private static int calculateHeuristicValue(int playersPositions, int opponentsPositions)
+	{
+		int heuristicValue = 0;
+		
+		for (int lineMask : LINE_MASKS)
+			heuristicValue += getSumForGivenLine(lineMask, playersPositions, opponentsPositions);
+		
+		return heuristicValue;
+	}
+	
+	/**
+	 * This method calculates the heuristic sum for a block on the given line. 
+	 * This is based on the formula given in Question 1 in the week 10 exercises. 
+	 * @param lineMask				A bitboard with the three positions of the line set
+	 * @param playersPositions		A bitboard of the positions held by this player
+	 * @param opponentsPositions	A bitboard of the positions held by the opponent
+	 * @return					Will return the heuristic for the current line. If the block is already 
+	 * in a winning position, a value of 200/-200 will be returned. 
+	 */
+	private static int getSumForGivenLine(int lineMask, int playersPositions, int opponentsPositions) 
+	{
+		int playersMarksOnLine = Integer.bitCount(playersPositions & lineMask);
+		int opponentsMarksOnLine = Integer.bitCount(opponentsPositions & lineMask);
+		
+		// A line holding marks of both players can no longer be won by either.
+		if (playersMarksOnLine > 0 && opponentsMarksOnLine > 0)
+			return 0;
+		
+		return LINE_SCORES[playersMarksOnLine] - LINE_SCORES[opponentsMarksOnLine];
+	}
+}
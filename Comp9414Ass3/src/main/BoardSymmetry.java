@@ -0,0 +1,157 @@
+package main;
+
+/**
+ * The eight symmetries of a square: the identity, the three rotations and the four reflections.
+ *
+ * A block is a square of positions and the board is a square of blocks, numbered in the same
+ * way, so each symmetry moves a position within a block and a block within the board by the
+ * same permutation of the numbers 1 to 9. Doing both at once keeps the rule that a move in
+ * position n sends the opponent to block n, so a game and its reflection or rotation have the
+ * same outcome and the same heuristic value. The permutations of the 9 positions of a block
+ * and of the 81 cells of the board are precomputed for each symmetry.
+ *
+ * @author Barry Skalrud
+ *
+ */
+public final class BoardSymmetry {
+	
+	public final static int NUMBER_OF_SYMMETRIES = 8;
+	public final static int IDENTITY = 0;
+	public final static int NUMBER_OF_CELLS = 81;
+	
+	/* Indexed by [symmetry][position], where position 0 is always mapped to 0 so that it can
+	 * still mean no position or no block.
+	 */
+	private final static int[][] POSITION_MAPS = new int[NUMBER_OF_SYMMETRIES][10];
+	
+	/* Indexed by [symmetry][cell], where the cell of position p in block b is 9 * (b - 1) + p - 1 */
+	private final static int[][] CELL_MAPS = new int[NUMBER_OF_SYMMETRIES][NUMBER_OF_CELLS];
+	
+	private final static int[] INVERSES = new int[NUMBER_OF_SYMMETRIES];
+	
+	static
+	{
+		for (int symmetry = 0; symmetry < NUMBER_OF_SYMMETRIES; symmetry++)
+		{
+			for (int position = 1; position <= 9; position++)
+			{
+				int row = (position - 1) / 3;
+				int column = (position - 1) % 3;
+				int mappedRow;
+				int mappedColumn;
+				
+				switch (symmetry)
+				{
+				case 1:		// Rotate a quarter turn clockwise
+					mappedRow = column;
+					mappedColumn = 2 - row;
+					break;
+				case 2:		// Rotate a half turn
+					mappedRow = 2 - row;
+					mappedColumn = 2 - column;
+					break;
+				case 3:		// Rotate a quarter turn anticlockwise
+					mappedRow = 2 - column;
+					mappedColumn = row;
+					break;
+				case 4:		// Reflect left to right
+					mappedRow = row;
+					mappedColumn = 2 - column;
+					break;
+				case 5:		// Reflect top to bottom
+					mappedRow = 2 - row;
+					mappedColumn = column;
+					break;
+				case 6:		// Reflect in the diagonal through positions 1, 5 and 9
+					mappedRow = column;
+					mappedColumn = row;
+					break;
+				case 7:		// Reflect in the diagonal through positions 3, 5 and 7
+					mappedRow = 2 - column;
+					mappedColumn = 2 - row;
+					break;
+				default:
+					mappedRow = row;
+					mappedColumn = column;
+				}
+				
+				POSITION_MAPS[symmetry][position] = 3 * mappedRow + mappedColumn + 1;
+			}
+		}
+		
+		for (int symmetry = 0; symmetry < NUMBER_OF_SYMMETRIES; symmetry++)
+		{
+			for (int cell = 0; cell < NUMBER_OF_CELLS; cell++)
+			{
+				int mappedBlock = POSITION_MAPS[symmetry][cell / 9 + 1];
+				int mappedPosition = POSITION_MAPS[symmetry][cell % 9 + 1];
+				CELL_MAPS[symmetry][cell] = 9 * (mappedBlock - 1) + mappedPosition - 1;
+			}
+			
+			for (int inverse = 0; inverse < NUMBER_OF_SYMMETRIES; inverse++)
+			{
+				if (POSITION_MAPS[inverse][POSITION_MAPS[symmetry][1]] == 1
+						&& POSITION_MAPS[inverse][POSITION_MAPS[symmetry][2]] == 2)
+					INVERSES[symmetry] = inverse;
+			}
+		}
+	}
+	
+	private BoardSymmetry() {}
+	
+	/**
+	 * Returns where a position in a block, or a block on the board, is moved to by a symmetry.
+	 * @param symmetry	The symmetry (0-7)
+	 * @param position	The position or block number (1-9), or 0
+	 * @return			The position or block number it is moved to, or 0 if it was 0
+	 */
+	public static int mapPosition(int symmetry, int position)
+	{
+		return POSITION_MAPS[symmetry][position];
+	}
+	
+	/**
+	 * Returns where a cell of the board is moved to by a symmetry.
+	 * @param symmetry	The symmetry (0-7)
+	 * @param cell		The cell, which is 9 * (block number - 1) + position - 1
+	 * @return			The cell it is moved to
+	 */
+	public static int mapCell(int symmetry, int cell)
+	{
+		return CELL_MAPS[symmetry][cell];
+	}
+	
+	/**
+	 * Returns the symmetry that undoes the given one.
+	 * @param symmetry	The symmetry (0-7)
+	 * @return			The symmetry that moves every position back to where it was
+	 */
+	public static int getInverse(int symmetry)
+	{
+		return INVERSES[symmetry];
+	}
+	
+	/**
+	 * Returns the state index of a block after a symmetry is applied to it, see BlockStateTable.
+	 * @param symmetry		The symmetry (0-7)
+	 * @param stateIndex	The state index of the block
+	 * @return				The state index of the block with each mark moved by the symmetry
+	 */
+	public static int mapStateIndex(int symmetry, int stateIndex)
+	{
+		int mappedStateIndex = 0;
+		int remainingDigits = stateIndex;
+		
+		for (int position = 1; position <= 9; position++)
+		{
+			int digit = remainingDigits % 3;
+			if (digit == 1)
+				mappedStateIndex += BlockStateTable.getStateIndexContribution(POSITION_MAPS[symmetry][position], PositionState.X);
+			else if (digit == 2)
+				mappedStateIndex += BlockStateTable.getStateIndexContribution(POSITION_MAPS[symmetry][position], PositionState.O);
+			remainingDigits /= 3;
+		}
+		
+		return mappedStateIndex;
+	}
+}
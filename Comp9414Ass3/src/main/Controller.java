@@ -1,18 +1,27 @@
 package main;
 
 import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 
 /**
  * The Controller class determines which action to take based on the messages received from the game server
+ * 
+ * The connections decode the messages with a ProtocolDecoder, which calls the ServerMessageHandler 
+ * methods directly. A message can also be given as a String to translateMessageFromServer. 
  * @author Barry Skalrud
  *
  */
-public class Controller {
+public class Controller implements ServerMessageHandler {
 
 	private Player currentPlayer;
 	private boolean activeGame = true;
-	private TCPConnection tcpConnection;
+	private ServerConnection serverConnection;
+	
+	/* The executor the searches for moves are run on, or null to search on the calling thread */
+	private ExecutorService searchExecutor;
 	
 	/**
 	 * Cretaes a new Controller object
@@ -20,13 +29,13 @@ public class Controller {
 	public Controller() {}
 	
 	/**
-	 * Sets the TCPConnection object to be used by the controller for sending messages 
+	 * Sets the connection to be used by the controller for sending messages 
 	 * to the game server
-	 * @param inConnection 	A TCPConnection object that the controller is to use 
+	 * @param inConnection 	A ServerConnection, e.g. a TCPConnection, that the controller is to use 
 	 */
-	public void setTCPConnection(TCPConnection inConnection)
+	public void setServerConnection(ServerConnection inConnection)
 	{
-		tcpConnection = inConnection;
+		serverConnection = inConnection;
 	}
 	
 	
@@ -35,6 +44,17 @@ public class Controller {
 		currentPlayer = inPlayer;
 	}
 	
+	/**
+	 * Sets the executor that the searches for this controller's moves are run on, e.g. so that 
+	 * the searches of many games can share a fixed number of threads, see MultiGameAgent. The 
+	 * thread handling the messages waits for each search to finish. 
+	 * @param inSearchExecutor	The ExecutorService to search on, or null to search on the calling thread
+	 */
+	public void setSearchExecutor(ExecutorService inSearchExecutor)
+	{
+		searchExecutor = inSearchExecutor;
+	}
+	
 	/**
 	 * Returns whether the game is currently in progress or it has already been won / lost. 
 	 * @return	A boolean value identifying whether this game is still in progress. 
@@ -56,7 +76,7 @@ public class Controller {
 		
 		if (inMessage.contains("start")) 
 		{
-			startTheGame(inMessage);
+			startGame(parseStartCommand(inMessage));
 		}
 		else if (inMessage.contains("second_move"))
 		{
@@ -68,15 +88,19 @@ public class Controller {
 		}
 		else if (inMessage.contains("next_move"))
 		{
-			respondToOpponentMove(inMessage);
+			nextMove(Integer.valueOf(String.valueOf(inMessage.charAt(10))));
 		}
-		else if (inMessage.contains("win") || inMessage.contains("loss"))
+		else if (inMessage.contains("last_move"))
 		{
-			System.out.println(inMessage);
+			lastMove(Integer.valueOf(String.valueOf(inMessage.charAt(10))));
+		}
+		else if (inMessage.contains("win") || inMessage.contains("loss") || inMessage.contains("draw"))
+		{
+			gameOver(inMessage);
 		}
 		else if (inMessage.contains("end"))
 		{
-			endGameKillServer();
+			endGame();
 		}
 		else
 		{
@@ -85,12 +109,12 @@ public class Controller {
 	}
 
 	/**
-	 * Using the start command from the server, this method will parse the command to find out what mark is being 
-	 * used for this player. It will then start a new game and determine whether this player has the first move.  
-	 * @param startMessage The start message from the server. 
+	 * Starts a new game, in which this player uses the given mark. 
+	 * @param mark The mark this player is using, from the start command. 
 	 */
-	private void startTheGame(String startMessage) {
-		currentPlayer.initiateGame(parseStartCommand(startMessage));
+	@Override
+	public void startGame(PositionState mark) {
+		currentPlayer.initiateGame(mark);
 	}
 	
 	/**
@@ -116,6 +140,18 @@ public class Controller {
 		int blockNumber = Integer.valueOf(secondMoveMessage.substring(12, 13));
 		int positionNumber = Integer.valueOf(secondMoveMessage.substring(14, 15));
 		
+		secondMove(blockNumber, positionNumber);
+	}
+	
+	/**
+	 * Places the opponent's first move on the board, then calls a method to decide the next move. 
+	 * @param blockNumber		The block the opponent played in
+	 * @param positionNumber	The position the opponent played
+	 * @throws IOException Thrown if there is an issue connecting to the game server.
+	 */
+	@Override
+	public void secondMove(int blockNumber, int positionNumber) throws IOException
+	{
 		currentPlayer.makeOpponentMove(blockNumber, positionNumber);
 		
 		decideOnNextMoveAndSendToServer();
@@ -135,9 +171,24 @@ public class Controller {
 		int thisPlayersInitialBlockNumber = Integer.valueOf(thirdMoveMessage.substring(11, 12));
 		int thisPlayersInitialPositionNumber = Integer.valueOf(thirdMoveMessage.substring(13, 14));
 		
-		int opponentsBlockNumber = thisPlayersInitialPositionNumber;
 		int opponentsPositionNumber = Integer.valueOf(thirdMoveMessage.substring(15,16));
 		
+		thirdMove(thisPlayersInitialBlockNumber, thisPlayersInitialPositionNumber, opponentsPositionNumber);
+	}
+	
+	/**
+	 * Places this player's first move, made by the server, and the opponent's reply on the board, then calls 
+	 * a method to decide the next move. 
+	 * @param thisPlayersInitialBlockNumber		The block of this player's first move
+	 * @param thisPlayersInitialPositionNumber	The position of this player's first move
+	 * @param opponentsPositionNumber			The position of the opponent's reply
+	 * @throws IOException Thrown if there is an issue connecting to the game server.
+	 */
+	@Override
+	public void thirdMove(int thisPlayersInitialBlockNumber, int thisPlayersInitialPositionNumber, 
+			int opponentsPositionNumber) throws IOException
+	{
+		int opponentsBlockNumber = thisPlayersInitialPositionNumber;
 		
 		currentPlayer.updateBoardWithPlayerMove(thisPlayersInitialBlockNumber, thisPlayersInitialPositionNumber);
 		currentPlayer.makeOpponentMove(opponentsBlockNumber, opponentsPositionNumber);
@@ -146,33 +197,99 @@ public class Controller {
 	}
 	
 	/**
-	 * Takes the next move message from the server and places it on the board as appropriate. Then calls a method to decide 
+	 * Places the opponent's move on the board as appropriate. Then calls a method to decide 
 	 * the next move.
-	 * @param moveMessage The position of the opponent's move in the current block. Represented as next_move(position).
+	 * @param position The position of the opponent's move in the current block. Represented as next_move(position).
+	 * @throws IOException Thrown if there is an issue connecting to the game server.
 	 */
-	private void respondToOpponentMove(String moveMessage) throws IOException
+	@Override
+	public void nextMove(int position) throws IOException
 	{
-		int position = Integer.valueOf(String.valueOf(moveMessage.charAt(10)));
 		currentPlayer.makeOpponentMove(position);
 		
 		decideOnNextMoveAndSendToServer();
 	}
+	
+	/**
+	 * The opponent's last move ended the game, which is reported by the result that follows, so 
+	 * the move is not placed on the board. 
+	 * @param position The position of the opponent's move. Represented as last_move(position).
+	 */
+	@Override
+	public void lastMove(int position)
+	{
+		// The result message ends the game
+	}
+	
+	/**
+	 * Stops pondering and prints the result of the game. 
+	 * @param result The result message, i.e. win., loss. or draw.
+	 */
+	@Override
+	public void gameOver(String result)
+	{
+		currentPlayer.stopPondering(0);
+		System.out.println(result);
+		
+		try
+		{
+			currentPlayer.saveSnapshot();
+		}
+		catch (IOException e)
+		{
+			System.out.println("Unable to save the search snapshot: " + e.getMessage());
+		}
+		
+		if (Agent.statisticsMode)
+			System.out.println("Search statistics: " + currentPlayer.getSearchStatistics().getSummary());
+	}
 
 	/**
 	 * Requests the next move from the player and sends that to the game server
 	 */
-	private void decideOnNextMoveAndSendToServer() {
-		int nextPosition = currentPlayer.decideNextMove();
+	private void decideOnNextMoveAndSendToServer() throws IOException {
+		int nextPosition;
+		
+		if (searchExecutor == null)
+		{
+			nextPosition = currentPlayer.decideNextMove();
+		}
+		else
+		{
+			try
+			{
+				nextPosition = searchExecutor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() {
+						return currentPlayer.decideNextMove();
+					}
+				}).get();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while searching for a move");
+			}
+			catch (ExecutionException e)
+			{
+				throw new IOException("Search for a move failed", e.getCause());
+			}
+		}
+		
+		serverConnection.sendMoveToServer(nextPosition);
 		
-		tcpConnection.sendMoveToServer(String.valueOf(nextPosition));
+		// Search while the opponent decides on their move
+		currentPlayer.startPondering();
 	}
 	
 	
 	/**
 	 * Sets a flag which identifies that this game has ended. 
 	 */
-	private void endGameKillServer() 
+	@Override
+	public void endGame() 
 	{
+		currentPlayer.stopPondering(0);
 		activeGame = false;
 	}
 	
@@ -0,0 +1,406 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Solves a game outright, finding whether the player to move wins, draws or loses with best
+ * play, rather than valuing positions with the heuristic. This is used when few enough cells
+ * are left that the whole of the remaining game can be searched.
+ *
+ * The game is copied into a compact board of two bitboards per block, one for each mark, so a
+ * move is just setting a bit. A win is scored by how many moves it takes, less for a later
+ * win, and a loss the same way with the sign reversed. All draws score 0. The game is first
+ * searched with a window that only tells a win, draw and loss apart, which is about as quick
+ * as not counting the moves at all, and only a game that is won is searched again to find
+ * the quickest win. Scores are kept within what is still possible at each ply, e.g. no win
+ * can be quicker than the next move but one when there's no win at once, which prunes much of
+ * the search for a quicker win once one is found. The transposition table stores the score,
+ * counted from the position rather than the root, and whether it is exact or a bound, packed
+ * into the spare bits of the key.
+ *
+ * Each node first looks for a move that wins at once. Otherwise every move is checked for
+ * sending the opponent to a block they can win at once, which loses, or to a full block,
+ * which draws, without searching any further. The remaining moves are searched with those
+ * that leave the opponent the fewest replies first, as they are the quickest to prove.
+ *
+ * A search is given a limit on the nodes it can visit, so that a position that turns out to be
+ * too big to solve only costs a bounded amount of time. The solver can't be used by more than
+ * one thread at once.
+ *
+ * @author Barry Skalrud
+ *
+ */
+public class EndgameSolver {
+	
+	public final static int LOSS = -1;
+	public final static int DRAW = 0;
+	public final static int WIN = 1;
+	
+	public final static int DEFAULT_TABLE_SIZE = 1 << 19;
+	
+	private final static int EMPTY_BLOCK_MASK = 0x3FE;
+	private final static PositionState[] MARKS = {PositionState.X, PositionState.O};
+	
+	/* The positions that would complete a line for each set of positions held by a mark, indexed by the positions >>> 1 */
+	private final static int[] WINNING_MOVES = new int[1 << 9];
+	
+	/* A win with the move at ply n, counting the root's move as ply 1, scores WIN_SCORE - n. This
+	 * is more than the number of moves in a game, so every win scores more than 0.
+	 */
+	private final static int WIN_SCORE = 100;
+	
+	/* Layout of a table entry: the score + SCORE_OFFSET in bits 0-7 and the bound in bits 8-9,
+	 * with the rest of the key above them. As the bound is never 0, any stored entry is non-zero.
+	 */
+	private final static long KEY_MASK = ~0x3FFL;
+	private final static int SCORE_OFFSET = 128;
+	private final static int EXACT = 1;
+	private final static int LOWER_BOUND = 2;
+	private final static int UPPER_BOUND = 3;
+	
+	static
+	{
+		for (int positions = 0; positions < WINNING_MOVES.length; positions++)
+		{
+			for (int position = 1; position <= 9; position++)
+			{
+				int positionBit = 1 << position;
+				if (BlockStateTable.isWinningPositions((positions << 1) | positionBit))
+					WINNING_MOVES[positions] |= positionBit;
+			}
+		}
+	}
+	
+	/* Indexed by [mark][block number], where mark 0 is X and 1 is O */
+	private int[][] marks = new int[2][10];
+	private int markToMove;
+	private int nextBlock;
+	private long positionKey;
+	
+	private long[] table;
+	private int tableMask;
+	
+	/* The moves to search at each ply, and the score of each if it is known, see orderMoves */
+	private int[][] moveBuffers = new int[82][9];
+	private int[][] moveOutcomes = new int[82][9];
+	private int ply;
+	
+	private long nodesSearched;
+	private long nodeLimit;
+	private boolean aborted;
+	private int rootMove;
+	private int pliesToWin;
+	
+	public EndgameSolver()
+	{
+		this(DEFAULT_TABLE_SIZE);
+	}
+	
+	/**
+	 * Creates a solver with an empty transposition table.
+	 * @param tableSize	The number of entries in the table, which must be a power of 2
+	 */
+	public EndgameSolver(int tableSize)
+	{
+		if (tableSize <= 0 || Integer.bitCount(tableSize) != 1)
+			throw new IllegalArgumentException("Table size must be a power of 2, not " + tableSize);
+		
+		table = new long[tableSize];
+		tableMask = tableSize - 1;
+	}
+	
+	/**
+	 * Solves the given game for the player to move. When the game is won the best move is the 
+	 * one that wins the quickest, see getPliesToWin.
+	 * @param game			The game to solve, which must not have finished. It isn't changed.
+	 * @param maxNodes		The most nodes to visit before giving up
+	 * @return				The best move, with the outcome as its score and the number of empty
+	 * cells as its depth, or null if the game couldn't be solved within the limit or there are
+	 * no moves to make
+	 */
+	public SearchResult solve(Game game, long maxNodes)
+	{
+		long startTime = System.nanoTime();
+		loadGame(game);
+		nodesSearched = 0;
+		nodeLimit = maxNodes;
+		aborted = false;
+		ply = 0;
+		
+		int block = nextBlock;
+		int empty = EMPTY_BLOCK_MASK & ~(marks[0][block] | marks[1][block]);
+		if (empty == 0)
+			return null;
+		
+		int bestScore;
+		int winningMoves = WINNING_MOVES[marks[markToMove][block] >>> 1] & empty;
+		if (winningMoves != 0)
+		{
+			rootMove = Integer.numberOfTrailingZeros(winningMoves);
+			bestScore = WIN_SCORE - 1;
+		}
+		else
+		{
+			// The outcome first, then how soon a won game can be won, starting from the results so far
+			bestScore = solveRoot(block, empty, LOSS, WIN);
+			if (bestScore > DRAW && !aborted)
+				bestScore = solveRoot(block, empty, -WIN_SCORE, WIN_SCORE);
+			
+			if (aborted)
+				return null;
+		}
+		
+		pliesToWin = (bestScore > DRAW) ? WIN_SCORE - bestScore : 0;
+		int outcome = Integer.signum(bestScore);
+		long elapsedMillis = (System.nanoTime() - startTime) / 1000000;
+		return new SearchResult(rootMove, outcome, game.getNumberOfEmptyCells(), nodesSearched, elapsedMillis);
+	}
+	
+	/**
+	 * Searches each move of the root within the given window, setting rootMove to the best.
+	 * @param block		The block to play in
+	 * @param empty		The empty positions of the block, with none of them winning at once
+	 * @param alpha		The lowest score to tell apart
+	 * @param beta		The highest score to tell apart
+	 * @return			The score of the best move, or a bound on it outside the window
+	 */
+	private int solveRoot(int block, int empty, int alpha, int beta)
+	{
+		int numberOfMoves = orderMoves(block, empty);
+		int[] moves = moveBuffers[0];
+		int[] scores = moveOutcomes[0];
+		int bestScore = -WIN_SCORE - 1;
+		
+		// Without a win at once, the quickest possible win is with this player's next move
+		for (int moveIndex = 0; moveIndex < numberOfMoves && alpha < beta && bestScore < WIN_SCORE - 3; moveIndex++)
+		{
+			int score = scores[moveIndex];
+			if (score > WIN_SCORE)
+			{
+				makeMove(block, moves[moveIndex]);
+				score = -solve(-beta, -alpha);
+				unmakeMove(block, moves[moveIndex]);
+				
+				if (aborted)
+					return DRAW;
+			}
+			
+			if (score > bestScore)
+			{
+				bestScore = score;
+				rootMove = moves[moveIndex];
+			}
+			alpha = Math.max(alpha, score);
+		}
+		
+		return bestScore;
+	}
+	
+	private void loadGame(Game game)
+	{
+		markToMove = (game.whoHasNextMove == PositionState.X) ? 0 : 1;
+		nextBlock = game.getNextBlockToPlayIn();
+		positionKey = ZobristKeys.getNextBlockKey(nextBlock);
+		if (markToMove == 1)
+			positionKey ^= ZobristKeys.getOToMoveKey();
+		
+		for (int block = 1; block <= 9; block++)
+		{
+			for (int mark = 0; mark < 2; mark++)
+			{
+				marks[mark][block] = game.getBlock(block).getPositions(MARKS[mark]);
+				for (int position = 1; position <= 9; position++)
+				{
+					if ((marks[mark][block] & (1 << position)) != 0)
+						positionKey ^= ZobristKeys.getMarkKey(MARKS[mark], block, position);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Finds the score of the current position for the player to move, which must have at least
+	 * one move to make, within the window of scores from alpha to beta.
+	 * @param alpha		The score the player to move is already sure of
+	 * @param beta		The score the opponent is already sure of
+	 * @return			The score, or a bound on it outside the window
+	 */
+	private int solve(int alpha, int beta)
+	{
+		if (++nodesSearched > nodeLimit)
+		{
+			aborted = true;
+			return DRAW;
+		}
+		
+		int block = nextBlock;
+		int empty = EMPTY_BLOCK_MASK & ~(marks[0][block] | marks[1][block]);
+		if ((WINNING_MOVES[marks[markToMove][block] >>> 1] & empty) != 0)
+			return WIN_SCORE - (ply + 1);
+		
+		// Neither player can win with the next move, so the game can't be decided any sooner than the one after
+		alpha = Math.max(alpha, -(WIN_SCORE - (ply + 2)));
+		beta = Math.min(beta, WIN_SCORE - (ply + 3));
+		if (alpha >= beta)
+			return alpha;
+		
+		long key = positionKey;
+		int slot = (int) key & tableMask;
+		long entry = table[slot];
+		if (entry != 0 && (entry & KEY_MASK) == (key & KEY_MASK))
+		{
+			int score = fromTableScore((int) (entry & 0xFF) - SCORE_OFFSET);
+			int bound = (int) (entry >>> 8) & 0x3;
+			
+			if (bound == EXACT)
+				return score;
+			else if (bound == LOWER_BOUND)
+				alpha = Math.max(alpha, score);
+			else
+				beta = Math.min(beta, score);
+			
+			if (alpha >= beta)
+				return score;
+		}
+		
+		int alphaIn = alpha;
+		int numberOfMoves = orderMoves(block, empty);
+		int[] moves = moveBuffers[ply];
+		int[] scores = moveOutcomes[ply];
+		int bestScore = -WIN_SCORE;
+		
+		for (int moveIndex = 0; moveIndex < numberOfMoves; moveIndex++)
+		{
+			int score = scores[moveIndex];
+			if (score > WIN_SCORE)
+			{
+				makeMove(block, moves[moveIndex]);
+				score = -solve(-beta, -alpha);
+				unmakeMove(block, moves[moveIndex]);
+				
+				if (aborted)
+					return DRAW;
+			}
+			
+			bestScore = Math.max(bestScore, score);
+			alpha = Math.max(alpha, score);
+			if (alpha >= beta)
+				break;
+		}
+		
+		int bound = (bestScore <= alphaIn) ? UPPER_BOUND : (bestScore >= beta) ? LOWER_BOUND : EXACT;
+		table[slot] = (key & KEY_MASK) | (bound << 8) | (toTableScore(bestScore) + SCORE_OFFSET);
+		return bestScore;
+	}
+	
+	/* The table holds the number of moves to a win or loss from the position, not from the root */
+	private int toTableScore(int score)
+	{
+		return (score > 0) ? score + ply : (score < 0) ? score - ply : DRAW;
+	}
+	
+	private int fromTableScore(int tableScore)
+	{
+		return (tableScore > 0) ? tableScore - ply : (tableScore < 0) ? tableScore + ply : DRAW;
+	}
+	
+	/**
+	 * Puts the moves in the given block into the move buffer of the current ply, along with the
+	 * score of each move that is known without searching it. A move that sends the opponent
+	 * to a block they can win at once loses, and one that sends them to a full block draws.
+	 * Those moves are put first, as they cost nothing to try, followed by the rest in order of
+	 * how many replies they leave the opponent, whose score is given as more than WIN_SCORE.
+	 * @param block		The block being played in
+	 * @param empty		The empty positions of the block
+	 * @return			The number of moves
+	 */
+	private int orderMoves(int block, int empty)
+	{
+		int[] moves = moveBuffers[ply];
+		int[] outcomes = moveOutcomes[ply];
+		int opponent = 1 - markToMove;
+		int numberOfMoves = 0;
+		
+		for (int remaining = empty; remaining != 0; remaining &= remaining - 1)
+		{
+			int position = Integer.numberOfTrailingZeros(remaining);
+			
+			// The move is made first, as it changes the block being sent to if that is this block
+			marks[markToMove][block] |= 1 << position;
+			int repliesEmpty = EMPTY_BLOCK_MASK & ~(marks[0][position] | marks[1][position]);
+			int outcome;
+			if (repliesEmpty == 0)
+				outcome = DRAW;
+			else if ((WINNING_MOVES[marks[opponent][position] >>> 1] & repliesEmpty) != 0)
+				outcome = -(WIN_SCORE - (ply + 2));
+			else
+				outcome = WIN_SCORE + Integer.bitCount(repliesEmpty);
+			marks[markToMove][block] &= ~(1 << position);
+			
+			// Insertion sort, with the known outcomes first and the fewest replies next
+			int insertIndex = numberOfMoves;
+			while (insertIndex > 0 && sortsBefore(outcome, outcomes[insertIndex - 1]))
+			{
+				moves[insertIndex] = moves[insertIndex - 1];
+				outcomes[insertIndex] = outcomes[insertIndex - 1];
+				insertIndex--;
+			}
+			moves[insertIndex] = position;
+			outcomes[insertIndex] = outcome;
+			numberOfMoves++;
+		}
+		
+		return numberOfMoves;
+	}
+	
+	private static boolean sortsBefore(int outcome, int otherOutcome)
+	{
+		// A draw is tried before a loss, and both before any move that has to be searched
+		if (otherOutcome <= WIN_SCORE)
+			return outcome <= WIN_SCORE && outcome > otherOutcome;
+		return outcome <= WIN_SCORE || outcome < otherOutcome;
+	}
+	
+	private void makeMove(int block, int position)
+	{
+		marks[markToMove][block] |= 1 << position;
+		positionKey ^= ZobristKeys.getMarkKey(MARKS[markToMove], block, position)
+				^ ZobristKeys.getNextBlockKey(block) ^ ZobristKeys.getNextBlockKey(position) ^ ZobristKeys.getOToMoveKey();
+		nextBlock = position;
+		markToMove = 1 - markToMove;
+		ply++;
+	}
+	
+	private void unmakeMove(int block, int position)
+	{
+		ply--;
+		markToMove = 1 - markToMove;
+		nextBlock = block;
+		positionKey ^= ZobristKeys.getMarkKey(MARKS[markToMove], block, position)
+				^ ZobristKeys.getNextBlockKey(block) ^ ZobristKeys.getNextBlockKey(position) ^ ZobristKeys.getOToMoveKey();
+		marks[markToMove][block] &= ~(1 << position);
+	}
+	
+	/**
+	 * Forgets the outcomes of previous searches.
+	 */
+	public void clear()
+	{
+		Arrays.fill(table, 0);
+	}
+	
+	public long getNodesSearched()
+	{
+		return nodesSearched;
+	}
+	
+	/**
+	 * Returns how soon the game is won with best play, as found by the last search that finished.
+	 * @return	The number of moves, by both players, up to and including the one that wins the
+	 * game, or 0 if the game isn't won
+	 */
+	public int getPliesToWin()
+	{
+		return pliesToWin;
+	}
+}
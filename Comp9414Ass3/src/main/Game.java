@@ -13,6 +13,77 @@ public class Game {
 	public PositionState whoHasNextMove;
 	private Player thisPlayer;
 	
+	/* The heuristic value of each block and their total, which are kept up to date as moves 
+	 * are made and unmade so that the board never has to be evaluated from scratch.
+	 */
+	private int[] blockHeuristicValues = new int[10];
+	private int gameHeuristicValue = 0;
+	
+	/* The Zobrist key of the current position after each symmetry of the board is applied to it, 
+	 * see ZobristKeys and BoardSymmetry. The key of the position itself is the identity's. 
+	 * 
+	 * Once the board has more than MAX_MARKS_FOR_SYMMETRY marks, a position is rarely a rotation 
+	 * or reflection of another that is searched, so only the identity's key is kept up to date 
+	 * and the others are left as they were until a move is unmade. 
+	 */
+	private long[] positionKeys = new long[BoardSymmetry.NUMBER_OF_SYMMETRIES];
+	private int numberOfMarks = 0;
+	private final static int MAX_MARKS_FOR_SYMMETRY = 8;
+	
+	/* The undo stack used by makeMove and unmakeMove. A game can't last longer than 81 moves, 
+	 * so each entry is kept in a fixed size primitive array indexed by the number of moves made.
+	 */
+	private final static int MAX_MOVES = 81;
+	private int[] undoPositions = new int[MAX_MOVES];
+	private int[] undoNextMoveInBlockNumbers = new int[MAX_MOVES];
+	private int[] undoLastMoveMadeInBlockNumbers = new int[MAX_MOVES];
+	private int[] undoWhoHasNextMove = new int[MAX_MOVES];
+	private long[] undoPositionKeys = new long[MAX_MOVES * BoardSymmetry.NUMBER_OF_SYMMETRIES];
+	private int undoStackSize = 0;
+	
+	/* The moves to search at each ply of the search, indexed by the size of the undo stack, so 
+	 * that nothing needs to be allocated while searching. 
+	 */
+	private int[][] moveBuffers = new int[MAX_MOVES + 1][9];
+	
+	/* A search can be given a deadline, based on System.nanoTime. Checking the clock is 
+	 * comparatively slow, so it is only checked every NODES_BETWEEN_CLOCK_CHECKS nodes.
+	 */
+	public final static long NO_DEADLINE = Long.MAX_VALUE;
+	private final static int NODES_BETWEEN_CLOCK_CHECKS = 1024;
+	private long searchDeadline = NO_DEADLINE;
+	private long searchNodeLimit = Long.MAX_VALUE;
+	private boolean searchAborted = false;
+	private int nodesUntilClockCheck = NODES_BETWEEN_CLOCK_CHECKS;
+	
+	/* Another thread can ask for a search to stop. This is checked at the same time as the clock. */
+	private volatile boolean stopRequested = false;
+	
+	/* The number of nodes visited by searches of this game, and the score of the last root search */
+	private long nodesSearched = 0;
+	private int rootScore;
+	
+	/* The number of cutoffs found by searches of this game, and how many of those were caused 
+	 * by the move searched at each index, see SearchStatistics. 
+	 */
+	private long betaCutoffs = 0;
+	private long[] betaCutoffsByMoveIndex = new long[9];
+	
+	/* The number of nodes valued by the heuristic, and of transposition table probes that found 
+	 * and didn't find an entry for the position. 
+	 */
+	private long leafEvaluations = 0;
+	private long transpositionTableHits = 0;
+	private long transpositionTableMisses = 0;
+	
+	/* When non-zero, the moves after the first at each node are rotated by an amount based on 
+	 * this value. This lets several threads search the same tree in different orders. 
+	 */
+	private int moveOrderVariation = 0;
+	
+	/* Whether searches of this game use principal variation search, see searchMove */
+	private boolean principalVariationSearch;
+	
 	
 	
 	/**
@@ -36,6 +107,7 @@ public class Game {
 		for (int i = 0; i < NUM_BLOCKS; i++)
 			board.add(new Block(thisPlayer));
 		
+		calculatePositionKeys();
 	}
 	
 	/**
@@ -47,7 +119,10 @@ public class Game {
 	{
 		board = new ArrayList<Block>();
 		thisPlayer = copiedGame.getPlayerRepresentedByThisProgram();
+		principalVariationSearch = copiedGame.principalVariationSearch;
 		whoHasNextMove = nextMoveToBeMadeBy;
+		nextMoveInBlockNumber = copiedGame.getNextBlockToPlayIn();
+		lastMoveMadeInBlockNumber = copiedGame.getLastBlockPlayedIn();
 		
 		board.add(null);
 		
@@ -55,6 +130,11 @@ public class Game {
 		{
 			board.add(new Block(copiedGame.getBlock(block)));
 		}
+		
+		System.arraycopy(copiedGame.blockHeuristicValues, 0, blockHeuristicValues, 0, blockHeuristicValues.length);
+		gameHeuristicValue = copiedGame.gameHeuristicValue;
+		numberOfMarks = copiedGame.numberOfMarks;
+		calculatePositionKeys();
 	}
 	
 	/**
@@ -65,13 +145,176 @@ public class Game {
 	 */
 	public void setMove(PositionState who, int blockNumber, int position)
 	{
+		Block block = board.get(blockNumber);
+		PositionState previousState = block.getPositionState(position);
 		
-		board.get(blockNumber).setPosition(position, who);
+		/* Update the Zobrist keys by removing the parts of the position that change and 
+		 * adding their new values. 
+		 */
+		if (previousState == PositionState.E)
+			numberOfMarks++;
+		int numberOfKeys = hasSymmetricKeys() ? BoardSymmetry.NUMBER_OF_SYMMETRIES : 1;
+		for (int symmetry = 0; symmetry < numberOfKeys; symmetry++)
+		{
+			long keyChange = ZobristKeys.getMarkKey(symmetry, who, blockNumber, position)
+					^ ZobristKeys.getLastBlockKey(symmetry, lastMoveMadeInBlockNumber) ^ ZobristKeys.getLastBlockKey(symmetry, blockNumber)
+					^ ZobristKeys.getNextBlockKey(symmetry, nextMoveInBlockNumber) ^ ZobristKeys.getNextBlockKey(symmetry, position)
+					^ ZobristKeys.getOToMoveKey();
+			if (previousState != PositionState.E)
+				keyChange ^= ZobristKeys.getMarkKey(symmetry, previousState, blockNumber, position);
+			positionKeys[symmetry] ^= keyChange;
+		}
+		
+		block.setPosition(position, who);
+		updateHeuristicValueOfBlock(blockNumber);
 		lastMoveMadeInBlockNumber = blockNumber;
 		nextMoveInBlockNumber = position;
 		updateWhoHasNextMove();
 	}
 	
+	/**
+	 * Calculates the Zobrist key of the current position under each symmetry from scratch.
+	 */
+	private void calculatePositionKeys()
+	{
+		for (int symmetry = 0; symmetry < BoardSymmetry.NUMBER_OF_SYMMETRIES; symmetry++)
+		{
+			long key = ZobristKeys.getNextBlockKey(symmetry, nextMoveInBlockNumber) 
+					^ ZobristKeys.getLastBlockKey(symmetry, lastMoveMadeInBlockNumber);
+			
+			if (whoHasNextMove == PositionState.O)
+				key ^= ZobristKeys.getOToMoveKey();
+			
+			for (int blockNumber = 1; blockNumber <= NUM_BLOCKS; blockNumber++)
+			{
+				Block block = board.get(blockNumber);
+				for (int position = 1; position <= 9; position++)
+				{
+					PositionState positionState = block.getPositionState(position);
+					if (positionState != PositionState.E)
+						key ^= ZobristKeys.getMarkKey(symmetry, positionState, blockNumber, position);
+				}
+			}
+			
+			positionKeys[symmetry] = key;
+		}
+	}
+	
+	/**
+	 * Returns the Zobrist key of the current position. Two games have the same key if they have 
+	 * the same marks on the board, the same block to play in next, the same block that was last 
+	 * played in and the same player to move. 
+	 * @return	A long representing the key of the current position.
+	 */
+	public long getPositionKey()
+	{
+		return positionKeys[BoardSymmetry.IDENTITY];
+	}
+	
+	/**
+	 * Returns the symmetry that gives the smallest key of the current position. Positions that 
+	 * are rotations or reflections of each other have the same smallest key, so it is used to 
+	 * store them together in the transposition table, with their moves mapped by this symmetry.
+	 * Once the board has more than MAX_MARKS_FOR_SYMMETRY marks this is always the identity.
+	 * @return	The symmetry (0-7), see BoardSymmetry
+	 */
+	public int getCanonicalSymmetry()
+	{
+		int canonicalSymmetry = BoardSymmetry.IDENTITY;
+		for (int symmetry = 1; symmetry < BoardSymmetry.NUMBER_OF_SYMMETRIES && hasSymmetricKeys(); symmetry++)
+		{
+			if (positionKeys[symmetry] < positionKeys[canonicalSymmetry])
+				canonicalSymmetry = symmetry;
+		}
+		return canonicalSymmetry;
+	}
+	
+	/**
+	 * Returns the key that the current position and all of its rotations and reflections share.
+	 * @return	The smallest of the keys of the position under each symmetry
+	 */
+	public long getCanonicalKey()
+	{
+		return positionKeys[getCanonicalSymmetry()];
+	}
+	
+	/**
+	 * Returns whether the keys of the current position under every symmetry are up to date.
+	 * @return	True if the board has few enough marks, see MAX_MARKS_FOR_SYMMETRY
+	 */
+	private boolean hasSymmetricKeys()
+	{
+		return numberOfMarks <= MAX_MARKS_FOR_SYMMETRY;
+	}
+	
+	/**
+	 * Stores the result of a search of the current position in the transposition table, under 
+	 * the canonical key. 
+	 * @param depth		The remaining depth of the search
+	 * @param score		The score that was found
+	 * @param bound		One of TranspositionTable.EXACT, LOWER_BOUND or UPPER_BOUND
+	 * @param bestMove	The best move that was found (1-9), or 0 if there wasn't one
+	 */
+	public void storeSearchResult(int depth, int score, int bound, int bestMove)
+	{
+		int symmetry = getCanonicalSymmetry();
+		thisPlayer.getTranspositionTable().store(positionKeys[symmetry], depth, score, bound, 
+				BoardSymmetry.mapPosition(symmetry, bestMove));
+	}
+	
+	/**
+	 * Looks up the best move stored in the transposition table for the current position.
+	 * @return	The move (1-9), or 0 if there isn't one
+	 */
+	public int getStoredBestMove()
+	{
+		int symmetry = getCanonicalSymmetry();
+		int canonicalMove = TranspositionTable.getBestMove(thisPlayer.getTranspositionTable().probe(positionKeys[symmetry]));
+		return BoardSymmetry.mapPosition(BoardSymmetry.getInverse(symmetry), canonicalMove);
+	}
+	
+	/**
+	 * Makes a move for the player who has the next move, in the block that has to be played in next. 
+	 * Unlike setMove, the move is recorded so that it can be taken back with unmakeMove. This lets 
+	 * the search explore the game tree in place rather than copying the game for every node.
+	 * @param position		Which position in the next block is being played (1-9)
+	 */
+	public void makeMove(int position)
+	{
+		undoPositions[undoStackSize] = position;
+		undoNextMoveInBlockNumbers[undoStackSize] = nextMoveInBlockNumber;
+		undoLastMoveMadeInBlockNumbers[undoStackSize] = lastMoveMadeInBlockNumber;
+		undoWhoHasNextMove[undoStackSize] = whoHasNextMove.ordinal();
+		System.arraycopy(positionKeys, 0, undoPositionKeys, undoStackSize * BoardSymmetry.NUMBER_OF_SYMMETRIES, 
+				hasSymmetricKeys() ? BoardSymmetry.NUMBER_OF_SYMMETRIES : 1);
+		undoStackSize++;
+		
+		setMove(whoHasNextMove, nextMoveInBlockNumber, position);
+	}
+	
+	/**
+	 * Takes back the last move made with makeMove, restoring the game to the state it was 
+	 * in before that move.
+	 */
+	public void unmakeMove()
+	{
+		undoStackSize--;
+		
+		// The move was made in the block that was next to be played in before the move
+		nextMoveInBlockNumber = undoNextMoveInBlockNumbers[undoStackSize];
+		board.get(nextMoveInBlockNumber).setPosition(undoPositions[undoStackSize], PositionState.E);
+		updateHeuristicValueOfBlock(nextMoveInBlockNumber);
+		lastMoveMadeInBlockNumber = undoLastMoveMadeInBlockNumbers[undoStackSize];
+		numberOfMarks--;
+		System.arraycopy(undoPositionKeys, undoStackSize * BoardSymmetry.NUMBER_OF_SYMMETRIES, positionKeys, 0, 
+				hasSymmetricKeys() ? BoardSymmetry.NUMBER_OF_SYMMETRIES : 1);
+		
+		if (undoWhoHasNextMove[undoStackSize] == PositionState.X.ordinal())
+			whoHasNextMove = PositionState.X;
+		else
+			whoHasNextMove = PositionState.O;
+	}
+	
 	private void updateWhoHasNextMove()
 	{
 		if (whoHasNextMove == PositionState.X)
@@ -92,25 +335,17 @@ public class Game {
 	 */
 	public boolean isTerminalState() 
 	{
-		return Math.abs(heuristicFunctionValueOfGivenBlock(lastMoveMadeInBlockNumber)) >= 100;  
+		return Math.abs(blockHeuristicValues[lastMoveMadeInBlockNumber]) >= 100;  
 	}
 
 	/**
-	 * Calculates the heuristic function value for the current state of the baord.
+	 * Returns the heuristic function value for the current state of the baord. This is the 
+	 * sum of the heuristic values of the blocks, which is kept up to date as moves are made.
 	 * @return An int representing the heuristic function value calculated for this board.
 	 */
 	public int heuristicFunctionValueOfGame()
 	{
-		int heuristicValue = 0;
-		for (Block currentBlock : board)
-		{
-			/* The block at index, 0 is set to null, so just ignore that */
-			if (currentBlock == null)
-				continue;
-			heuristicValue += currentBlock.calculateHeuristicValue();
-		}
-		
-		return heuristicValue;
+		return gameHeuristicValue;
 	}
 	
 	/**
@@ -122,8 +357,19 @@ public class Game {
 	 */
 	public int heuristicFunctionValueOfGivenBlock(int blockId) 
 	{
-		Block nextBlock = getBlock(blockId);
-		return nextBlock.calculateHeuristicValue();
+		return blockHeuristicValues[blockId];
+	}
+	
+	/**
+	 * Recalculates the heuristic value of a block that has changed and applies the difference 
+	 * to the heuristic value of the game.
+	 * @param blockNumber	The block that has changed (1-9)
+	 */
+	private void updateHeuristicValueOfBlock(int blockNumber)
+	{
+		int heuristicValue = board.get(blockNumber).calculateHeuristicValue();
+		gameHeuristicValue += heuristicValue - blockHeuristicValues[blockNumber];
+		blockHeuristicValues[blockNumber] = heuristicValue;
 	}
 
 	
@@ -138,10 +384,255 @@ public class Game {
 	}
 
 	
+	/**
+	 * Performs an alpha-beta search of each of the given moves, which are made by the player 
+	 * controlled by this program in the block that is to be played in next. 
+	 * @param depth			The depth to search each move to
+	 * @param orderedMoves	The moves to search, in the order they should be searched
+	 * @return				The first move with the best score, or 0 if no move improves on the worst 
+	 * possible result or the search deadline passed. The score can be retrieved with getRootScore. 
+	 */
+	public int searchRootMoves(int depth, List<Integer> orderedMoves)
+	{
+		return searchRootMoves(depth, orderedMoves, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Performs an alpha-beta search of each of the given moves within the given window, e.g. an 
+	 * aspiration window around the score of a previous search. 
+	 * @param depth			The depth to search each move to
+	 * @param orderedMoves	The moves to search, in the order they should be searched
+	 * @param alpha			The lower bound of the window
+	 * @param beta			The upper bound of the window
+	 * @return				The first move with the best score, or 0 if no move scores more than alpha or 
+	 * the search deadline passed. If a move scores beta or more, the search stops and that move is 
+	 * returned. The score can be retrieved with getRootScore. 
+	 */
+	public int searchRootMoves(int depth, List<Integer> orderedMoves, int alpha, int beta)
+	{
+		int bestMoveToMake = 0;
+		int moveIndex = 0;
+		
+		nodesSearched++;
+		
+		for (int emptyCell : orderedMoves)
+		{
+			makeMove(emptyCell);
+			int result = searchMove(moveIndex++, depth, alpha, beta, true);
+			unmakeMove();
+			
+			if (searchAborted)
+				return 0;
+			
+			if (Agent.debugMode)
+				System.out.println("Option: " + emptyCell + ", result: " + result);
+			
+			if (result > alpha)
+			{
+				bestMoveToMake = emptyCell;
+				alpha = result;
+			}
+			
+			if (alpha >= beta)
+				break;
+		}
+		
+		rootScore = alpha;
+		return bestMoveToMake;
+	}
+	
+	/**
+	 * Searches the position after a move has been made. When this game is using principal 
+	 * variation search, every move but the first is searched with a null window, which only 
+	 * shows whether the move is better than the best move so far. The move is only searched 
+	 * again with the full window if it is. 
+	 * @param moveIndex		The index of the move in the order the moves are being searched
+	 * @param depth			The depth to search to
+	 * @param alpha			An int representing the alpha value used as input for the search
+	 * @param beta			An int representing the beta value used as input for the search
+	 * @param maximising	True if the move was made by the player controlled by this program
+	 * @return				The result of the search, as for alphaBetaSearchResult
+	 */
+	private int searchMove(int moveIndex, int depth, int alpha, int beta, boolean maximising)
+	{
+		if (moveIndex == 0 || !principalVariationSearch)
+			return alphaBetaSearchResult(depth, alpha, beta);
+		
+		int result;
+		if (maximising)
+		{
+			result = alphaBetaSearchResult(depth, alpha, alpha + 1);
+			if (result > alpha && result < beta && !searchAborted)
+				result = alphaBetaSearchResult(depth, alpha, beta);
+		}
+		else
+		{
+			result = alphaBetaSearchResult(depth, beta - 1, beta);
+			if (result < beta && result > alpha && !searchAborted)
+				result = alphaBetaSearchResult(depth, alpha, beta);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Returns the moves available in the block that is to be played in next, best first. The 
+	 * given move is put first, otherwise the best move stored in the transposition table for 
+	 * the current position. 
+	 * 
+	 * If a rotation or reflection of the board leaves the position unchanged, a move and the 
+	 * move it is rotated or reflected to lead to the same position, so only the first of them 
+	 * is returned. 
+	 * @param firstMoveToTry	The move to search first, or 0 to use the normal ordering
+	 * @return					A list of cell positions (i.e. values 1-9) that are currently empty.
+	 */
+	public List<Integer> getOrderedRootMoves(int firstMoveToTry)
+	{
+		List<Integer> listOfEmptyCells = getBlock(nextMoveInBlockNumber).getListOfBestMovesForThisCell(whoHasNextMove);
+		
+		if (firstMoveToTry == 0)
+			firstMoveToTry = getStoredBestMove();
+		if (firstMoveToTry != 0 && listOfEmptyCells.remove(Integer.valueOf(firstMoveToTry)))
+			listOfEmptyCells.add(0, firstMoveToTry);
+		
+		for (int symmetry = 1; symmetry < BoardSymmetry.NUMBER_OF_SYMMETRIES && hasSymmetricKeys(); symmetry++)
+		{
+			if (positionKeys[symmetry] != positionKeys[BoardSymmetry.IDENTITY])
+				continue;
+			
+			for (int moveIndex = listOfEmptyCells.size() - 1; moveIndex >= 0; moveIndex--)
+			{
+				int symmetricMove = BoardSymmetry.mapPosition(symmetry, listOfEmptyCells.get(moveIndex));
+				if (listOfEmptyCells.subList(0, moveIndex).contains(symmetricMove))
+					listOfEmptyCells.remove(moveIndex);
+			}
+		}
+		
+		return listOfEmptyCells;
+	}
+	
+	/**
+	 * Fills the given array with the moves available in the block that is to be played in next, 
+	 * in the order they should be searched. This is the given move, then the killer moves for this 
+	 * ply, then the rest of the moves by their history value. Moves with the same history value 
+	 * are kept in the order given by getOrderedMovesForThisCell.
+	 * @param moves		The array to fill, which must have room for 9 moves
+	 * @param firstMove	The move to put first, e.g. the best move from a previous search, or 0
+	 * @param depth		The remaining depth of the search, used to vary the order
+	 * @return			The number of moves
+	 */
+	private int getOrderedMoves(int[] moves, int firstMove, int depth)
+	{
+		Block block = board.get(nextMoveInBlockNumber);
+		MoveOrderingHistory moveOrderingHistory = thisPlayer.getMoveOrderingHistory();
+		long orderedMoves = block.getOrderedMovesForThisCell(whoHasNextMove);
+		int numberOfOrderedMoves = BlockStateTable.getNumberOfMoves(orderedMoves);
+		int numberOfMoves = 0;
+		
+		// A bitboard of the moves that have already been put in the array
+		int movesAdded = 0;
+		
+		if (firstMove != 0 && block.isValidMove(firstMove))
+		{
+			moves[numberOfMoves++] = firstMove;
+			movesAdded |= 1 << firstMove;
+		}
+		
+		for (int killerIndex = 0; killerIndex < 2; killerIndex++)
+		{
+			int killerMove = moveOrderingHistory.getKillerMove(undoStackSize, killerIndex);
+			if (killerMove != 0 && (movesAdded & (1 << killerMove)) == 0 && block.isValidMove(killerMove))
+			{
+				moves[numberOfMoves++] = killerMove;
+				movesAdded |= 1 << killerMove;
+			}
+		}
+		
+		int firstHistoryOrderedMove = numberOfMoves;
+		for (int moveIndex = 0; moveIndex < numberOfOrderedMoves; moveIndex++)
+		{
+			int move = BlockStateTable.getMove(orderedMoves, moveIndex);
+			if ((movesAdded & (1 << move)) != 0)
+				continue;
+			
+			// Insert after any moves with the same or a larger history value
+			int historyValue = moveOrderingHistory.getHistoryValue(whoHasNextMove, nextMoveInBlockNumber, move);
+			int insertIndex = numberOfMoves;
+			while (insertIndex > firstHistoryOrderedMove 
+					&& moveOrderingHistory.getHistoryValue(whoHasNextMove, nextMoveInBlockNumber, moves[insertIndex - 1]) < historyValue)
+			{
+				moves[insertIndex] = moves[insertIndex - 1];
+				insertIndex--;
+			}
+			moves[insertIndex] = move;
+			numberOfMoves++;
+		}
+		
+		if (moveOrderVariation != 0 && numberOfMoves > 2)
+			rotateMoves(moves, 1, numberOfMoves, moveOrderVariation + depth);
+		
+		return numberOfMoves;
+	}
+	
+	/**
+	 * Records that a move caused a cutoff, so that it is tried earlier in later searches. 
+	 * @param moveIndex	The index of the move in the order the moves were searched
+	 * @param position	The position of the move in the block that is to be played in next
+	 * @param depth		The remaining depth of the search
+	 */
+	private void recordCutoff(int moveIndex, int position, int depth)
+	{
+		betaCutoffs++;
+		betaCutoffsByMoveIndex[moveIndex]++;
+		
+		thisPlayer.getMoveOrderingHistory().recordCutoff(undoStackSize, whoHasNextMove, nextMoveInBlockNumber, position, depth);
+	}
+	
+	/**
+	 * Rotates part of an array of moves to the right, in place.
+	 * @param moves		The array of moves
+	 * @param from		The index of the first move to rotate
+	 * @param to		The index after the last move to rotate
+	 * @param distance	The distance to rotate the moves by
+	 */
+	private static void rotateMoves(int[] moves, int from, int to, int distance)
+	{
+		distance %= to - from;
+		reverseMoves(moves, from, to);
+		reverseMoves(moves, from, from + distance);
+		reverseMoves(moves, from + distance, to);
+	}
+	
+	private static void reverseMoves(int[] moves, int from, int to)
+	{
+		for (int low = from, high = to - 1; low < high; low++, high--)
+		{
+			int move = moves[low];
+			moves[low] = moves[high];
+			moves[high] = move;
+		}
+	}
+	
+	/**
+	 * Returns the score of the move chosen by the last call to searchRootMoves.
+	 * @return	An int representing the score of the best move.
+	 */
+	public int getRootScore()
+	{
+		return rootScore;
+	}
+	
 	/**
 	 * Returns the best score obtained by performing a alpha beta search for a given depth.
 	 * The algorithm for this function is based on the COMP9414 week 4 lecture notes, 
 	 * slide 26.  
+	 * 
+	 * Results are stored in the player's transposition table. A stored result is only used to 
+	 * cut the search off when it was searched to the same depth, so the result of a search doesn't 
+	 * depend on what has been searched before it. The stored best move is always tried first.
+	 * 
+	 * If the search deadline passes, or another thread asks for the search to stop, the search is 
+	 * abandoned and the value returned is meaningless. This can be checked with isSearchAborted.
 	 * @param depth		An int representing the depth for the search
 	 * @param alpha		An int representing the alpha value used as input for the search
 	 * @param beta		An int representing the beta value used as input for the search
@@ -150,51 +641,260 @@ public class Game {
 	 */
 	public int alphaBetaSearchResult(int depth, int alpha, int beta) 
 	{
+		nodesSearched++;
+		
+		if (isSearchOutOfTime())
+			return 0;
+		
 		if (isTerminalState())
+		{
+			leafEvaluations++;
 			return heuristicFunctionValueOfGivenBlock(lastMoveMadeInBlockNumber);
+		}
 		else if (depth == 0)
+		{
+			leafEvaluations++;
 			return heuristicFunctionValueOfGame();
+		}
+		
+		/* Rotations and reflections of the position share an entry, which holds the best move 
+		 * for the position with the smallest key. 
+		 */
+		TranspositionTable transpositionTable = thisPlayer.getTranspositionTable();
+		int symmetry = getCanonicalSymmetry();
+		long key = positionKeys[symmetry];
+		long entry = transpositionTable.probe(key);
+		int bestMove = 0;
+		
+		if (entry == 0)
+			transpositionTableMisses++;
+		else
+		{
+			transpositionTableHits++;
+			bestMove = BoardSymmetry.mapPosition(BoardSymmetry.getInverse(symmetry), TranspositionTable.getBestMove(entry));
+			
+			if (TranspositionTable.getDepth(entry) == depth)
+			{
+				int score = TranspositionTable.getScore(entry);
+				int bound = TranspositionTable.getBound(entry);
+				
+				if (bound == TranspositionTable.EXACT
+						|| (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+						|| (bound == TranspositionTable.UPPER_BOUND && score <= alpha))
+					return score;
+			}
+		}
 	
-		List <Integer> listOfEmptyCells = getBlock(nextMoveInBlockNumber).getListOfBestMovesForThisCell(whoHasNextMove);
+		// Try the best move from a previous search first
+		int[] moves = moveBuffers[undoStackSize];
+		int numberOfMoves = getOrderedMoves(moves, bestMove, depth);
 		
 		if (!isOpponentPlaying())
 		{
-			for (int emptyCell : listOfEmptyCells)
+			int alphaIn = alpha;
+			
+			for (int moveIndex = 0; moveIndex < numberOfMoves; moveIndex++)
 			{
+				int emptyCell = moves[moveIndex];
+				
 				// Expand this game state
-				Game expandedState = new Game(this, whoHasNextMove);
-				expandedState.setMove(whoHasNextMove, nextMoveInBlockNumber, emptyCell);
+				makeMove(emptyCell);
+				int alphaValue = searchMove(moveIndex, depth - 1, alpha, beta, true);
+				unmakeMove();
 				
-				int alphaValue = expandedState.alphaBetaSearchResult(depth - 1, alpha, beta);
+				if (searchAborted)
+					return alpha;
 
 				if (alphaValue > alpha)
+				{
 					alpha = alphaValue;
+					bestMove = emptyCell;
+				}
 				
 				if (alpha >= beta)
+				{
+					recordCutoff(moveIndex, emptyCell, depth);
+					transpositionTable.store(key, depth, alpha, TranspositionTable.LOWER_BOUND, BoardSymmetry.mapPosition(symmetry, bestMove));
 					return alpha;
+				}
 			}
+			
+			transpositionTable.store(key, depth, alpha, 
+					alpha > alphaIn ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND, BoardSymmetry.mapPosition(symmetry, bestMove));
 			return alpha;
 		}
 		else 
 		{
+			int betaIn = beta;
 
-			for (int emptyCell : listOfEmptyCells)
+			for (int moveIndex = 0; moveIndex < numberOfMoves; moveIndex++)
 			{
-				Game expandedState = new Game(this, whoHasNextMove);
-				expandedState.setMove(whoHasNextMove, nextMoveInBlockNumber, emptyCell);
-				int betaValue = expandedState.alphaBetaSearchResult(depth - 1, alpha, beta);
+				int emptyCell = moves[moveIndex];
+				
+				makeMove(emptyCell);
+				int betaValue = searchMove(moveIndex, depth - 1, alpha, beta, false);
+				unmakeMove();
+				
+				if (searchAborted)
+					return beta;
 
 				if (betaValue < beta)
+				{
 					beta = betaValue;
+					bestMove = emptyCell;
+				}
 				
 				if (beta <= alpha)
+				{
+					recordCutoff(moveIndex, emptyCell, depth);
+					transpositionTable.store(key, depth, beta, TranspositionTable.UPPER_BOUND, BoardSymmetry.mapPosition(symmetry, bestMove));
 					return beta;
+				}
 			}
+			
+			transpositionTable.store(key, depth, beta, 
+					beta < betaIn ? TranspositionTable.EXACT : TranspositionTable.LOWER_BOUND, BoardSymmetry.mapPosition(symmetry, bestMove));
 			return beta;
 		}
 	}
 	
 	
+	/**
+	 * Sets the time at which any search of this game should be abandoned.
+	 * @param deadline	The deadline, as a value of System.nanoTime, or NO_DEADLINE
+	 */
+	public void setSearchDeadline(long deadline)
+	{
+		searchDeadline = deadline;
+		searchAborted = false;
+		stopRequested = false;
+		nodesUntilClockCheck = NODES_BETWEEN_CLOCK_CHECKS;
+	}
+	
+	/**
+	 * Sets the number of nodes after which any search of this game should be abandoned. The 
+	 * limit is checked as often as the deadline, so the search may go slightly over it. 
+	 * @param nodeLimit	The number of nodes, counted from when the game was created, or Long.MAX_VALUE
+	 */
+	public void setSearchNodeLimit(long nodeLimit)
+	{
+		searchNodeLimit = nodeLimit;
+	}
+	
+	/**
+	 * Sets whether searches of this game use principal variation search, see searchMove. 
+	 * Copies of this game use the same setting. 
+	 * @param inPrincipalVariationSearch	True to use principal variation search, false for plain alpha-beta
+	 */
+	public void setPrincipalVariationSearch(boolean inPrincipalVariationSearch)
+	{
+		principalVariationSearch = inPrincipalVariationSearch;
+	}
+	
+	/**
+	 * Asks the search running on this game to stop. This can be called from another thread.
+	 */
+	public void requestSearchStop()
+	{
+		stopRequested = true;
+	}
+	
+	/**
+	 * Sets the amount the move ordering is varied by, see alphaBetaSearchResult.
+	 * @param inMoveOrderVariation	0 to use the normal order, or any other value to vary it
+	 */
+	public void setMoveOrderVariation(int inMoveOrderVariation)
+	{
+		moveOrderVariation = inMoveOrderVariation;
+	}
+	
+	/**
+	 * Returns the number of cutoffs found by all of the searches of this game so far.
+	 * @return	A long representing the number of cutoffs.
+	 */
+	public long getBetaCutoffs()
+	{
+		return betaCutoffs;
+	}
+	
+	/**
+	 * Returns the number of cutoffs that were caused by the move searched at the given index at a node.
+	 * @param moveIndex	The index of the move in the order the moves were searched, 0 for the first
+	 * @return			A long representing the number of cutoffs caused by moves at that index.
+	 */
+	public long getBetaCutoffsAtMoveIndex(int moveIndex)
+	{
+		return betaCutoffsByMoveIndex[moveIndex];
+	}
+	
+	/**
+	 * Returns the number of nodes whose value was given by the heuristic, see SearchStatistics.
+	 * @return	A long representing the number of leaf evaluations.
+	 */
+	public long getLeafEvaluations()
+	{
+		return leafEvaluations;
+	}
+	
+	public long getTranspositionTableHits()
+	{
+		return transpositionTableHits;
+	}
+	
+	public long getTranspositionTableMisses()
+	{
+		return transpositionTableMisses;
+	}
+	
+	/**
+	 * Returns the number of nodes visited by all of the searches of this game so far.
+	 * @return	A long representing the number of nodes searched.
+	 */
+	public long getNodesSearched()
+	{
+		return nodesSearched;
+	}
+	
+	/**
+	 * Returns whether the last search was abandoned because the search deadline or node limit passed.
+	 * @return	True if the search ran out of time or nodes, false otherwise.
+	 */
+	public boolean isSearchAborted()
+	{
+		return searchAborted;
+	}
+	
+	/**
+	 * Checks whether the search deadline or node limit has passed. Once it has, every call 
+	 * returns true until a new deadline is set. 
+	 * @return	True if the search should be abandoned, false otherwise. 
+	 */
+	private boolean isSearchOutOfTime()
+	{
+		if (searchAborted)
+			return true;
+		
+		if (--nodesUntilClockCheck > 0)
+			return false;
+		
+		nodesUntilClockCheck = NODES_BETWEEN_CLOCK_CHECKS;
+		searchAborted = stopRequested || nodesSearched >= searchNodeLimit
+				|| (searchDeadline != NO_DEADLINE && System.nanoTime() - searchDeadline >= 0);
+		return searchAborted;
+	}
+	
+	/**
+	 * Counts the cells on the whole board that are still empty.
+	 * @return	An int representing the number of empty cells (0-81).
+	 */
+	public int getNumberOfEmptyCells()
+	{
+		int numberOfEmptyCells = 0;
+		for (int blockNumber = 1; blockNumber <= NUM_BLOCKS; blockNumber++)
+			numberOfEmptyCells += Integer.bitCount(board.get(blockNumber).getEmptyPositions());
+		return numberOfEmptyCells;
+	}
+	
 	/**
 	 * Prints the state of the current game to stdout. 
 	 */
@@ -0,0 +1,646 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * A stand-in for the game server, which speaks the same line protocol so that the agent can be
+ * tested end to end, including the socket, Controller and TCPConnection, on one machine.
+ *
+ * Each connection is one player in one game, as with the real server. The server referees games
+ * either between pairs of connections, or between each connection and a scripted opponent that
+ * plays random moves. Every game runs on its own thread, so many can be played at once.
+ *
+ * A game is played as follows. Both players are sent start(x). or start(o). The server makes X's
+ * first move at random, and O is sent second_move(block,position). X is then sent
+ * third_move(block,position,reply), and after that each player is sent next_move(position)
+ * with the opponent's last move. Each player replies with the position of their move on a line
+ * of its own. At the end of the game the winner is sent win., the loser last_move(position).
+ * and loss., or both are sent draw., and then both are sent end. A player that makes an invalid
+ * move, disconnects or takes longer than the move timeout loses.
+ *
+ * The time from sending each message that asks for a move to receiving the reply is recorded,
+ * so the server reports percentiles of the time taken by the whole round trip.
+ *
+ * @author Barry Skalrud
+ *
+ */
+public class GameServer {
+	
+	/**
+	 * Who the players connecting to the server play against.
+	 */
+	public enum Opponent {
+		/* Each connection plays the next connection */
+		AGENT,
+		/* Each connection plays a scripted opponent that makes random moves */
+		RANDOM
+	}
+	
+	public final static int DEFAULT_MOVE_TIMEOUT_MILLIS = 30000;
+	
+	private final static int REPORT_INTERVAL_SECONDS = 10;
+	private final static Charset ASCII = Charset.forName("US-ASCII");
+	
+	/* A bitboard of the positions 1 to 9, as used by Block */
+	private final static int ALL_POSITIONS = 0x3FE;
+	
+	private final static String USAGE = "Usage: GameServer [-port n] [-opponent agent|random] [-games n] "
+			+ "[-timeout millis] [-seed n] [-spawn n] [-agent \"options\"]";
+	
+	private int port;
+	private Opponent opponent = Opponent.AGENT;
+	private int numberOfGames = 0;
+	private int moveTimeoutMillis = DEFAULT_MOVE_TIMEOUT_MILLIS;
+	private Random random = new Random();
+	
+	private ServerSocket serverSocket;
+	private ExecutorService sessionPool;
+	private MultiGameAgent agents;
+	private volatile boolean stopped = false;
+	private CountDownLatch gamesLeft;
+	private long startTime;
+	
+	/* The connection waiting for an opponent, when connections play each other */
+	private Seat waitingSeat;
+	
+	private AtomicInteger gamesStarted = new AtomicInteger();
+	private AtomicInteger xWins = new AtomicInteger();
+	private AtomicInteger oWins = new AtomicInteger();
+	private AtomicInteger draws = new AtomicInteger();
+	private AtomicInteger forfeits = new AtomicInteger();
+	private LatencyHistogram moveLatencies = new LatencyHistogram();
+	
+	/**
+	 * Creates a server that will listen on the given port once it is started.
+	 * @param inPort	The port to listen on, or 0 for any free port
+	 */
+	public GameServer(int inPort)
+	{
+		port = inPort;
+	}
+	
+	public void setOpponent(Opponent inOpponent)
+	{
+		opponent = inOpponent;
+	}
+	
+	/**
+	 * Sets the number of games to play, after which no more connections are accepted.
+	 * @param inNumberOfGames	The number of games, or 0 for no limit
+	 */
+	public void setNumberOfGames(int inNumberOfGames)
+	{
+		numberOfGames = inNumberOfGames;
+	}
+	
+	public void setMoveTimeout(int inMoveTimeoutMillis)
+	{
+		moveTimeoutMillis = inMoveTimeoutMillis;
+	}
+	
+	/**
+	 * Sets the seed of the random numbers used for the first moves and by the scripted opponent.
+	 * @param inSeed	The seed
+	 */
+	public void setSeed(long inSeed)
+	{
+		random = new Random(inSeed);
+	}
+	
+	/**
+	 * Starts listening for connections on a background thread.
+	 * @throws IOException	If the port can't be listened on
+	 */
+	public void start() throws IOException
+	{
+		serverSocket = new ServerSocket(port);
+		port = serverSocket.getLocalPort();
+		sessionPool = Executors.newCachedThreadPool();
+		gamesLeft = new CountDownLatch(numberOfGames);
+		startTime = System.nanoTime();
+		
+		Thread acceptThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				acceptConnections();
+			}
+		}, "game-server");
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+	}
+	
+	/**
+	 * Returns the port the server is listening on, which is only known once it has started if
+	 * it was created with port 0.
+	 * @return	An int representing the port.
+	 */
+	public int getPort()
+	{
+		return port;
+	}
+	
+	private void acceptConnections()
+	{
+		while (!stopped && (numberOfGames == 0 || gamesStarted.get() < numberOfGames))
+		{
+			Socket socket;
+			try
+			{
+				socket = serverSocket.accept();
+			}
+			catch (IOException e)
+			{
+				// The server socket was closed by stop
+				return;
+			}
+			
+			Seat seat;
+			try
+			{
+				socket.setTcpNoDelay(true);
+				socket.setSoTimeout(moveTimeoutMillis);
+				seat = new SocketSeat(socket);
+			}
+			catch (IOException e)
+			{
+				closeQuietly(socket);
+				continue;
+			}
+			
+			if (opponent == Opponent.RANDOM)
+			{
+				startGame(seat, new RandomSeat(random.nextLong()));
+			}
+			else
+			{
+				synchronized (this)
+				{
+					if (waitingSeat == null)
+					{
+						waitingSeat = seat;
+						continue;
+					}
+					startGame(waitingSeat, seat);
+					waitingSeat = null;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Starts a game on its own thread between the given players, who are given X and O at random.
+	 */
+	private void startGame(Seat firstSeat, Seat secondSeat)
+	{
+		gamesStarted.incrementAndGet();
+		
+		long gameSeed = random.nextLong();
+		final GameSession session = random.nextBoolean() ? new GameSession(firstSeat, secondSeat, gameSeed)
+				: new GameSession(secondSeat, firstSeat, gameSeed);
+		sessionPool.execute(new Runnable() {
+			@Override
+			public void run() {
+				session.play();
+				gamesLeft.countDown();
+			}
+		});
+	}
+	
+	/**
+	 * Waits until the number of games given by setNumberOfGames have been played.
+	 * @throws InterruptedException	If the thread is interrupted while waiting
+	 */
+	public void awaitGames() throws InterruptedException
+	{
+		gamesLeft.await();
+	}
+	
+	/**
+	 * Stops accepting connections and closes the connection waiting for an opponent, if there is
+	 * one. Games that are being played are allowed to finish. If agents were started with
+	 * startAgents, this waits for them to finish their games and then shuts down their searches.
+	 */
+	public void stop()
+	{
+		stopped = true;
+		
+		try
+		{
+			serverSocket.close();
+		}
+		catch (IOException e)
+		{
+			// The socket is being closed anyway
+		}
+		
+		synchronized (this)
+		{
+			if (waitingSeat != null)
+				waitingSeat.close();
+			waitingSeat = null;
+		}
+		
+		sessionPool.shutdown();
+		
+		if (agents != null)
+		{
+			try
+			{
+				agents.awaitSessions();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/**
+	 * Starts agents in this process that connect to this server, each playing one game after
+	 * another until the server stops, see MultiGameAgent. This lets the server be load tested
+	 * without running an agent process for every game.
+	 * @param numberOfAgents	The number of agents, i.e. sessions, to start
+	 * @param agentOptions		The search options of each agent, see Agent.parseSearchOptions
+	 * @throws IllegalArgumentException	If the options are not valid
+	 * @throws IOException	If the agents' NioTransport can't be started
+	 */
+	public void startAgents(int numberOfAgents, String[] agentOptions) throws IOException
+	{
+		agents = new MultiGameAgent(port, agentOptions);
+		agents.start(numberOfAgents);
+	}
+	
+	/**
+	 * Returns the results and move times so far on one line.
+	 * @return	A String with the games played, their results and percentiles of the move times
+	 */
+	public String getStatus()
+	{
+		int gamesFinished = xWins.get() + oWins.get() + draws.get();
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		return String.format("games=%d games/s=%.2f X=%d O=%d draws=%d forfeits=%d moves=%d "
+				+ "p50=%.2fms p99=%.2fms max=%.2fms",
+				gamesFinished, gamesFinished / seconds, xWins.get(), oWins.get(), draws.get(), forfeits.get(),
+				moveLatencies.getCount(), moveLatencies.getPercentileMicros(0.5) / 1000.0,
+				moveLatencies.getPercentileMicros(0.99) / 1000.0, moveLatencies.getPercentileMicros(1) / 1000.0);
+	}
+	
+	public int getGamesFinished()
+	{
+		return xWins.get() + oWins.get() + draws.get();
+	}
+	
+	/**
+	 * Returns the times from asking a connected player for a move to receiving it.
+	 * @return	The LatencyHistogram the move times are recorded in
+	 */
+	public LatencyHistogram getMoveLatencies()
+	{
+		return moveLatencies;
+	}
+	
+	private static void closeQuietly(Socket socket)
+	{
+		try
+		{
+			socket.close();
+		}
+		catch (IOException e)
+		{
+			// The socket is being closed anyway
+		}
+	}
+	
+	/**
+	 * A player in a game, which is sent the messages of the protocol and asked for moves.
+	 */
+	private static abstract class Seat {
+		
+		abstract void send(String message) throws IOException;
+		
+		/**
+		 * Sends a message asking for a move and returns the move.
+		 * @param message			The message to send
+		 * @param emptyPositions	A bitboard of the positions that can be played in
+		 * @return					The position of the move, or 0 if the reply was not a position
+		 * @throws IOException		If the player disconnected or took too long
+		 */
+		abstract int requestMove(String message, int emptyPositions) throws IOException;
+		
+		void close()
+		{
+		}
+	}
+	
+	/**
+	 * A player connected to the server.
+	 */
+	private class SocketSeat extends Seat {
+		
+		private Socket socket;
+		private BufferedReader input;
+		private OutputStream output;
+		
+		SocketSeat(Socket inSocket) throws IOException
+		{
+			socket = inSocket;
+			input = new BufferedReader(new InputStreamReader(socket.getInputStream(), ASCII));
+			output = socket.getOutputStream();
+		}
+		
+		@Override
+		void send(String message) throws IOException
+		{
+			output.write((message + '\n').getBytes(ASCII));
+			output.flush();
+		}
+		
+		@Override
+		int requestMove(String message, int emptyPositions) throws IOException
+		{
+			long startTime = System.nanoTime();
+			send(message);
+			String reply = input.readLine();
+			if (reply == null)
+				throw new SocketException("Player disconnected");
+			moveLatencies.recordNanos(System.nanoTime() - startTime);
+			
+			reply = reply.trim();
+			if (reply.length() != 1 || reply.charAt(0) < '1' || reply.charAt(0) > '9')
+				return 0;
+			return reply.charAt(0) - '0';
+		}
+		
+		@Override
+		void close()
+		{
+			closeQuietly(socket);
+		}
+	}
+	
+	/**
+	 * A scripted opponent, which plays a random empty position.
+	 */
+	private static class RandomSeat extends Seat {
+		
+		private Random random;
+		
+		RandomSeat(long seed)
+		{
+			random = new Random(seed);
+		}
+		
+		@Override
+		void send(String message)
+		{
+		}
+		
+		@Override
+		int requestMove(String message, int emptyPositions)
+		{
+			int moveIndex = random.nextInt(Integer.bitCount(emptyPositions));
+			for (int position = 1; position <= 9; position++)
+			{
+				if ((emptyPositions & (1 << position)) != 0 && moveIndex-- == 0)
+					return position;
+			}
+			return 0;
+		}
+	}
+	
+	/**
+	 * A game between two players, which keeps its own board and checks every move.
+	 */
+	private class GameSession {
+		
+		private final static int X = 0;
+		private final static int O = 1;
+		
+		private Seat[] seats;
+		private Random random;
+		
+		/* Bitboards of the positions taken by each player in each block, indexed by [player][block] */
+		private int[][] positions = new int[2][10];
+		
+		GameSession(Seat xSeat, Seat oSeat, long seed)
+		{
+			seats = new Seat[] {xSeat, oSeat};
+			random = new Random(seed);
+		}
+		
+		void play()
+		{
+			try
+			{
+				seats[X].send("start(x).");
+				seats[O].send("start(o).");
+			}
+			catch (IOException e)
+			{
+				finish(-1, 0, true);
+				return;
+			}
+			
+			// The server makes X's first move
+			int firstBlock = random.nextInt(9) + 1;
+			int firstPosition = random.nextInt(9) + 1;
+			positions[X][firstBlock] |= 1 << firstPosition;
+			
+			String message = "second_move(" + firstBlock + "," + firstPosition + ").";
+			int blockToPlayIn = firstPosition;
+			int player = O;
+			
+			for (int moveNumber = 2; ; moveNumber++)
+			{
+				int emptyPositions = ALL_POSITIONS & ~(positions[X][blockToPlayIn] | positions[O][blockToPlayIn]);
+				if (emptyPositions == 0)
+				{
+					finish(-1, 0, false);
+					return;
+				}
+				
+				int move;
+				try
+				{
+					move = seats[player].requestMove(message, emptyPositions);
+				}
+				catch (IOException e)
+				{
+					move = 0;
+				}
+				
+				if ((emptyPositions & (1 << move)) == 0)
+				{
+					finish(1 - player, 0, true);
+					return;
+				}
+				
+				positions[player][blockToPlayIn] |= 1 << move;
+				if (BlockStateTable.isWinningPositions(positions[player][blockToPlayIn]))
+				{
+					finish(player, move, false);
+					return;
+				}
+				
+				message = moveNumber == 2 ? "third_move(" + firstBlock + "," + firstPosition + "," + move + ")."
+						: "next_move(" + move + ").";
+				blockToPlayIn = move;
+				player = 1 - player;
+			}
+		}
+		
+		/**
+		 * Tells the players the result, closes their connections and counts the result.
+		 * @param winner	X or O, or -1 for a draw
+		 * @param lastMove	The winning move, which the loser hasn't been sent, or 0 if there isn't one
+		 * @param forfeit	True if the game ended because a player broke the protocol
+		 */
+		private void finish(int winner, int lastMove, boolean forfeit)
+		{
+			try
+			{
+				if (winner == -1)
+				{
+					sendQuietly(seats[X], "draw.");
+					sendQuietly(seats[O], "draw.");
+				}
+				else
+				{
+					if (lastMove != 0)
+						sendQuietly(seats[1 - winner], "last_move(" + lastMove + ").");
+					sendQuietly(seats[1 - winner], "loss.");
+					sendQuietly(seats[winner], "win.");
+				}
+				sendQuietly(seats[X], "end.");
+				sendQuietly(seats[O], "end.");
+			}
+			finally
+			{
+				seats[X].close();
+				seats[O].close();
+			}
+			
+			if (forfeit)
+				forfeits.incrementAndGet();
+			if (winner == X)
+				xWins.incrementAndGet();
+			else if (winner == O)
+				oWins.incrementAndGet();
+			else
+				draws.incrementAndGet();
+		}
+		
+		private void sendQuietly(Seat seat, String message)
+		{
+			try
+			{
+				seat.send(message);
+			}
+			catch (IOException e)
+			{
+				// The player has gone, so doesn't need to know the result
+			}
+		}
+	}
+	
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		GameServer server;
+		int numberOfAgents = 0;
+		String[] agentOptions = {"-time", "100"};
+		
+		try
+		{
+			int port = 0;
+			Opponent opponent = Opponent.AGENT;
+			int numberOfGames = 0;
+			int moveTimeoutMillis = DEFAULT_MOVE_TIMEOUT_MILLIS;
+			Long seed = null;
+			
+			for (int argument = 0; argument < args.length; argument++)
+			{
+				String option = args[argument];
+				if (argument + 1 >= args.length)
+					throw new IllegalArgumentException("Missing value for " + option);
+				String value = args[++argument];
+				
+				switch (option)
+				{
+				case "-port":
+					port = Integer.valueOf(value);
+					break;
+				case "-opponent":
+					if (value.equals("agent"))
+						opponent = Opponent.AGENT;
+					else if (value.equals("random"))
+						opponent = Opponent.RANDOM;
+					else
+						throw new IllegalArgumentException("Unknown opponent " + value);
+					break;
+				case "-games":
+					numberOfGames = Integer.valueOf(value);
+					break;
+				case "-timeout":
+					moveTimeoutMillis = Integer.valueOf(value);
+					break;
+				case "-seed":
+					seed = Long.valueOf(value);
+					break;
+				case "-spawn":
+					numberOfAgents = Integer.valueOf(value);
+					break;
+				case "-agent":
+					agentOptions = value.trim().isEmpty() ? new String[0] : value.trim().split("\\s+");
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option " + option);
+				}
+			}
+			
+			server = new GameServer(port);
+			server.setOpponent(opponent);
+			server.setNumberOfGames(numberOfGames);
+			server.setMoveTimeout(moveTimeoutMillis);
+			if (seed != null)
+				server.setSeed(seed);
+			server.start();
+			
+			if (numberOfAgents > 0)
+				server.startAgents(numberOfAgents, agentOptions);
+		}
+		catch (IllegalArgumentException e)
+		{
+			// This includes a NumberFormatException from an invalid number
+			System.out.println(e.getMessage());
+			System.out.println(USAGE);
+			return;
+		}
+		
+		System.out.println("Listening on port " + server.getPort());
+		
+		// With no limit on the games, the server runs until it is killed
+		while (server.numberOfGames == 0 || !server.gamesLeft.await(REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS))
+		{
+			if (server.numberOfGames == 0)
+				Thread.sleep(TimeUnit.SECONDS.toMillis(REPORT_INTERVAL_SECONDS));
+			System.out.println(server.getStatus());
+		}
+		
+		server.stop();
+		System.out.println(server.getStatus());
+	}
+}
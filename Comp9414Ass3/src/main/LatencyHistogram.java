@@ -0,0 +1,100 @@
+package main;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts how long something took, e.g. deciding on a move, so that percentiles of the times
+ * can be found without keeping every time.
+ *
+ * The times are recorded in microseconds, in buckets whose width grows with the time. Times
+ * below 32 microseconds each have their own bucket. Above that, each power of two is split into
+ * 16 buckets, so a percentile is never out by more than about 6%. Recording is a single atomic
+ * increment, so any number of threads can record times while another reads the percentiles.
+ *
+ * @author Barry Skalrud
+ *
+ */
+public class LatencyHistogram {
+	
+	private final static int SUB_BUCKET_BITS = 4;
+	private final static int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private final static int NUMBER_OF_BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	
+	private AtomicLongArray bucketCounts = new AtomicLongArray(NUMBER_OF_BUCKETS);
+	
+	/**
+	 * Records a time.
+	 * @param nanos		The time, in nanoseconds
+	 */
+	public void recordNanos(long nanos)
+	{
+		bucketCounts.incrementAndGet(getBucket(Math.max(0, nanos / 1000)));
+	}
+	
+	/**
+	 * Returns the number of times recorded.
+	 * @return	A long representing the number of times.
+	 */
+	public long getCount()
+	{
+		long count = 0;
+		for (int bucket = 0; bucket < NUMBER_OF_BUCKETS; bucket++)
+			count += bucketCounts.get(bucket);
+		return count;
+	}
+	
+	/**
+	 * Returns the time that the given fraction of the recorded times are no longer than,
+	 * e.g. 0.99 for the 99th percentile.
+	 * @param fraction	The fraction of the times, from 0 to 1
+	 * @return			The largest time in the bucket the percentile falls in, in microseconds,
+	 * or 0 if no times have been recorded.
+	 */
+	public long getPercentileMicros(double fraction)
+	{
+		long count = getCount();
+		if (count == 0)
+			return 0;
+		
+		// The rank of the time wanted, counting from 1
+		long rank = Math.max(1, (long) Math.ceil(fraction * count));
+		for (int bucket = 0; bucket < NUMBER_OF_BUCKETS; bucket++)
+		{
+			rank -= bucketCounts.get(bucket);
+			if (rank <= 0)
+				return getBucketStart(bucket + 1) - 1;
+		}
+		
+		return getBucketStart(NUMBER_OF_BUCKETS) - 1;
+	}
+	
+	/**
+	 * Forgets all of the recorded times. Times recorded while this is running may or may not
+	 * be kept.
+	 */
+	public void clear()
+	{
+		for (int bucket = 0; bucket < NUMBER_OF_BUCKETS; bucket++)
+			bucketCounts.set(bucket, 0);
+	}
+	
+	private static int getBucket(long micros)
+	{
+		if (micros < 2 * SUB_BUCKETS)
+			return (int) micros;
+		
+		// The shift that leaves the highest set bit and the SUB_BUCKET_BITS bits below it
+		int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) ((micros >>> shift) & (SUB_BUCKETS - 1));
+	}
+	
+	private static long getBucketStart(int bucket)
+	{
+		if (bucket < 2 * SUB_BUCKETS)
+			return bucket;
+		
+		int shift = bucket / SUB_BUCKETS - 1;
+		long start = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return start < 0 ? Long.MAX_VALUE : start;
+	}
+}
@@ -0,0 +1,254 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Performs an iterative deepening alpha-beta search on several threads in the Lazy SMP style. 
+ * 
+ * Every thread searches the whole tree from the root, each on its own copy of the game. The 
+ * threads don't talk to each other directly; they only share the player's transposition table, 
+ * which can be used without locking. To stop the threads from all doing the same work, half of 
+ * the helper threads search one level deeper than the main thread and each helper varies the 
+ * order in which it searches moves. The results a thread stores in the table then let the 
+ * other threads cut off parts of the tree they haven't got to yet.
+ * 
+ * The move returned is the one found by the deepest search that finished, preferring the main 
+ * thread when several threads finished the same depth. 
+ * 
+ * @author Barry Skalrud
+ *
+ */
+public class LazySmpSearch {
+
+	private int numberOfThreads;
+	private ExecutorService helperPool;
+	private int depthReached;
+	private int bestScore;
+	private long nodesSearched;
+	
+	/**
+	 * Creates a Lazy SMP search that runs on the given number of threads, i.e. the calling 
+	 * thread and numberOfThreads - 1 helper threads. 
+	 * @param inNumberOfThreads	The number of threads to search with
+	 */
+	public LazySmpSearch(int inNumberOfThreads)
+	{
+		numberOfThreads = inNumberOfThreads;
+		helperPool = Executors.newFixedThreadPool(Math.max(1, numberOfThreads - 1), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread helperThread = new Thread(runnable, "lazy-smp-helper");
+				helperThread.setDaemon(true);
+				return helperThread;
+			}
+		});
+	}
+	
+	/**
+	 * Searches the given game, deepening the search one level at a time. 
+	 * @param rootState		The game to be searched, with the player controlled by this program to move. 
+	 * It is copied, not changed.
+	 * @param maxDepth		The deepest search to perform
+	 * @param deadline		The time at which the search should be abandoned, as a value of System.nanoTime, 
+	 * or Game.NO_DEADLINE
+	 * @return				The best move found, or 0 if no search finished before the deadline. 
+	 */
+	public int search(Game rootState, int maxDepth, long deadline)
+	{
+		List<IterativeSearch> searches = new ArrayList<IterativeSearch>();
+		for (int threadNumber = 0; threadNumber < numberOfThreads; threadNumber++)
+			searches.add(new IterativeSearch(rootState, threadNumber, maxDepth, deadline));
+		
+		List<Future<?>> helperResults = new ArrayList<Future<?>>();
+		for (int threadNumber = 1; threadNumber < numberOfThreads; threadNumber++)
+			helperResults.add(helperPool.submit(searches.get(threadNumber)));
+		
+		// The calling thread is the main thread. Once it's finished the helpers are no longer needed.
+		searches.get(0).run();
+		
+		for (IterativeSearch search : searches)
+			search.searchState.requestSearchStop();
+		
+		for (Future<?> helperResult : helperResults)
+		{
+			try 
+			{
+				helperResult.get();
+			} 
+			catch (InterruptedException e) 
+			{
+				Thread.currentThread().interrupt();
+			} 
+			catch (ExecutionException e) 
+			{
+				throw new IllegalStateException("Lazy SMP helper thread failed", e.getCause());
+			}
+		}
+		
+		int bestMoveToMake = 0;
+		depthReached = 0;
+		bestScore = 0;
+		nodesSearched = 0;
+		for (IterativeSearch search : searches)
+		{
+			nodesSearched += search.searchState.getNodesSearched();
+			if (search.depthCompleted > depthReached)
+			{
+				depthReached = search.depthCompleted;
+				bestMoveToMake = search.bestMoveToMake;
+				bestScore = search.bestScore;
+			}
+		}
+		
+		return bestMoveToMake;
+	}
+	
+	/**
+	 * Returns the depth of the search that the move returned by the last search came from.
+	 * @return	An int representing the depth reached.
+	 */
+	public int getDepthReached()
+	{
+		return depthReached;
+	}
+	
+	/**
+	 * Returns the score of the move returned by the last search, from the search it came from.
+	 * @return	An int representing the score of the best move.
+	 */
+	public int getBestScore()
+	{
+		return bestScore;
+	}
+	
+	/**
+	 * Returns the total number of nodes visited by all of the threads in the last search.
+	 * @return	A long representing the number of nodes searched.
+	 */
+	public long getNodesSearched()
+	{
+		return nodesSearched;
+	}
+	
+	/**
+	 * Stops the helper threads used by this search.
+	 */
+	public void shutdown()
+	{
+		helperPool.shutdownNow();
+	}
+	
+	/**
+	 * Measures how the number of nodes searched per second scales as threads are added. The 
+	 * given position is searched for the given amount of time with 1, 2, ... maxThreads threads, 
+	 * each time starting with an empty transposition table. 
+	 * @param playersMark			The mark of the player to search for
+	 * @param moves					The moves leading to the position to search, as pairs of block and position. 
+	 * The player with the given mark must have the next move after them. 
+	 * @param maxThreads			The largest number of threads to measure
+	 * @param millisPerMeasurement	How long to search for with each number of threads
+	 * @return						The nodes per second, indexed by number of threads (index 0 is unused).
+	 */
+	public static double[] measureNodesPerSecond(PositionState playersMark, int[][] moves, int maxThreads, long millisPerMeasurement)
+	{
+		double[] nodesPerSecond = new double[maxThreads + 1];
+		
+		for (int threads = 1; threads <= maxThreads; threads++)
+		{
+			Player player = new Player();
+			player.initiateGame(playersMark);
+			
+			Game position = player.getCurrentState();
+			for (int[] move : moves)
+				position.setMove(position.whoHasNextMove, move[0], move[1]);
+			
+			LazySmpSearch lazySmpSearch = new LazySmpSearch(threads);
+			long startTime = System.nanoTime();
+			lazySmpSearch.search(new Game(position, playersMark), position.getNumberOfEmptyCells() - 1, 
+					startTime + millisPerMeasurement * 1000000L);
+			long elapsedTime = System.nanoTime() - startTime;
+			lazySmpSearch.shutdown();
+			
+			nodesPerSecond[threads] = lazySmpSearch.getNodesSearched() * 1e9 / elapsedTime;
+		}
+		
+		return nodesPerSecond;
+	}
+	
+	/**
+	 * Prints the nodes per second scaling from 1 to N threads, to help with sizing instances.
+	 * Usage: LazySmpSearch [maxThreads] [millisPerMeasurement]
+	 * @param args	The command line arguments
+	 */
+	public static void main(String[] args)
+	{
+		int maxThreads = args.length > 0 ? Integer.valueOf(args[0]) : Runtime.getRuntime().availableProcessors();
+		long millisPerMeasurement = args.length > 1 ? Long.valueOf(args[1]) : 5000;
+		
+		// A position a few moves into the game, with O to move
+		int[][] moves = {{5, 5}, {5, 1}, {1, 9}, {9, 5}, {5, 9}};
+		double[] nodesPerSecond = measureNodesPerSecond(PositionState.O, moves, maxThreads, millisPerMeasurement);
+		
+		System.out.println("threads, nodes/sec, speedup");
+		for (int threads = 1; threads <= maxThreads; threads++)
+			System.out.println(threads + ", " + Math.round(nodesPerSecond[threads]) + ", " 
+					+ String.format("%.2f", nodesPerSecond[threads] / nodesPerSecond[1]));
+	}
+	
+	
+	/**
+	 * The iterative deepening search run by a single thread.
+	 */
+	private static class IterativeSearch implements Runnable
+	{
+		private Game searchState;
+		private int threadNumber;
+		private int maxDepth;
+		private int depthCompleted = 0;
+		private int bestMoveToMake = 0;
+		private int bestScore = 0;
+		
+		public IterativeSearch(Game rootState, int inThreadNumber, int inMaxDepth, long deadline)
+		{
+			searchState = new Game(rootState, rootState.whoHasNextMove);
+			searchState.setSearchDeadline(deadline);
+			searchState.setMoveOrderVariation(inThreadNumber);
+			threadNumber = inThreadNumber;
+			maxDepth = inMaxDepth;
+		}
+		
+		@Override
+		public void run()
+		{
+			searchIteratively();
+			searchState.getPlayerRepresentedByThisProgram().getSearchStatistics().addSearchCounts(searchState);
+		}
+		
+		private void searchIteratively()
+		{
+			// Odd numbered helpers search one level deeper than the main thread
+			int depthOffset = threadNumber % 2;
+			
+			for (int depth = 1 + depthOffset; depth <= maxDepth; depth++)
+			{
+				int moveFound = searchState.searchRootMoves(depth, searchState.getOrderedRootMoves(bestMoveToMake));
+				if (searchState.isSearchAborted())
+					break;
+				
+				if (moveFound != 0)
+				{
+					bestMoveToMake = moveFound;
+					depthCompleted = depth;
+					bestScore = searchState.getRootScore();
+					searchState.storeSearchResult(depth + 1, searchState.getRootScore(), TranspositionTable.EXACT, moveFound);
+				}
+			}
+		}
+	}
+}
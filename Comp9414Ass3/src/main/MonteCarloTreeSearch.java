@@ -0,0 +1,554 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses moves using Monte Carlo tree search with the UCT selection rule. Unlike the alpha-beta
+ * search this doesn't use the heuristic at all: positions are valued by playing random games
+ * from them to the end, which works better than a shallow alpha-beta search early in the game
+ * when there are many moves to consider.
+ *
+ * The tree is held in a fixed size pool of parallel arrays indexed by node number, so no object
+ * is created for a node. The children of a node are stored next to each other, so a node only
+ * needs the index of its first child and the number of children. A node is only expanded once
+ * it has been visited a few times, which keeps the tree small enough to fit in the pool for the
+ * whole of a move. When the pool is full, the leaves are no longer expanded but the playouts
+ * carry on.
+ *
+ * The tree is kept between moves. At the start of a search the position being searched is looked
+ * for among the grandchildren of the last position searched, i.e. after this player's move and
+ * the opponent's reply, and if it is found the search carries on from that node.
+ *
+ * Several threads can search the same tree at once. The visits and rewards of each node are
+ * updated atomically, and a node is expanded by whichever thread claims it first. A thread adds
+ * its visit to each node on the way down, before the result of its playout is known, so until
+ * the result is added the visit counts as a loss. This virtual loss steers the other threads
+ * towards different parts of the tree.
+ *
+ * @author Barry Skalrud
+ *
+ */
+public class MonteCarloTreeSearch implements SearchEngine {
+	
+	public final static int DEFAULT_MAX_NODES = 1 << 20;
+	
+	/* The exploration constant of UCT, i.e. sqrt(2) */
+	private final static double EXPLORATION = 1.41;
+	
+	/* The number of times a leaf is visited before its children are added to the tree */
+	private final static int EXPANSION_VISITS = 8;
+	
+	/* Rewards are counted in half points, so that a draw is worth a whole number */
+	private final static int WIN_REWARD = 2;
+	private final static int DRAW_REWARD = 1;
+	
+	/* The value of firstChildren for a leaf that is being expanded by another thread */
+	private final static int EXPANDING = -1;
+	
+	/* The pool is cleared rather than reused once it is this full at the start of a search */
+	private final static int REUSE_LIMIT_DIVISOR = 4;
+	
+	private final static int PLAYOUTS_BETWEEN_CLOCK_CHECKS = 64;
+	private final static int ALL_POSITIONS = 0x3FE;
+	
+	private int numberOfThreads;
+	private ExecutorService helperPool;
+	
+	/* The node pool. Node n is the position after the move nodeMoves[n] is made, and its children
+	 * are nodes firstChildren[n] to firstChildren[n] + numberOfChildren[n] - 1. A firstChildren
+	 * value of 0 means the node has not been expanded, as node 0 is never a child. Rewards are
+	 * from the point of view of the player who made the move leading to the node.
+	 */
+	private int maxNodes;
+	private byte[] nodeMoves;
+	private byte[] numberOfChildren;
+	private AtomicIntegerArray firstChildren;
+	private AtomicIntegerArray visits;
+	private AtomicIntegerArray rewards;
+	private AtomicInteger nodesUsed = new AtomicInteger();
+	
+	private int rootNode;
+	private Game rootState;
+	private PositionState rootMover;
+	
+	private AtomicLong playoutsCompleted = new AtomicLong();
+	private long maxPlayouts;
+	private long deadline;
+	private volatile boolean stopRequested;
+	
+	/**
+	 * Creates a search that runs on the given number of threads with the default pool size.
+	 * @param inNumberOfThreads	The number of threads to search with
+	 */
+	public MonteCarloTreeSearch(int inNumberOfThreads)
+	{
+		this(inNumberOfThreads, DEFAULT_MAX_NODES);
+	}
+	
+	/**
+	 * Creates a search that runs on the given number of threads, i.e. the calling thread and
+	 * numberOfThreads - 1 helper threads.
+	 * @param inNumberOfThreads	The number of threads to search with
+	 * @param inMaxNodes		The number of nodes in the pool
+	 */
+	public MonteCarloTreeSearch(int inNumberOfThreads, int inMaxNodes)
+	{
+		numberOfThreads = inNumberOfThreads;
+		maxNodes = inMaxNodes;
+		nodeMoves = new byte[maxNodes];
+		numberOfChildren = new byte[maxNodes];
+		firstChildren = new AtomicIntegerArray(maxNodes);
+		visits = new AtomicIntegerArray(maxNodes);
+		rewards = new AtomicIntegerArray(maxNodes);
+		
+		createHelperPool();
+		clear();
+	}
+	
+	private void createHelperPool()
+	{
+		helperPool = Executors.newFixedThreadPool(Math.max(1, numberOfThreads - 1), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread helperThread = new Thread(runnable, "mcts-helper");
+				helperThread.setDaemon(true);
+				return helperThread;
+			}
+		});
+	}
+	
+	/**
+	 * Searches the given game within the given limits. Each playout counts as a node, and the 
+	 * depth is ignored. The score of the result is the share of the playouts through the move 
+	 * chosen that were won, in thousandths, and the depth is the length of the line of most 
+	 * visited moves from the root. 
+	 * @throws IllegalArgumentException	If neither the time nor the nodes are limited
+	 */
+	@Override
+	public SearchResult search(Game position, SearchLimits limits)
+	{
+		if (limits.getTimeMillis() == 0 && limits.getMaxNodes() == 0)
+			throw new IllegalArgumentException("Monte Carlo tree search needs a time or node limit");
+		
+		if (limits.getThreads() != numberOfThreads)
+		{
+			helperPool.shutdownNow();
+			numberOfThreads = limits.getThreads();
+			createHelperPool();
+		}
+		
+		long startTime = System.nanoTime();
+		long deadline = limits.getTimeMillis() == 0 ? Game.NO_DEADLINE : startTime + limits.getTimeMillis() * 1000000L;
+		int move = search(position, deadline, limits.getMaxNodes());
+		position.getPlayerRepresentedByThisProgram().getSearchStatistics().addNodesSearched(playoutsCompleted.get());
+		
+		int score = 0;
+		int depthReached = 0;
+		for (int node = getMostVisitedChild(rootNode); node > 0; node = getMostVisitedChild(node))
+		{
+			if (depthReached++ == 0)
+				score = (int) (1000L * rewards.get(node) / (WIN_REWARD * Math.max(1, visits.get(node))));
+		}
+		
+		return new SearchResult(move, score, depthReached, playoutsCompleted.get(), (System.nanoTime() - startTime) / 1000000);
+	}
+	
+	/**
+	 * Throws away the tree, e.g. at the start of a new game.
+	 */
+	@Override
+	public void clear()
+	{
+		rootState = null;
+		rootNode = 0;
+		nodesUsed.set(1);
+		initialiseNode(rootNode, 0);
+	}
+	
+	/**
+	 * Searches the given game until the deadline passes or the given number of playouts has
+	 * been played.
+	 * @param inRootState	The game to be searched. It is copied, not changed.
+	 * @param inDeadline	The time at which the search should stop, as a value of System.nanoTime,
+	 * or Game.NO_DEADLINE
+	 * @param inMaxPlayouts	The number of playouts to stop after, or 0 for no limit. Note that with
+	 * no limit there must be a deadline.
+	 * @return				The move that was searched the most, or 0 if the game has finished.
+	 */
+	public int search(Game inRootState, long inDeadline, long inMaxPlayouts)
+	{
+		if (inRootState.isTerminalState() || inRootState.getBlock(inRootState.getNextBlockToPlayIn()).getEmptyPositions() == 0)
+			return 0;
+		
+		Game newRootState = new Game(inRootState, inRootState.whoHasNextMove);
+		int reusedNode = findNode(newRootState.getPositionKey());
+		if (reusedNode < 0 || nodesUsed.get() > maxNodes - maxNodes / REUSE_LIMIT_DIVISOR)
+		{
+			clear();
+			reusedNode = rootNode;
+		}
+		
+		rootNode = reusedNode;
+		rootState = newRootState;
+		rootMover = rootState.whoHasNextMove;
+		deadline = inDeadline;
+		maxPlayouts = inMaxPlayouts;
+		playoutsCompleted.set(0);
+		stopRequested = false;
+		
+		List<PlayoutRunner> runners = new ArrayList<PlayoutRunner>();
+		for (int threadNumber = 0; threadNumber < numberOfThreads; threadNumber++)
+			runners.add(new PlayoutRunner(threadNumber));
+		
+		List<Future<?>> helperResults = new ArrayList<Future<?>>();
+		for (int threadNumber = 1; threadNumber < numberOfThreads; threadNumber++)
+			helperResults.add(helperPool.submit(runners.get(threadNumber)));
+		
+		runners.get(0).run();
+		stopRequested = true;
+		
+		for (Future<?> helperResult : helperResults)
+		{
+			try
+			{
+				helperResult.get();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException e)
+			{
+				throw new IllegalStateException("MCTS helper thread failed", e.getCause());
+			}
+		}
+		
+		return getMostVisitedMove();
+	}
+	
+	/**
+	 * Looks for the node of the position with the given key among the last root searched and
+	 * its children and grandchildren.
+	 * @param positionKey	The key of the position, see Game.getPositionKey
+	 * @return				The number of the node, or -1 if it isn't in the tree.
+	 */
+	private int findNode(long positionKey)
+	{
+		if (rootState == null)
+			return -1;
+		if (rootState.getPositionKey() == positionKey)
+			return rootNode;
+		
+		int firstChild = firstChildren.get(rootNode);
+		for (int child = firstChild; firstChild > 0 && child < firstChild + numberOfChildren[rootNode]; child++)
+		{
+			rootState.makeMove(nodeMoves[child]);
+			
+			int firstGrandchild = firstChildren.get(child);
+			int foundNode = -1;
+			if (rootState.getPositionKey() == positionKey)
+				foundNode = child;
+			
+			for (int grandchild = firstGrandchild; foundNode < 0 && firstGrandchild > 0
+					&& grandchild < firstGrandchild + numberOfChildren[child]; grandchild++)
+			{
+				rootState.makeMove(nodeMoves[grandchild]);
+				if (rootState.getPositionKey() == positionKey)
+					foundNode = grandchild;
+				rootState.unmakeMove();
+			}
+			
+			rootState.unmakeMove();
+			if (foundNode >= 0)
+				return foundNode;
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Returns the child of the given node that has been visited the most.
+	 * @param node	The node
+	 * @return		The number of the child, or 0 if the node has no children.
+	 */
+	private int getMostVisitedChild(int node)
+	{
+		int firstChild = firstChildren.get(node);
+		if (firstChild <= 0)
+			return 0;
+		
+		int bestChild = firstChild;
+		for (int child = firstChild + 1; child < firstChild + numberOfChildren[node]; child++)
+			if (visits.get(child) > visits.get(bestChild))
+				bestChild = child;
+		return bestChild;
+	}
+	
+	/**
+	 * Returns the child of the root that has been visited the most.
+	 * @return	The move leading to that child, or 0 if the root has no children.
+	 */
+	private int getMostVisitedMove()
+	{
+		int bestChild = getMostVisitedChild(rootNode);
+		if (bestChild == 0)
+			return 0;
+		
+		if (Agent.debugMode)
+			System.out.println("MCTS: " + playoutsCompleted.get() + " playouts, " + nodesUsed.get() + " nodes, win rate "
+					+ String.format("%.3f", rewards.get(bestChild) / (double) (WIN_REWARD * visits.get(bestChild))));
+		
+		return nodeMoves[bestChild];
+	}
+	
+	private void initialiseNode(int node, int move)
+	{
+		nodeMoves[node] = (byte) move;
+		numberOfChildren[node] = 0;
+		visits.set(node, 0);
+		rewards.set(node, 0);
+		firstChildren.set(node, 0);
+	}
+	
+	/**
+	 * Adds a child to the given node for each move in the block that is to be played in next.
+	 * @param node	The node to expand
+	 * @param state	The position at that node
+	 * @return		True if the node was expanded, false if another thread is expanding it or the
+	 * pool is full.
+	 */
+	private boolean expand(int node, Game state)
+	{
+		if (!firstChildren.compareAndSet(node, 0, EXPANDING))
+			return false;
+		
+		int emptyPositions = state.getBlock(state.getNextBlockToPlayIn()).getEmptyPositions();
+		int childCount = Integer.bitCount(emptyPositions);
+		
+		int firstChild;
+		do
+		{
+			firstChild = nodesUsed.get();
+			if (firstChild + childCount > maxNodes)
+			{
+				firstChildren.set(node, 0);
+				return false;
+			}
+		} while (!nodesUsed.compareAndSet(firstChild, firstChild + childCount));
+		
+		int child = firstChild;
+		for (int position = 1; position <= 9; position++)
+			if ((emptyPositions & (1 << position)) != 0)
+				initialiseNode(child++, position);
+		
+		// Setting the first child publishes the children to the other threads
+		numberOfChildren[node] = (byte) childCount;
+		firstChildren.set(node, firstChild);
+		return true;
+	}
+	
+	/**
+	 * Chooses the child of the given node to visit, using the UCT rule. Children that have not
+	 * been visited are chosen first.
+	 */
+	private int selectChild(int node, int firstChild)
+	{
+		double logParentVisits = Math.log(Math.max(1, visits.get(node)));
+		int bestChild = firstChild;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		
+		for (int child = firstChild; child < firstChild + numberOfChildren[node]; child++)
+		{
+			int childVisits = visits.get(child);
+			if (childVisits == 0)
+				return child;
+			
+			double value = rewards.get(child) / (double) (WIN_REWARD * childVisits)
+					+ EXPLORATION * Math.sqrt(logParentVisits / childVisits);
+			if (value > bestValue)
+			{
+				bestValue = value;
+				bestChild = child;
+			}
+		}
+		
+		return bestChild;
+	}
+	
+	/**
+	 * Determines the result of the last move made in the given game.
+	 * @param state	The game
+	 * @return		The winner's mark if the move completed a line, E if the game is drawn because
+	 * the block to be played in next is full, or null if the game carries on.
+	 */
+	private static PositionState getResultOfLastMove(Game state)
+	{
+		PositionState mover = state.whoHasNextMove == PositionState.X ? PositionState.O : PositionState.X;
+		
+		if (BlockStateTable.isWinningPositions(state.getBlock(state.getLastBlockPlayedIn()).getPositions(mover)))
+			return mover;
+		if (state.getBlock(state.getNextBlockToPlayIn()).getEmptyPositions() == 0)
+			return PositionState.E;
+		return null;
+	}
+	
+	public long getPlayoutsCompleted()
+	{
+		return playoutsCompleted.get();
+	}
+	
+	public int getNodesUsed()
+	{
+		return nodesUsed.get();
+	}
+	
+	@Override
+	public void shutdown()
+	{
+		helperPool.shutdownNow();
+	}
+	
+	
+	/**
+	 * Runs playouts from the root on a single thread until the search is stopped.
+	 */
+	private class PlayoutRunner implements Runnable
+	{
+		private Game state;
+		private int[] path = new int[82];
+		private int[] xPositions = new int[10];
+		private int[] oPositions = new int[10];
+		private long randomState;
+		
+		public PlayoutRunner(int threadNumber)
+		{
+			state = new Game(rootState, rootState.whoHasNextMove);
+			randomState = System.nanoTime() ^ (0x9E3779B97F4A7C15L * (threadNumber + 1));
+		}
+		
+		@Override
+		public void run()
+		{
+			while (!stopRequested)
+			{
+				for (int i = 0; i < PLAYOUTS_BETWEEN_CLOCK_CHECKS; i++)
+					runPlayout();
+				
+				long playouts = playoutsCompleted.addAndGet(PLAYOUTS_BETWEEN_CLOCK_CHECKS);
+				if ((maxPlayouts > 0 && playouts >= maxPlayouts)
+						|| (deadline != Game.NO_DEADLINE && System.nanoTime() - deadline >= 0))
+					stopRequested = true;
+			}
+		}
+		
+		/**
+		 * Walks down the tree to a leaf, plays a random game from there and adds the result to
+		 * every node on the way.
+		 */
+		private void runPlayout()
+		{
+			int node = rootNode;
+			int pathLength = 0;
+			path[pathLength++] = node;
+			visits.incrementAndGet(node);
+			PositionState result = null;
+			
+			while (result == null)
+			{
+				int firstChild = firstChildren.get(node);
+				if (firstChild == 0 && (node == rootNode || visits.get(node) >= EXPANSION_VISITS) && expand(node, state))
+					firstChild = firstChildren.get(node);
+				if (firstChild <= 0)
+					break;
+				
+				node = selectChild(node, firstChild);
+				state.makeMove(nodeMoves[node]);
+				path[pathLength++] = node;
+				visits.incrementAndGet(node);
+				result = getResultOfLastMove(state);
+			}
+			
+			if (result == null)
+				result = playRandomGame();
+			
+			// The first node on the path after the root is the result of a move by the root's player
+			PositionState mover = rootMover;
+			for (int i = 1; i < pathLength; i++)
+			{
+				if (result == mover)
+					rewards.addAndGet(path[i], WIN_REWARD);
+				else if (result == PositionState.E)
+					rewards.addAndGet(path[i], DRAW_REWARD);
+				
+				mover = mover == PositionState.X ? PositionState.O : PositionState.X;
+				state.unmakeMove();
+			}
+		}
+		
+		/**
+		 * Plays random moves from the current state until the game ends, using bitboards rather
+		 * than the game itself so that nothing has to be undone.
+		 * @return	The winner's mark, or E for a draw.
+		 */
+		private PositionState playRandomGame()
+		{
+			for (int blockNumber = 1; blockNumber <= 9; blockNumber++)
+			{
+				xPositions[blockNumber] = state.getBlock(blockNumber).getPositions(PositionState.X);
+				oPositions[blockNumber] = state.getBlock(blockNumber).getPositions(PositionState.O);
+			}
+			
+			int blockNumber = state.getNextBlockToPlayIn();
+			boolean xToMove = state.whoHasNextMove == PositionState.X;
+			
+			while (true)
+			{
+				int emptyPositions = ALL_POSITIONS & ~(xPositions[blockNumber] | oPositions[blockNumber]);
+				if (emptyPositions == 0)
+					return PositionState.E;
+				
+				// Clear a random number of the lowest empty positions, then play in the lowest left
+				for (int skip = nextRandomInt(Integer.bitCount(emptyPositions)); skip > 0; skip--)
+					emptyPositions &= emptyPositions - 1;
+				int position = Integer.numberOfTrailingZeros(emptyPositions);
+				
+				if (xToMove)
+				{
+					xPositions[blockNumber] |= 1 << position;
+					if (BlockStateTable.isWinningPositions(xPositions[blockNumber]))
+						return PositionState.X;
+				}
+				else
+				{
+					oPositions[blockNumber] |= 1 << position;
+					if (BlockStateTable.isWinningPositions(oPositions[blockNumber]))
+						return PositionState.O;
+				}
+				
+				xToMove = !xToMove;
+				blockNumber = position;
+			}
+		}
+		
+		/**
+		 * Returns a random int between 0 and bound - 1 from an xorshift generator, which is much
+		 * cheaper than java.util.Random and doesn't need to be shared between threads.
+		 */
+		private int nextRandomInt(int bound)
+		{
+			randomState ^= randomState << 13;
+			randomState ^= randomState >>> 7;
+			randomState ^= randomState << 17;
+			return (int) ((randomState >>> 33) % bound);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Remembers which moves have caused cutoffs in previous searches, so that they can be 
+ * tried earlier in later ones. 
+ * 
+ * Two kinds of move are remembered. The killer moves are the last two moves that caused a 
+ * cutoff at each ply of the search; a move that refutes one position often refutes its 
+ * siblings too. The history table counts how useful each move has been, indexed by the 
+ * player making the move, the block and the position, weighted by the depth of the search 
+ * it caused a cutoff in. Both are kept across iterations of the search and across moves, 
+ * with the history values being halved at the start of each move so recent searches count 
+ * for more.
+ * 
+ * The tables are shared by all of the threads searching for a player. They are only hints 
+ * for the move ordering, so the updates are not synchronised. 
+ * 
+ * @author Barry Skalrud
+ *
+ */
+public class MoveOrderingHistory {
+
+	private final static int MAX_PLY = 82;
+	private final static int KILLER_MOVES_PER_PLY = 2;
+	
+	/* Once any history value reaches this, they are all halved so they can't overflow */
+	private final static int MAX_HISTORY_VALUE = 1 << 24;
+	
+	private int[][] killerMoves = new int[MAX_PLY][KILLER_MOVES_PER_PLY];
+	
+	/* Indexed by [mark making the move][block number][position] */
+	private int[][][] historyValues = new int[2][10][10];
+	
+	/**
+	 * Returns one of the killer moves for the given ply.
+	 * @param ply			The number of moves from the root of the search
+	 * @param killerIndex	0 for the most recent killer move, 1 for the one before it
+	 * @return				The position of the killer move (1-9), or 0 if there isn't one. 
+	 */
+	public int getKillerMove(int ply, int killerIndex)
+	{
+		return killerMoves[ply][killerIndex];
+	}
+	
+	/**
+	 * Returns the history value of a move.
+	 * @param mark			The mark of the player making the move
+	 * @param blockNumber	The block the move is made in
+	 * @param position		The position the move is made in
+	 * @return				An int that is larger the more useful the move has been. 
+	 */
+	public int getHistoryValue(PositionState mark, int blockNumber, int position)
+	{
+		return historyValues[mark.ordinal()][blockNumber][position];
+	}
+	
+	/**
+	 * Records that a move caused a cutoff. 
+	 * @param ply			The number of moves from the root of the search
+	 * @param mark			The mark of the player making the move
+	 * @param blockNumber	The block the move is made in
+	 * @param position		The position the move is made in
+	 * @param depth			The remaining depth of the search at the point of the cutoff
+	 */
+	public void recordCutoff(int ply, PositionState mark, int blockNumber, int position, int depth)
+	{
+		int[] killerMovesAtPly = killerMoves[ply];
+		if (killerMovesAtPly[0] != position)
+		{
+			killerMovesAtPly[1] = killerMovesAtPly[0];
+			killerMovesAtPly[0] = position;
+		}
+		
+		int[] historyValuesForBlock = historyValues[mark.ordinal()][blockNumber];
+		historyValuesForBlock[position] += depth * depth;
+		if (historyValuesForBlock[position] >= MAX_HISTORY_VALUE)
+			ageHistory();
+	}
+	
+	/**
+	 * Halves every history value, so that older cutoffs count for less than newer ones.
+	 */
+	public void ageHistory()
+	{
+		for (int[][] historyValuesForMark : historyValues)
+			for (int[] historyValuesForBlock : historyValuesForMark)
+				for (int position = 0; position < historyValuesForBlock.length; position++)
+					historyValuesForBlock[position] /= 2;
+	}
+	
+	/**
+	 * Forgets all of the killer moves and history values, e.g. at the start of a new game.
+	 */
+	public void clear()
+	{
+		for (int[] killerMovesAtPly : killerMoves)
+			Arrays.fill(killerMovesAtPly, 0);
+		for (int[][] historyValuesForMark : historyValues)
+			for (int[] historyValuesForBlock : historyValuesForMark)
+				Arrays.fill(historyValuesForBlock, 0);
+	}
+}
@@ -0,0 +1,275 @@
+package main;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Plays many games against the game server at once from one process, rather than starting a
+ * process for each game.
+ *
+ * Each session connects to the server, plays a game with its own Controller and TCPConnection,
+ * and then connects again, until the server stops accepting connections. Sessions mostly wait
+ * for the server, so each runs on a virtual thread when the Java runtime has them, and on an
+ * ordinary thread otherwise.
+ *
+ * The searches for the sessions' moves run on a separate pool with one thread per processor,
+ * so a session that is searching can't hold up the others' reading and sending, and the number
+ * of searches running at once is bounded however many sessions there are. A session waits for
+ * its search to finish before sending the move. Pondering and searching with more than one
+ * thread are not allowed, as each would start threads of its own for every player, outside
+ * the pool.
+ *
+ * Each game is played by a Player that no other session is using, so nothing about a game is
+ * shared. Players are kept when their game ends and given to the next session that needs one,
+ * so there are only as many players, and transposition tables, as the most games played at
+ * once. The tables in BlockStateTable and ZobristKeys are only read once they are built, so
+ * they are shared by every game.
+ *
+ * With NIO, every session's socket is read by the one I/O thread of a shared NioTransport, and
+ * the messages are handled, and the moves searched for and sent, on the search pool. The
+ * sessions then only wait for their games to end.
+ *
+ * @author Barry Skalrud
+ *
+ */
+public class MultiGameAgent {
+	
+	private int port;
+	private String[] searchOptions;
+	private int searchConcurrency = Runtime.getRuntime().availableProcessors();
+	private boolean registerMBeans = false;
+	private boolean useNio = false;
+	
+	private ExecutorService sessionExecutor;
+	private ExecutorService searchExecutor;
+	private NioTransport nioTransport;
+	private boolean virtualThreads;
+	
+	private ConcurrentLinkedQueue<Player> idlePlayers = new ConcurrentLinkedQueue<Player>();
+	private AtomicInteger playersCreated = new AtomicInteger();
+	private AtomicInteger gamesPlayed = new AtomicInteger();
+	
+	/**
+	 * Creates an agent that will play games against the server on the given port.
+	 * @param inPort			The port of the game server on localhost
+	 * @param inSearchOptions	The search options of each player, see Agent.parseSearchOptions
+	 * @throws IllegalArgumentException	If the options are not valid, or ponder or use more 
+	 * than one search thread
+	 */
+	public MultiGameAgent(int inPort, String[] inSearchOptions)
+	{
+		port = inPort;
+		searchOptions = inSearchOptions;
+		
+		// Check the options now, rather than when the first session starts
+		Player checkedPlayer = new Player();
+		Agent.parseSearchOptions(searchOptions, 0, checkedPlayer);
+		if (checkedPlayer.isPonderingEnabled())
+			throw new IllegalArgumentException("-ponder can't be used when playing many games at once");
+		if (checkedPlayer.getSearchThreads() > 1)
+			throw new IllegalArgumentException("-threads can't be more than 1 when playing many games at once");
+	}
+	
+	/**
+	 * Sets the number of searches that can run at once. This should be set before the sessions start.
+	 * @param inSearchConcurrency	The number of search threads
+	 */
+	public void setSearchConcurrency(int inSearchConcurrency)
+	{
+		searchConcurrency = inSearchConcurrency;
+	}
+	
+	/**
+	 * Sets whether the statistics of each player are registered as an MBean when it is created,
+	 * see SearchStatistics.registerMBean. They are named after the port and the player's number.
+	 * @param inRegisterMBeans	True to register the statistics
+	 */
+	public void setRegisterMBeans(boolean inRegisterMBeans)
+	{
+		registerMBeans = inRegisterMBeans;
+	}
+	
+	/**
+	 * Sets whether the sessions connect with a shared NioTransport rather than a TCPConnection
+	 * each. This should be set before the sessions start.
+	 * @param inUseNio	True to use NIO
+	 */
+	public void setUseNio(boolean inUseNio)
+	{
+		useNio = inUseNio;
+	}
+	
+	/**
+	 * Starts the given number of sessions, each of which plays games until the server stops
+	 * accepting connections.
+	 * @param numberOfSessions	The number of games to play at once
+	 * @throws IOException		If NIO is used and its selector can't be opened
+	 */
+	public void start(int numberOfSessions) throws IOException
+	{
+		sessionExecutor = createSessionExecutor();
+		searchExecutor = Executors.newFixedThreadPool(searchConcurrency, new ThreadFactory() {
+			private AtomicInteger threadNumber = new AtomicInteger();
+			
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread searchThread = new Thread(runnable, "search-" + threadNumber.incrementAndGet());
+				searchThread.setDaemon(true);
+				return searchThread;
+			}
+		});
+		
+		if (useNio)
+		{
+			nioTransport = new NioTransport(searchExecutor);
+			nioTransport.start();
+		}
+		
+		for (int session = 0; session < numberOfSessions; session++)
+		{
+			sessionExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					playGames();
+				}
+			});
+		}
+		sessionExecutor.shutdown();
+	}
+	
+	/**
+	 * Waits for every session to finish, then stops the search threads and the players' engines.
+	 * @throws InterruptedException	If the thread is interrupted while waiting
+	 */
+	public void awaitSessions() throws InterruptedException
+	{
+		while (!sessionExecutor.awaitTermination(1, TimeUnit.DAYS))
+		{
+			// Keep waiting
+		}
+		
+		if (nioTransport != null)
+			nioTransport.shutdown();
+		searchExecutor.shutdown();
+		for (Player player = idlePlayers.poll(); player != null; player = idlePlayers.poll())
+			player.shutdown();
+	}
+	
+	private void playGames()
+	{
+		try
+		{
+			while (true)
+			{
+				Player player = idlePlayers.poll();
+				if (player == null)
+					player = createPlayer();
+				
+				try
+				{
+					Controller gameController = new Controller();
+					gameController.setPlayer(player);
+					
+					if (useNio)
+					{
+						// The messages are already handled on the search pool
+						nioTransport.connect(port, gameController).awaitClose();
+					}
+					else
+					{
+						gameController.setSearchExecutor(searchExecutor);
+						new TCPConnection(port, gameController).startServer();
+					}
+					
+					// The server may close a connection without playing a game once it is stopping
+					if (!gameController.isGameActive())
+						gamesPlayed.incrementAndGet();
+				}
+				finally
+				{
+					idlePlayers.add(player);
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			// The server has stopped accepting connections
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private Player createPlayer()
+	{
+		Player player = new Player();
+		Agent.parseSearchOptions(searchOptions, 0, player);
+		
+		int playerNumber = playersCreated.incrementAndGet();
+		if (registerMBeans)
+			player.getTotalSearchStatistics().registerMBean(port + "-" + playerNumber);
+		
+		return player;
+	}
+	
+	/**
+	 * Creates an executor that runs each task on a new virtual thread, if the Java runtime has
+	 * them, and otherwise on a cached pool of ordinary threads. Virtual threads are found by
+	 * reflection, so that this still compiles for older versions of Java.
+	 * @return	The ExecutorService to run the sessions with
+	 */
+	private ExecutorService createSessionExecutor()
+	{
+		try
+		{
+			ExecutorService virtualThreadExecutor = (ExecutorService) Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			virtualThreads = true;
+			return virtualThreadExecutor;
+		}
+		catch (ReflectiveOperationException e)
+		{
+			virtualThreads = false;
+			return Executors.newCachedThreadPool(new ThreadFactory() {
+				private AtomicInteger threadNumber = new AtomicInteger();
+				
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread sessionThread = new Thread(runnable, "session-" + threadNumber.incrementAndGet());
+					sessionThread.setDaemon(true);
+					return sessionThread;
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Returns whether the sessions run on virtual threads, which is only known once they have started.
+	 * @return	True if virtual threads are being used, false if ordinary threads are
+	 */
+	public boolean isUsingVirtualThreads()
+	{
+		return virtualThreads;
+	}
+	
+	public int getGamesPlayed()
+	{
+		return gamesPlayed.get();
+	}
+	
+	/**
+	 * Returns the number of players created, which is the most games that have been played at once.
+	 * @return	An int representing the number of players.
+	 */
+	public int getPlayersCreated()
+	{
+		return playersCreated.get();
+	}
+}
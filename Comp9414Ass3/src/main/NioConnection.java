@@ -0,0 +1,296 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A connection to the game server made by a NioTransport.
+ *
+ * The transport's I/O thread reads the bytes from the server and decodes them into commands with
+ * a ProtocolDecoder, which are queued. Whenever there are commands queued and none being handled,
+ * a task is given to the transport's executor to pass them to the Controller in order, see
+ * ProtocolDecoder.dispatch. The commands are queued as ints in a fixed array, so nothing is
+ * allocated for a message from when it is read until it is handled. Only one message of a connection
+ * is handled at a time, so the Controller and Player are never used by two threads at once, but
+ * the messages of different connections are handled in parallel.
+ *
+ * A move is sent with a single write of a direct buffer that is reused for every move. If the
+ * socket can't take the whole move at once, the rest is sent by the I/O thread.
+ *
+ * @author Barry Skalrud
+ *
+ */
+public class NioConnection implements ServerConnection {
+	
+	/* The server sends at most a few commands before waiting for a move, so more than this are not expected */
+	private final static int MAX_QUEUED_COMMANDS = 16;
+	
+	private NioTransport transport;
+	private SocketChannel channel;
+	private SelectionKey key;
+	private Controller gameController;
+	
+	private ProtocolDecoder decoder = new ProtocolDecoder();
+	
+	/* A circular queue of the decoded commands, guarded by itself */
+	private int[] commands = new int[MAX_QUEUED_COMMANDS];
+	private int firstCommand = 0;
+	private int numberOfCommands = 0;
+	
+	private AtomicBoolean handlingMessages = new AtomicBoolean(false);
+	private AtomicBoolean closed = new AtomicBoolean(false);
+	private CountDownLatch closedLatch = new CountDownLatch(1);
+	
+	/* Set once the server has closed its end, after which the connection is closed once the last messages are handled */
+	private volatile boolean endOfStream = false;
+	
+	/* A move is a digit and a newline */
+	private ByteBuffer moveBuffer = ByteBuffer.allocateDirect(2);
+	
+	private Runnable messageHandler = new Runnable() {
+		@Override
+		public void run() {
+			handleMessages();
+		}
+	};
+	
+	NioConnection(NioTransport inTransport, SocketChannel inChannel, Controller inController)
+	{
+		transport = inTransport;
+		channel = inChannel;
+		gameController = inController;
+		gameController.setServerConnection(this);
+	}
+	
+	SocketChannel getChannel()
+	{
+		return channel;
+	}
+	
+	SelectionKey getKey()
+	{
+		return key;
+	}
+	
+	void setKey(SelectionKey inKey)
+	{
+		key = inKey;
+	}
+	
+	/**
+	 * Reads whatever the server has sent and queues any complete commands. This is only called by
+	 * the transport's I/O thread.
+	 * @param readBuffer	The buffer to read into, which is shared by every connection
+	 */
+	void read(ByteBuffer readBuffer)
+	{
+		int bytesRead;
+		try
+		{
+			readBuffer.clear();
+			bytesRead = channel.read(readBuffer);
+		}
+		catch (IOException e)
+		{
+			bytesRead = -1;
+		}
+		
+		if (bytesRead == -1)
+		{
+			// Stop reading, but let the messages already queued, e.g. end., be handled first
+			key.cancel();
+			endOfStream = true;
+			scheduleMessageHandler();
+			return;
+		}
+		
+		readBuffer.flip();
+		boolean commandsQueued = false;
+		while (readBuffer.hasRemaining())
+		{
+			if (!decoder.decode(readBuffer.get()))
+				continue;
+			
+			if (!addCommand(decoder.getDecodedCommand()))
+			{
+				System.out.println("Too many commands from the server");
+				close();
+				return;
+			}
+			commandsQueued = true;
+		}
+		
+		if (commandsQueued)
+			scheduleMessageHandler();
+	}
+	
+	private boolean addCommand(int command)
+	{
+		synchronized (commands)
+		{
+			if (numberOfCommands == MAX_QUEUED_COMMANDS)
+				return false;
+			
+			commands[(firstCommand + numberOfCommands) % MAX_QUEUED_COMMANDS] = command;
+			numberOfCommands++;
+			return true;
+		}
+	}
+	
+	/**
+	 * Removes the first command from the queue.
+	 * @return	The command, or 0 if there are none
+	 */
+	private int pollCommand()
+	{
+		synchronized (commands)
+		{
+			if (numberOfCommands == 0)
+				return 0;
+			
+			int command = commands[firstCommand];
+			firstCommand = (firstCommand + 1) % MAX_QUEUED_COMMANDS;
+			numberOfCommands--;
+			return command;
+		}
+	}
+	
+	private boolean hasCommands()
+	{
+		synchronized (commands)
+		{
+			return numberOfCommands > 0;
+		}
+	}
+	
+	private void scheduleMessageHandler()
+	{
+		if (handlingMessages.compareAndSet(false, true))
+			transport.getMessageExecutor().execute(messageHandler);
+	}
+	
+	/**
+	 * Passes the queued commands to the controller, in order, on the transport's executor. The
+	 * connection is closed once the game is over.
+	 */
+	private void handleMessages()
+	{
+		while (true)
+		{
+			for (int command = pollCommand(); command != 0 && !closed.get(); command = pollCommand())
+			{
+				try
+				{
+					ProtocolDecoder.dispatch(command, gameController);
+				}
+				catch (IOException | RuntimeException e)
+				{
+					System.out.println("Unable to handle command: " + command + ", " + e);
+					close();
+				}
+				
+				if (!gameController.isGameActive())
+					close();
+			}
+			
+			// Commands may have been queued after the last poll but before the flag was cleared
+			handlingMessages.set(false);
+			if (endOfStream && !hasCommands())
+				close();
+			if (!hasCommands() || closed.get() || !handlingMessages.compareAndSet(false, true))
+				return;
+		}
+	}
+	
+	/**
+	 * Sends a move to the game server.
+	 * @param position	The position of the move, e.g. 4
+	 */
+	@Override
+	public void sendMoveToServer(int position)
+	{
+		if (Agent.debugMode)
+			System.out.println("Message sent to server: " + position);
+		
+		synchronized (moveBuffer)
+		{
+			moveBuffer.clear();
+			moveBuffer.put((byte) ('0' + position)).put((byte) '\n');
+			moveBuffer.flip();
+			
+			try
+			{
+				channel.write(moveBuffer);
+			}
+			catch (IOException e)
+			{
+				System.out.println("Unable to send messgae:" + position + ", to server");
+				close();
+				return;
+			}
+			
+			if (moveBuffer.hasRemaining())
+				transport.addPendingWrite(this);
+		}
+	}
+	
+	/**
+	 * Sends the rest of a move that couldn't be sent all at once. This is only called by the
+	 * transport's I/O thread, when the socket can take more.
+	 */
+	void finishWrite()
+	{
+		synchronized (moveBuffer)
+		{
+			try
+			{
+				channel.write(moveBuffer);
+			}
+			catch (IOException e)
+			{
+				close();
+				return;
+			}
+			
+			if (!moveBuffer.hasRemaining())
+				key.interestOps(SelectionKey.OP_READ);
+		}
+	}
+	
+	/**
+	 * Closes the connection, if it isn't already closed. This can be called from any thread.
+	 */
+	public void close()
+	{
+		if (closed.getAndSet(true))
+			return;
+		
+		try
+		{
+			channel.close();
+		}
+		catch (IOException e)
+		{
+			// The channel is being closed anyway
+		}
+		closedLatch.countDown();
+	}
+	
+	/**
+	 * Waits until the connection has been closed, i.e. the game is over or the server has gone.
+	 * @throws InterruptedException	If the thread is interrupted while waiting
+	 */
+	public void awaitClose() throws InterruptedException
+	{
+		closedLatch.await();
+	}
+	
+	public boolean isClosed()
+	{
+		return closed.get();
+	}
+}
@@ -0,0 +1,193 @@
+package main;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Connects to the game server with non-blocking sockets, all of which are read by a single I/O
+ * thread using a Selector, rather than with a thread blocked reading each socket.
+ *
+ * The I/O thread only reads. The messages it reads are handed to the Controller of their
+ * connection on the given executor, which is where the searches for moves run, one message at
+ * a time for each connection, see NioConnection. The moves are sent straight from that thread.
+ *
+ * Nothing is allocated for each read, as every socket is read into the same direct buffer,
+ * which is only used by the I/O thread.
+ *
+ * @author Barry Skalrud
+ *
+ */
+public class NioTransport implements Runnable {
+	
+	private final static int READ_BUFFER_SIZE = 4096;
+	
+	private Selector selector;
+	private Executor messageExecutor;
+	private Thread ioThread;
+	private volatile boolean running = false;
+	
+	/* Connections waiting to be registered with the selector, which can only be done on the I/O thread */
+	private ConcurrentLinkedQueue<NioConnection> newConnections = new ConcurrentLinkedQueue<NioConnection>();
+	
+	/* Connections that have a move that couldn't be sent all at once */
+	private ConcurrentLinkedQueue<NioConnection> connectionsWithPendingWrites = new ConcurrentLinkedQueue<NioConnection>();
+	
+	private ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+	
+	/**
+	 * Creates a transport whose messages are handled on the given executor.
+	 * @param inMessageExecutor	The executor to handle messages and search for moves on
+	 * @throws IOException		If the selector can't be opened
+	 */
+	public NioTransport(Executor inMessageExecutor) throws IOException
+	{
+		messageExecutor = inMessageExecutor;
+		selector = Selector.open();
+	}
+	
+	/**
+	 * Starts the I/O thread.
+	 */
+	public void start()
+	{
+		running = true;
+		ioThread = new Thread(this, "nio-transport");
+		ioThread.setDaemon(true);
+		ioThread.start();
+	}
+	
+	/**
+	 * Connects to the game server on localhost and starts reading its messages, which are passed
+	 * to the given controller.
+	 * @param port			The port of the game server
+	 * @param controller	The controller to handle the messages from the server
+	 * @return				The new connection
+	 * @throws IOException	If the server couldn't be connected to
+	 */
+	public NioConnection connect(int port, Controller controller) throws IOException
+	{
+		SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", port));
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		channel.configureBlocking(false);
+		
+		NioConnection connection = new NioConnection(this, channel, controller);
+		newConnections.add(connection);
+		selector.wakeup();
+		return connection;
+	}
+	
+	/**
+	 * Stops the I/O thread and closes every connection.
+	 */
+	public void shutdown()
+	{
+		running = false;
+		selector.wakeup();
+		
+		try
+		{
+			ioThread.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	@Override
+	public void run()
+	{
+		try
+		{
+			while (running)
+			{
+				selector.select();
+				registerNewConnections();
+				registerPendingWrites();
+				
+				Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+				while (selectedKeys.hasNext())
+				{
+					SelectionKey key = selectedKeys.next();
+					selectedKeys.remove();
+					
+					NioConnection connection = (NioConnection) key.attachment();
+					if (key.isValid() && key.isWritable())
+						connection.finishWrite();
+					if (key.isValid() && key.isReadable())
+						connection.read(readBuffer);
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			System.out.println("NIO transport failed: " + e.getMessage());
+		}
+		finally
+		{
+			for (SelectionKey key : selector.keys())
+				((NioConnection) key.attachment()).close();
+			for (NioConnection connection = newConnections.poll(); connection != null; connection = newConnections.poll())
+				connection.close();
+			
+			try
+			{
+				selector.close();
+			}
+			catch (IOException e)
+			{
+				// The selector is being closed anyway
+			}
+		}
+	}
+	
+	private void registerNewConnections()
+	{
+		for (NioConnection connection = newConnections.poll(); connection != null; connection = newConnections.poll())
+		{
+			try
+			{
+				connection.setKey(connection.getChannel().register(selector, SelectionKey.OP_READ, connection));
+			}
+			catch (ClosedChannelException e)
+			{
+				connection.close();
+			}
+		}
+	}
+	
+	private void registerPendingWrites()
+	{
+		for (NioConnection connection = connectionsWithPendingWrites.poll(); connection != null;
+				connection = connectionsWithPendingWrites.poll())
+		{
+			SelectionKey key = connection.getKey();
+			if (key != null && key.isValid())
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		}
+	}
+	
+	/**
+	 * Asks the I/O thread to finish sending a move that couldn't be sent all at once.
+	 * @param connection	The connection the move is being sent on
+	 */
+	void addPendingWrite(NioConnection connection)
+	{
+		connectionsWithPendingWrites.add(connection);
+		selector.wakeup();
+	}
+	
+	Executor getMessageExecutor()
+	{
+		return messageExecutor;
+	}
+}
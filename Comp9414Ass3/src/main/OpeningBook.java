@@ -0,0 +1,132 @@
+package main;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The best move for each of the positions at the start of a game, found by deep searches ahead
+ * of time, see OpeningBookGenerator.
+ *
+ * The book is a file of 8 byte entries sorted by the Zobrist key of their positions, which is
+ * memory mapped rather than read, so that it takes no heap and is shared by every player using
+ * it. Each entry is the key with its lowest 4 bits replaced by the move, and a position is
+ * looked up with a binary search of the entries. The file starts with a header holding the
+ * version of the format, a key that changes if the Zobrist keys change, and the number of entries.
+ *
+ * A lookup can find the wrong move if two positions have keys that only differ in their lowest
+ * 4 bits, so the move should be checked before it is played.
+ *
+ * @author Barry Skalrud
+ *
+ */
+public class OpeningBook {
+	
+	private final static int MAGIC = 0x4F424B31;
+	private final static int VERSION = 1;
+	private final static int HEADER_SIZE = 24;
+	private final static int ENTRY_SIZE = 8;
+	private final static long MOVE_MASK = 0xF;
+	
+	private MappedByteBuffer entries;
+	private int numberOfEntries;
+	
+	private OpeningBook(MappedByteBuffer inEntries, int inNumberOfEntries)
+	{
+		entries = inEntries;
+		numberOfEntries = inNumberOfEntries;
+	}
+	
+	/**
+	 * Maps the book in the given file into memory.
+	 * @param file	The book, written by write
+	 * @return		The book
+	 * @throws IOException	If the file can't be read, or isn't a book for this version of the player
+	 */
+	public static OpeningBook load(File file) throws IOException
+	{
+		try (RandomAccessFile bookFile = new RandomAccessFile(file, "r"))
+		{
+			// The mapping stays valid after the file is closed
+			MappedByteBuffer buffer = bookFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, bookFile.length());
+			
+			if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+				throw new IOException(file + " is not an opening book");
+			if (buffer.getInt(4) != VERSION)
+				throw new IOException(file + " is version " + buffer.getInt(4) + " of the opening book, not " + VERSION);
+			if (buffer.getLong(8) != ZobristKeys.getKeysCheck())
+				throw new IOException(file + " was made with different Zobrist keys");
+			
+			int numberOfEntries = buffer.getInt(16);
+			if (numberOfEntries < 0 || buffer.capacity() != HEADER_SIZE + (long) numberOfEntries * ENTRY_SIZE)
+				throw new IOException(file + " is not complete");
+			
+			return new OpeningBook(buffer, numberOfEntries);
+		}
+	}
+	
+	/**
+	 * Writes a book of the given moves to a file.
+	 * @param file		The file to write
+	 * @param moves		The best move of each position, keyed by the Zobrist key of the position
+	 * @throws IOException	If the file can't be written
+	 */
+	public static void write(File file, Map<Long, Integer> moves) throws IOException
+	{
+		long[] bookEntries = new long[moves.size()];
+		int numberOfEntries = 0;
+		for (Map.Entry<Long, Integer> move : moves.entrySet())
+			bookEntries[numberOfEntries++] = (move.getKey() & ~MOVE_MASK) | move.getValue();
+		Arrays.sort(bookEntries);
+		
+		try (DataOutputStream output = new DataOutputStream(new FileOutputStream(file)))
+		{
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(ZobristKeys.getKeysCheck());
+			output.writeInt(numberOfEntries);
+			output.writeInt(0);
+			
+			for (long bookEntry : bookEntries)
+				output.writeLong(bookEntry);
+		}
+	}
+	
+	/**
+	 * Returns the move for the position with the given key.
+	 * @param positionKey	The Zobrist key of the position, see Game.getPositionKey
+	 * @return				The position of the move, or 0 if the position isn't in the book
+	 */
+	public int getMove(long positionKey)
+	{
+		long key = positionKey & ~MOVE_MASK;
+		int low = 0;
+		int high = numberOfEntries - 1;
+		
+		while (low <= high)
+		{
+			int middle = (low + high) >>> 1;
+			long bookEntry = entries.getLong(HEADER_SIZE + middle * ENTRY_SIZE);
+			long entryKey = bookEntry & ~MOVE_MASK;
+			
+			if (entryKey < key)
+				low = middle + 1;
+			else if (entryKey > key)
+				high = middle - 1;
+			else
+				return (int) (bookEntry & MOVE_MASK);
+		}
+		return 0;
+	}
+	
+	public int getNumberOfEntries()
+	{
+		return numberOfEntries;
+	}
+}
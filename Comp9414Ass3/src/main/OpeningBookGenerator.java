@@ -0,0 +1,300 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Makes an OpeningBook by searching every position the player can face in the first plies of a
+ * game, far more deeply than there is time for during a game.
+ *
+ * The book is made for each mark in turn, a ply at a time. The first move is made by the game
+ * server, and the opponent can make any move, so every one of them is followed. When it is
+ * the player's turn, each position is searched, and only the move found is followed, as that
+ * is the move the player will make with the book. A position reached in more than one way is
+ * only searched once.
+ *
+ * The positions of each ply are searched in parallel, each thread with its own player, which
+ * is kept for the whole ply so that its transposition table helps the searches that follow.
+ *
+ * @author Barry Skalrud
+ *
+ */
+public class OpeningBookGenerator {
+	
+	public final static int DEFAULT_PLIES = 4;
+	public final static String DEFAULT_SEARCH_OPTIONS = "-time 0 -depth 8";
+	
+	private final static String USAGE = "Usage: OpeningBookGenerator -o file [-plies n] [-threads n] [-search \"options\"]";
+	
+	private String[] searchOptions;
+	private int plies = DEFAULT_PLIES;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private boolean reportProgress = false;
+	
+	private Map<Long, Integer> bookMoves = new ConcurrentHashMap<Long, Integer>();
+	private Set<Long> positionsClaimed = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+	
+	/**
+	 * Creates a generator whose searches use the given options.
+	 * @param inSearchOptions	The search options, see Agent.parseSearchOptions, e.g. {"-time", "0", "-depth", "8"}
+	 * @throws IllegalArgumentException	If the options are not valid
+	 */
+	public OpeningBookGenerator(String[] inSearchOptions)
+	{
+		searchOptions = inSearchOptions;
+		
+		// Check the options now, rather than on every thread once the searches start
+		createPlayer(PositionState.X).shutdown();
+	}
+	
+	/**
+	 * Sets the number of plies covered by the book, i.e. positions with fewer moves than this
+	 * are in the book.
+	 * @param inPlies	The number of plies
+	 */
+	public void setPlies(int inPlies)
+	{
+		plies = inPlies;
+	}
+	
+	public void setThreads(int inThreads)
+	{
+		threads = inThreads;
+	}
+	
+	public void setReportProgress(boolean inReportProgress)
+	{
+		reportProgress = inReportProgress;
+	}
+	
+	/**
+	 * Searches the positions of both marks.
+	 * @return	The best move of each position, keyed by the Zobrist key of the position
+	 * @throws InterruptedException	If the thread is interrupted while waiting for the searches
+	 */
+	public Map<Long, Integer> generate() throws InterruptedException
+	{
+		generate(PositionState.X);
+		generate(PositionState.O);
+		return bookMoves;
+	}
+	
+	/**
+	 * Searches the positions in which the given mark is to move.
+	 *
+	 * A line of play is kept as an array holding the block of the first move followed by the
+	 * position of each move, as the position of each move is the block of the next.
+	 * @param mark	The mark of the player using the book
+	 * @throws InterruptedException	If the thread is interrupted while waiting for the searches
+	 */
+	private void generate(PositionState mark) throws InterruptedException
+	{
+		List<int[]> lines = new ArrayList<int[]>();
+		for (int block = 1; block <= 9; block++)
+			lines.add(new int[] {block});
+		
+		Player replayPlayer = createPlayer(mark);
+		try
+		{
+			for (int ply = 0; ply < plies; ply++)
+			{
+				PositionState markToMove = (ply % 2 == 0) ? PositionState.X : PositionState.O;
+				List<int[]> nextLines = new ArrayList<int[]>();
+				
+				// The first move is made by the server, so it isn't in the book
+				if (ply > 0 && markToMove == mark)
+				{
+					int[] moves = searchLines(mark, lines);
+					for (int line = 0; line < lines.size(); line++)
+					{
+						if (moves[line] != 0)
+							nextLines.add(extendLine(lines.get(line), moves[line]));
+					}
+					
+					if (reportProgress)
+						System.out.println(mark + " ply " + ply + ": searched " + lines.size() + " positions, book has "
+								+ bookMoves.size());
+				}
+				else
+				{
+					for (int[] line : lines)
+					{
+						replayLine(replayPlayer, line);
+						Game game = replayPlayer.getCurrentState();
+						if (game.isTerminalState())
+							continue;
+						
+						// The last number in the line is the block to play in next
+						for (int position : game.getBlock(line[line.length - 1]).getListOfEmptyCells())
+							nextLines.add(extendLine(line, position));
+					}
+				}
+				
+				lines = nextLines;
+			}
+		}
+		finally
+		{
+			replayPlayer.shutdown();
+		}
+	}
+	
+	/**
+	 * Searches the position at the end of each of the given lines in parallel, and adds their
+	 * moves to the book.
+	 * @param mark		The mark to move in each position
+	 * @param lines		The lines of play to search the end of
+	 * @return			The move found for each line, or 0 if the position was already in the book
+	 * @throws InterruptedException	If the thread is interrupted while waiting for the searches
+	 */
+	private int[] searchLines(final PositionState mark, final List<int[]> lines) throws InterruptedException
+	{
+		final int[] moves = new int[lines.size()];
+		final AtomicInteger nextLine = new AtomicInteger();
+		ExecutorService searchPool = Executors.newFixedThreadPool(threads);
+		
+		for (int thread = 0; thread < threads; thread++)
+		{
+			searchPool.execute(new Runnable() {
+				@Override
+				public void run() {
+					Player player = createPlayer(mark);
+					try
+					{
+						for (int line = nextLine.getAndIncrement(); line < lines.size(); line = nextLine.getAndIncrement())
+							moves[line] = searchLine(player, lines.get(line));
+					}
+					finally
+					{
+						player.shutdown();
+					}
+				}
+			});
+		}
+		searchPool.shutdown();
+		
+		while (!searchPool.awaitTermination(1, TimeUnit.DAYS))
+		{
+			// Keep waiting
+		}
+		return moves;
+	}
+	
+	private int searchLine(Player player, int[] line)
+	{
+		replayLine(player, line);
+		Game game = player.getCurrentState();
+		if (game.isTerminalState() || !positionsClaimed.add(game.getPositionKey()))
+			return 0;
+		
+		int move = player.getNextMove(new SearchLimits(player.getSearchLimits()));
+		bookMoves.put(game.getPositionKey(), move);
+		return move;
+	}
+	
+	/**
+	 * Starts a new game for the given player and makes the moves of the given line.
+	 * @param player	The player
+	 * @param line		The block of the first move followed by the position of each move
+	 */
+	private static void replayLine(Player player, int[] line)
+	{
+		player.initiateGame(player.getPlayersMark());
+		
+		for (int move = 1; move < line.length; move++)
+		{
+			PositionState markToMove = (move % 2 == 1) ? PositionState.X : PositionState.O;
+			if (markToMove == player.getPlayersMark())
+				player.updateBoardWithPlayerMove(line[move - 1], line[move]);
+			else
+				player.makeOpponentMove(line[move - 1], line[move]);
+		}
+	}
+	
+	private static int[] extendLine(int[] line, int position)
+	{
+		int[] extendedLine = Arrays.copyOf(line, line.length + 1);
+		extendedLine[line.length] = position;
+		return extendedLine;
+	}
+	
+	private Player createPlayer(PositionState mark)
+	{
+		Player player = new Player();
+		Agent.parseSearchOptions(searchOptions, 0, player);
+		player.initiateGame(mark);
+		return player;
+	}
+	
+	public static void main(String[] args) throws InterruptedException, IOException
+	{
+		File bookFile = null;
+		String searchOptions = DEFAULT_SEARCH_OPTIONS;
+		int plies = DEFAULT_PLIES;
+		int threads = Runtime.getRuntime().availableProcessors();
+		
+		OpeningBookGenerator generator;
+		try
+		{
+			for (int argument = 0; argument < args.length; argument++)
+			{
+				String option = args[argument];
+				if (argument + 1 >= args.length)
+					throw new IllegalArgumentException("Missing value for " + option);
+				String value = args[++argument];
+				
+				switch (option)
+				{
+				case "-o":
+					bookFile = new File(value);
+					break;
+				case "-plies":
+					plies = Integer.valueOf(value);
+					break;
+				case "-threads":
+					threads = Integer.valueOf(value);
+					break;
+				case "-search":
+					searchOptions = value;
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option " + option);
+				}
+			}
+			
+			if (bookFile == null)
+				throw new IllegalArgumentException("The book file must be given with -o");
+			
+			generator = new OpeningBookGenerator(searchOptions.trim().split("\\s+"));
+			generator.setPlies(plies);
+			generator.setThreads(threads);
+			generator.setReportProgress(true);
+		}
+		catch (IllegalArgumentException e)
+		{
+			// This includes a NumberFormatException from an invalid number
+			System.out.println(e.getMessage());
+			System.out.println(USAGE);
+			return;
+		}
+		
+		long startTime = System.nanoTime();
+		Map<Long, Integer> bookMoves = generator.generate();
+		OpeningBook.write(bookFile, bookMoves);
+		
+		System.out.println("Wrote " + bookMoves.size() + " positions to " + bookFile + " in "
+				+ TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startTime) + "s");
+	}
+}
@@ -0,0 +1,216 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Performs the root of an alpha-beta search on several threads at once. 
+ * 
+ * The first (i.e. best ordered) move is searched on its own to get a bound. The remaining 
+ * moves are then searched concurrently, each on its own copy of the game. Whenever one of 
+ * them finds a better score, the alpha value shared by all of them is raised so the searches 
+ * still running can prune more. The threads share the player's transposition table.
+ * 
+ * The move chosen is the same as the one that the serial search in Player would choose at 
+ * the same depth, i.e. the first move in the given order with the best score. A move that was 
+ * searched with a stale alpha can only be shown to be no better than that alpha, so if such a 
+ * move comes before the chosen move and might be tied with it, it is searched again to find out.  
+ * 
+ * @author Barry Skalrud
+ *
+ */
+public class ParallelRootSearch {
+
+	private ForkJoinPool searchPool;
+	private int bestScore;
+	
+	/**
+	 * Creates a parallel search that runs on the given number of threads.
+	 * @param numberOfThreads	The number of threads to search with
+	 */
+	public ParallelRootSearch(int numberOfThreads)
+	{
+		searchPool = new ForkJoinPool(numberOfThreads);
+	}
+	
+	/**
+	 * Searches each of the given moves in the block that is to be played in next.
+	 * @param rootState		The game to be searched. It is copied, not changed.
+	 * @param orderedMoves	The moves to search, in the order they would be searched serially
+	 * @param depth			The depth to search each move to
+	 * @param deadline		The time at which the search should be abandoned, as a value of System.nanoTime, 
+	 * or Game.NO_DEADLINE
+	 * @return				The best move, or 0 if no move improves on the worst possible result or the 
+	 * search didn't finish before the deadline.
+	 */
+	public int search(Game rootState, List<Integer> orderedMoves, int depth, long deadline)
+	{
+		int numberOfMoves = orderedMoves.size();
+		int[] results = new int[numberOfMoves];
+		int[] alphasUsed = new int[numberOfMoves];
+		AtomicInteger sharedAlpha = new AtomicInteger(Integer.MIN_VALUE);
+		
+		if (numberOfMoves == 0)
+		{
+			bestScore = Integer.MIN_VALUE;
+			return 0;
+		}
+		
+		// Search the first move on its own to get a bound for the others
+		RootMoveSearch firstMoveSearch = new RootMoveSearch(rootState, orderedMoves, 0, depth, deadline, sharedAlpha, results, alphasUsed);
+		searchPool.invoke(firstMoveSearch);
+		if (!firstMoveSearch.completed)
+			return 0;
+		
+		List<RootMoveSearch> siblingSearches = new ArrayList<RootMoveSearch>();
+		for (int moveIndex = 1; moveIndex < numberOfMoves; moveIndex++)
+			siblingSearches.add(new RootMoveSearch(rootState, orderedMoves, moveIndex, depth, deadline, sharedAlpha, results, alphasUsed));
+		
+		searchPool.invoke(new SiblingSearches(siblingSearches));
+		
+		for (RootMoveSearch siblingSearch : siblingSearches)
+			if (!siblingSearch.completed)
+				return 0;
+		
+		/* A result greater than the alpha it was searched with is exact. Choose the first move 
+		 * with the best exact result. 
+		 */
+		int bestMoveIndex = -1;
+		bestScore = Integer.MIN_VALUE;
+		for (int moveIndex = 0; moveIndex < numberOfMoves; moveIndex++)
+		{
+			if (results[moveIndex] > alphasUsed[moveIndex] && results[moveIndex] > bestScore)
+			{
+				bestScore = results[moveIndex];
+				bestMoveIndex = moveIndex;
+			}
+		}
+		
+		if (bestMoveIndex == -1)
+			return 0;
+		
+		/* Any other result is only an upper bound. An earlier move with an upper bound equal to 
+		 * the best score might actually have that score, in which case the serial search would 
+		 * have chosen it.
+		 */
+		for (int moveIndex = 0; moveIndex < bestMoveIndex; moveIndex++)
+		{
+			if (results[moveIndex] <= alphasUsed[moveIndex] && alphasUsed[moveIndex] == bestScore)
+			{
+				Game searchState = new Game(rootState, rootState.whoHasNextMove);
+				searchState.setSearchDeadline(deadline);
+				searchState.makeMove(orderedMoves.get(moveIndex));
+				int result = searchState.alphaBetaSearchResult(depth, bestScore - 1, Integer.MAX_VALUE);
+				
+				if (searchState.isSearchAborted())
+					return 0;
+				
+				if (result > bestScore - 1)
+				{
+					bestMoveIndex = moveIndex;
+					break;
+				}
+			}
+		}
+		
+		return orderedMoves.get(bestMoveIndex);
+	}
+	
+	/**
+	 * Returns the score of the move chosen by the last search.
+	 * @return	An int representing the score of the best move.
+	 */
+	public int getBestScore()
+	{
+		return bestScore;
+	}
+	
+	/**
+	 * Stops the threads used by this search.
+	 */
+	public void shutdown()
+	{
+		searchPool.shutdown();
+	}
+	
+	
+	/**
+	 * Searches a single move at the root on its own copy of the game.
+	 */
+	private static class RootMoveSearch extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private Game rootState;
+		private List<Integer> orderedMoves;
+		private int moveIndex;
+		private int depth;
+		private long deadline;
+		private AtomicInteger sharedAlpha;
+		private int[] results;
+		private int[] alphasUsed;
+		private boolean completed = false;
+		
+		public RootMoveSearch(Game inRootState, List<Integer> inOrderedMoves, int inMoveIndex, int inDepth, 
+				long inDeadline, AtomicInteger inSharedAlpha, int[] inResults, int[] inAlphasUsed)
+		{
+			rootState = inRootState;
+			orderedMoves = inOrderedMoves;
+			moveIndex = inMoveIndex;
+			depth = inDepth;
+			deadline = inDeadline;
+			sharedAlpha = inSharedAlpha;
+			results = inResults;
+			alphasUsed = inAlphasUsed;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			Game searchState = new Game(rootState, rootState.whoHasNextMove);
+			searchState.setSearchDeadline(deadline);
+			searchState.makeMove(orderedMoves.get(moveIndex));
+			
+			int alpha = sharedAlpha.get();
+			int result = searchState.alphaBetaSearchResult(depth, alpha, Integer.MAX_VALUE);
+			searchState.getPlayerRepresentedByThisProgram().getSearchStatistics().addSearchCounts(searchState);
+			
+			if (searchState.isSearchAborted())
+				return;
+			
+			results[moveIndex] = result;
+			alphasUsed[moveIndex] = alpha;
+			completed = true;
+			
+			// Raise the shared alpha so that the searches still running can prune more
+			int currentAlpha = sharedAlpha.get();
+			while (result > currentAlpha && !sharedAlpha.compareAndSet(currentAlpha, result))
+				currentAlpha = sharedAlpha.get();
+		}
+
+	}
+	
+	/**
+	 * Forks the searches of all of the sibling moves and waits for them to finish.
+	 */
+	private static class SiblingSearches extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private List<RootMoveSearch> siblingSearches;
+		
+		public SiblingSearches(List<RootMoveSearch> inSiblingSearches)
+		{
+			siblingSearches = inSiblingSearches;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			invokeAll(siblingSearches);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package main;
 
-import java.util.Hashtable;
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.Random;
 
@@ -14,19 +15,96 @@ import java.util.Random;
  */
 public class Player {
 	
+	/**
+	 * The ways in which a search can use more than one thread.
+	 */
+	public enum ParallelMode {
+		/* The moves at the root are split between the threads, see ParallelRootSearch */
+		ROOT_SPLIT,
+		/* Every thread searches the whole tree, sharing the transposition table, see LazySmpSearch */
+		LAZY_SMP
+	}
+	
+	/**
+	 * The algorithms this player can search with, each of which is provided by a SearchEngine.
+	 */
+	public enum SearchAlgorithm {
+		/* Every move is searched with the full alpha-beta window, see AlphaBetaEngine */
+		ALPHA_BETA,
+		/* Moves after the first are searched with a null window, and iterative deepening 
+		 * uses aspiration windows, see Game.searchMove */
+		PRINCIPAL_VARIATION,
+		/* Moves are chosen by random playouts rather than the heuristic, see MonteCarloTreeSearch */
+		MONTE_CARLO_TREE_SEARCH
+	}
+	
 	private PositionState thisPlayersMark;
 	private PositionState opponentMark;
 	private int lastPositionPlayed;
 	private Game currentGameState;
 	private int myMoveCounter;
-	private Hashtable<String, Integer> heuristicResults;
+	private TranspositionTable transpositionTable;
+	private MoveOrderingHistory moveOrderingHistory = new MoveOrderingHistory();
+	private SearchStatistics totalSearchStatistics = new SearchStatistics();
+	private SearchStatistics gameSearchStatistics = new SearchStatistics(totalSearchStatistics);
+	private SearchLimits searchLimits = new SearchLimits();
+	private AlphaBetaEngine alphaBetaEngine = new AlphaBetaEngine();
+	private SearchEngine searchEngine = alphaBetaEngine;
+	private SearchAlgorithm searchAlgorithm = SearchAlgorithm.ALPHA_BETA;
+	private SearchResult lastSearchResult;
+	private boolean ponderingEnabled = false;
+	private Ponderer ponderer;
+	private long ponderTimeForNextMove = 0;
+	private OpeningBook openingBook;
+	private EndgameSolver endgameSolver;
+	private int endgameEmptyCells = DEFAULT_ENDGAME_EMPTY_CELLS;
+	private long endgameMaxNodes = DEFAULT_ENDGAME_MAX_NODES;
+	private int endgameRetryEmptyCells = Integer.MAX_VALUE;
+	private File snapshotDirectory;
+	
+	/* When the opponent's move was pondered, this player still takes at least this fraction of 
+	 * its normal time for the move. 
+	 */
+	private final static int PONDER_HIT_MIN_TIME_DIVISOR = 10;
+	
+	public final static long DEFAULT_MOVE_TIME_MILLIS = SearchLimits.DEFAULT_TIME_MILLIS;
+	
+	/* Positions with this many empty cells or fewer are solved outright when the solver can 
+	 * do so within the node limit, which takes it about a fifth of the default move time. 
+	 * Most positions with many more empty cells than this can't be solved within the limit. 
+	 */
+	public final static int DEFAULT_ENDGAME_EMPTY_CELLS = 50;
+	public final static long DEFAULT_ENDGAME_MAX_NODES = 1000000;
+	
+	/* The solver visits about this many nodes a millisecond, and is given no more than a 
+	 * quarter of the time for a move. 
+	 */
+	private final static long ENDGAME_NODES_PER_MILLI = 5000;
+	private final static int ENDGAME_TIME_DIVISOR = 4;
+	
+	/* After the solver fails, it isn't tried again until this many more cells are filled, i.e. 
+	 * two moves by each player. Each five cells filled make a solve five to ten times quicker. 
+	 */
+	private final static int ENDGAME_RETRY_CELLS = 4;
+	
+	/* Only transposition table entries searched to at least this depth are saved in a snapshot */
+	public final static int SNAPSHOT_MIN_DEPTH = 4;
 	
 	/**
 	 * Creates a new player object. 
 	 */
 	public Player()
 	{
-		heuristicResults = new Hashtable<String, Integer>();
+		this(new TranspositionTable());
+	}
+	
+	/**
+	 * Creates a new player object that stores its search results in the given table.
+	 * @param inTranspositionTable	The transposition table to be used by this player's searches
+	 */
+	public Player(TranspositionTable inTranspositionTable)
+	{
+		transpositionTable = inTranspositionTable;
 	}
 	
 	/**
@@ -49,6 +127,123 @@ public class Player {
 		return thisPlayersMark;
 	}
 	
+	/**
+	 * Sets the amount of time this player can spend searching for each move.
+	 * @param inMoveTimeMillis	The time for each move, in milliseconds
+	 */
+	public void setMoveTime(long inMoveTimeMillis)
+	{
+		searchLimits.setTimeMillis(inMoveTimeMillis);
+	}
+	
+	public long getMoveTime()
+	{
+		return searchLimits.getTimeMillis();
+	}
+	
+	/**
+	 * Sets the number of threads used to search each move. 
+	 * @param inSearchThreads	The number of threads to search with
+	 */
+	public void setSearchThreads(int inSearchThreads)
+	{
+		searchLimits.setThreads(inSearchThreads);
+	}
+	
+	public int getSearchThreads()
+	{
+		return searchLimits.getThreads();
+	}
+	
+	/**
+	 * Sets how the alpha-beta search uses more than one thread. This only has an effect if 
+	 * there is more than one search thread.
+	 * @param inParallelMode	The ParallelMode to search with
+	 */
+	public void setParallelMode(ParallelMode inParallelMode)
+	{
+		alphaBetaEngine.setParallelMode(inParallelMode);
+	}
+	
+	public ParallelMode getParallelMode()
+	{
+		return alphaBetaEngine.getParallelMode();
+	}
+	
+	/**
+	 * Sets the algorithm used to search for this player's moves, replacing the search engine 
+	 * if needed.
+	 * @param inSearchAlgorithm	The SearchAlgorithm to search with
+	 */
+	public void setSearchAlgorithm(SearchAlgorithm inSearchAlgorithm)
+	{
+		if (inSearchAlgorithm == SearchAlgorithm.MONTE_CARLO_TREE_SEARCH)
+		{
+			if (!(searchEngine instanceof MonteCarloTreeSearch))
+				setSearchEngine(new MonteCarloTreeSearch(searchLimits.getThreads()));
+		}
+		else
+		{
+			alphaBetaEngine.setPrincipalVariationSearch(inSearchAlgorithm == SearchAlgorithm.PRINCIPAL_VARIATION);
+			setSearchEngine(alphaBetaEngine);
+		}
+		
+		searchAlgorithm = inSearchAlgorithm;
+	}
+	
+	public SearchAlgorithm getSearchAlgorithm()
+	{
+		return searchAlgorithm;
+	}
+	
+	/**
+	 * Sets the engine used to search for this player's moves. The engine that was being used 
+	 * is shut down, unless it is the player's own alpha-beta engine, which is kept for the 
+	 * fixed depth searches and pondering. 
+	 * @param inSearchEngine	The SearchEngine to search with
+	 */
+	public void setSearchEngine(SearchEngine inSearchEngine)
+	{
+		if (searchEngine != inSearchEngine && searchEngine != alphaBetaEngine)
+			searchEngine.shutdown();
+		searchEngine = inSearchEngine;
+	}
+	
+	public SearchEngine getSearchEngine()
+	{
+		return searchEngine;
+	}
+	
+	/**
+	 * Stops pondering and shuts down the threads used by this player's search engines. The 
+	 * player shouldn't be used afterwards. 
+	 */
+	public void shutdown()
+	{
+		stopPondering(0);
+		searchEngine.shutdown();
+		alphaBetaEngine.shutdown();
+	}
+	
+	/**
+	 * Returns the limits used when searching for this player's moves. These can be changed 
+	 * directly, e.g. to limit the depth or nodes of each search. 
+	 * @return	The SearchLimits used by this player
+	 */
+	public SearchLimits getSearchLimits()
+	{
+		return searchLimits;
+	}
+	
+	/**
+	 * Replaces the limits used when searching for this player's moves.
+	 * @param inSearchLimits	The SearchLimits to search with
+	 */
+	public void setSearchLimits(SearchLimits inSearchLimits)
+	{
+		searchLimits = inSearchLimits;
+	}
+	
 	/**
 	 * Begins a representation of a new game (i.e. no moves on the board) using the given 
 	 * representation of the player controlled by this program. 
@@ -56,8 +251,23 @@ public class Player {
 	 */
 	public void initiateGame(PositionState playerMark) 
 	{
+		stopPondering(0);
+		
+		/* The scores in the transposition table are from the point of view of this player, 
+		 * so they can only be kept if this player has the same mark as in the last game.
+		 */
+		if (playerMark != thisPlayersMark)
+		{
+			transpositionTable.clear();
+			loadSnapshot(playerMark);
+		}
+		
 		setPlayersMark(playerMark);
+		moveOrderingHistory.clear();
+		gameSearchStatistics.reset();
+		searchEngine.clear();
 		myMoveCounter = 0;
+		endgameRetryEmptyCells = Integer.MAX_VALUE;
 		currentGameState = new Game(this);
 	}
 	
@@ -86,6 +296,8 @@ public class Player {
 		if (Agent.debugMode)
 			System.out.println("Opponent move: " + blockNumber + ", " + positionNumber);
 		
+		stopPondering(positionNumber);
+		
 		currentGameState.setMove(opponentMark, blockNumber, positionNumber);
 		lastPositionPlayed = positionNumber;
 	}
@@ -104,12 +316,176 @@ public class Player {
 		lastPositionPlayed = positionNumber;
 	}
 	
+	/**
+	 * Starts searching on a background thread while the opponent decides on their move, if 
+	 * pondering is enabled. The search stops when the opponent's move is made. 
+	 */
+	public void startPondering()
+	{
+		// The ponderer searches with alpha-beta, so is only useful to the alpha-beta engine
+		if (!ponderingEnabled || currentGameState == null || currentGameState.isTerminalState() 
+				|| searchEngine != alphaBetaEngine)
+			return;
+		
+		stopPondering(0);
+		ponderer = new Ponderer(currentGameState);
+		ponderer.start();
+	}
+	
+	/**
+	 * Stops the background search, if there is one, and records how much of the search of the 
+	 * opponent's move has already been done. 
+	 * @param opponentsMove	The position the opponent played in, or 0 if it isn't known
+	 */
+	public void stopPondering(int opponentsMove)
+	{
+		ponderTimeForNextMove = 0;
+		
+		if (ponderer == null)
+			return;
+		
+		ponderer.stop();
+		
+		if (opponentsMove != 0 && ponderer.getDepthForReply(opponentsMove) > 0)
+		{
+			ponderTimeForNextMove = ponderer.getTimeSpentOnReply(opponentsMove);
+			
+			if (Agent.debugMode)
+				System.out.println("Pondered " + opponentsMove + " to depth " + ponderer.getDepthForReply(opponentsMove) 
+						+ " in " + ponderTimeForNextMove + "ms, best move " + ponderer.getBestMoveForReply(opponentsMove));
+		}
+		
+		ponderer = null;
+	}
+	
+	/**
+	 * Sets whether this player searches while the opponent is deciding on their move.
+	 * @param inPonderingEnabled	True to ponder, false otherwise
+	 */
+	public void setPonderingEnabled(boolean inPonderingEnabled)
+	{
+		ponderingEnabled = inPonderingEnabled;
+		if (!ponderingEnabled)
+			stopPondering(0);
+	}
+	
+	public boolean isPonderingEnabled()
+	{
+		return ponderingEnabled;
+	}
+	
+	/**
+	 * Sets the book of moves played at the start of a game instead of searching, see OpeningBook.
+	 * @param inOpeningBook	The book, or null to always search
+	 */
+	public void setOpeningBook(OpeningBook inOpeningBook)
+	{
+		openingBook = inOpeningBook;
+	}
+	
+	public OpeningBook getOpeningBook()
+	{
+		return openingBook;
+	}
+	
+	/**
+	 * Sets when this player solves the game outright rather than searching, see EndgameSolver. 
+	 * The solver is tried once there are no more than the given number of empty cells, and 
+	 * gives up if the game is too big to solve within the given number of nodes.
+	 * @param inEndgameEmptyCells	The number of empty cells, or 0 to never use the solver
+	 * @param inEndgameMaxNodes		The most nodes the solver can visit for each move
+	 */
+	public void setEndgameLimits(int inEndgameEmptyCells, long inEndgameMaxNodes)
+	{
+		if (inEndgameEmptyCells < 0 || inEndgameMaxNodes <= 0)
+			throw new IllegalArgumentException("Invalid endgame limits: " + inEndgameEmptyCells + ", " + inEndgameMaxNodes);
+		
+		endgameEmptyCells = inEndgameEmptyCells;
+		endgameMaxNodes = inEndgameMaxNodes;
+	}
+	
+	public int getEndgameEmptyCells()
+	{
+		return endgameEmptyCells;
+	}
+	
+	public long getEndgameMaxNodes()
+	{
+		return endgameMaxNodes;
+	}
+	
+	/**
+	 * Sets the directory where this player saves the deeper entries of its transposition table 
+	 * at the end of each game, and loads them from when it starts a game with a new mark. As 
+	 * the scores are from the point of view of the player, there is a snapshot for each mark. 
+	 * @param inSnapshotDirectory	The directory, or null to not use snapshots
+	 */
+	public void setSnapshotDirectory(File inSnapshotDirectory)
+	{
+		snapshotDirectory = inSnapshotDirectory;
+	}
+	
+	public File getSnapshotDirectory()
+	{
+		return snapshotDirectory;
+	}
+	
+	/**
+	 * Saves the deeper entries of the transposition table to the snapshot for this player's 
+	 * mark, if there is a snapshot directory. Players sharing the directory replace each 
+	 * other's snapshots, so the snapshot is from whichever game ended last. 
+	 * @throws IOException	If the snapshot can't be written
+	 */
+	public void saveSnapshot() throws IOException
+	{
+		if (snapshotDirectory == null || thisPlayersMark == null)
+			return;
+		
+		int entriesSaved = transpositionTable.writeSnapshot(getSnapshotFile(thisPlayersMark), SNAPSHOT_MIN_DEPTH);
+		
+		if (Agent.debugMode)
+			System.out.println("Saved " + entriesSaved + " entries to " + getSnapshotFile(thisPlayersMark));
+	}
+	
+	/**
+	 * Loads the snapshot for the given mark into the transposition table, if there is one. 
+	 * A snapshot that can't be loaded is ignored, as the player can still search without it. 
+	 * @param playerMark	The mark this player is using
+	 */
+	private void loadSnapshot(PositionState playerMark)
+	{
+		if (snapshotDirectory == null)
+			return;
+		
+		File snapshotFile = getSnapshotFile(playerMark);
+		if (!snapshotFile.exists())
+			return;
+		
+		try
+		{
+			int entriesLoaded = transpositionTable.loadSnapshot(snapshotFile);
+			
+			if (Agent.debugMode)
+				System.out.println("Loaded " + entriesLoaded + " entries from " + snapshotFile);
+		}
+		catch (IOException e)
+		{
+			System.out.println("Unable to load the search snapshot: " + e.getMessage());
+		}
+	}
+	
+	private File getSnapshotFile(PositionState playerMark)
+	{
+		return new File(snapshotDirectory, "search-" + playerMark.getValue() + ".tt");
+	}
+	
 	/**
 	 * This method, decides on the next move and updates the current board as appropriate.
 	 * @return	An int representing position of the move to be made in the current block.
 	 */
 	public int decideNextMove() 
 	{
+		long startTime = System.nanoTime();
 		Block blockToPlayIn = currentGameState.getBlock(lastPositionPlayed);
 		
 		int position;
@@ -117,34 +493,46 @@ public class Player {
 		if (Agent.debugMode) 
 			System.out.println("Move: " + myMoveCounter);
 		
+		int bookMove = getBookMove(blockToPlayIn);
+		int solvedMove = (bookMove == 0) ? getSolvedMove() : 0;
+		
 		/*
-		 * Note that in order to speed up game play, the first move is made randomly and the subesequent
-		 * two moves have a shallow search depth. From there the depth is steadily increased so that the 
-		 * heuristic hash table can be populated, which will make the deeper searches later on faster.   
+		 * Note that in order to speed up game play, the first move is made randomly unless 
+		 * another engine is used, as only the alpha-beta search relies on the heuristic. 
+		 * A move from the opening book is played instead whenever there is one, and near the 
+		 * end of the game a move the endgame solver proves to win.
 		 */
-		if (myMoveCounter == 0)
-		{
-			position = getNextMoveRandomly(blockToPlayIn);			
-		}
-		else if (myMoveCounter < 2)
+		if (bookMove != 0)
 		{
-			position = getNextMoveUsingAlphaBeta(1);
+			position = bookMove;
+			gameSearchStatistics.recordMove(null, System.nanoTime() - startTime);
 		}
-		else if (myMoveCounter <= 5)
+		else if (myMoveCounter == 0 && searchEngine == alphaBetaEngine)
 		{
-			position = getNextMoveUsingAlphaBeta(7);
+			position = getNextMoveRandomly(blockToPlayIn);
+			gameSearchStatistics.recordMove(null, System.nanoTime() - startTime);
 		}
-		else if (myMoveCounter <= 11)
+		else if (solvedMove != 0)
 		{
-			position = getNextMoveUsingAlphaBeta(9);
-		}
-		else if (myMoveCounter <= 15)
-		{
-			position = getNextMoveUsingAlphaBeta(11);
+			position = solvedMove;
+			gameSearchStatistics.recordMove(lastSearchResult, System.nanoTime() - startTime);
 		}
 		else
 		{
-			position = getNextMoveUsingAlphaBeta(13);
+			/* Time spent pondering the opponent's move counts towards the time for this move, 
+			 * as the search of this position has already been partly done. So does any time the 
+			 * endgame solver spent failing to solve it.
+			 */
+			moveOrderingHistory.ageHistory();
+			SearchLimits limitsForThisMove = new SearchLimits(searchLimits);
+			long moveTimeMillis = searchLimits.getTimeMillis();
+			long elapsedMillis = (System.nanoTime() - startTime) / 1000000;
+			if (moveTimeMillis != 0)
+				limitsForThisMove.setTimeMillis(Math.max(moveTimeMillis - ponderTimeForNextMove - elapsedMillis, 
+						Math.max(1, moveTimeMillis / PONDER_HIT_MIN_TIME_DIVISOR)));
+			
+			position = getNextMove(limitsForThisMove);
+			gameSearchStatistics.recordMove(lastSearchResult, System.nanoTime() - startTime);
 		}
 		
 		updateBoardWithPlayerMove(lastPositionPlayed, position);
@@ -153,6 +541,43 @@ public class Player {
 			
 	}
 	
+	/**
+	 * Determines the position of the next move in the current block using this player's search 
+	 * engine and the given limits. 
+	 * @param limits	The limits on the search
+	 * @return			An integer representing the position of the next move to make.
+	 */
+	public int getNextMove(SearchLimits limits)
+	{
+		lastSearchResult = searchEngine.search(currentGameState, limits);
+		
+		if (Agent.debugMode)
+			System.out.println("Search result: " + lastSearchResult);
+		
+		// No move improves on the worst possible result, so just take the first one available
+		if (lastSearchResult.getMove() == 0)
+			return currentGameState.getBlock(currentGameState.getNextBlockToPlayIn()).getListOfEmptyCells().get(0);
+		
+		return lastSearchResult.getMove();
+	}
+	
+	/**
+	 * Determines the position of the next move in the current block by performing alpha-beta 
+	 * searches of increasing depth up to the given depth, with no time limit. 
+	 * @param maxDepth	The depth of the last search
+	 * @return			An integer representing the position of the next move to make.
+	 */
+	public int getNextMoveUsingIterativeDeepeningToDepth(int maxDepth)
+	{
+		SearchLimits limits = new SearchLimits(searchLimits);
+		limits.setMaxDepth(maxDepth);
+		limits.setTimeMillis(0);
+		limits.setMaxNodes(0);
+		
+		lastSearchResult = alphaBetaEngine.search(currentGameState, limits);
+		return lastSearchResult.getMove();
+	}
+	
 	/**
 	 * Determines the position of the next move in the current block using alpha-beta pruning and 
 	 * the given depth
@@ -161,37 +586,70 @@ public class Player {
 	 */
 	public int getNextMoveUsingAlphaBeta(int depth)
 	{
-			int alpha= Integer.MIN_VALUE;
-			int beta = Integer.MAX_VALUE;
-			int bestMoveToMake = 0;
-			int result = alpha; 
-			
-			List<Integer> listOfEmptyCells = currentGameState.getBlock(currentGameState.getNextBlockToPlayIn()).getListOfBestMovesForThisCell(thisPlayersMark);
-			for (int emptyCell : listOfEmptyCells)
-			{
-				Game expandedState = new Game(currentGameState, thisPlayersMark);
-				expandedState.setMove(thisPlayersMark, currentGameState.getNextBlockToPlayIn(), emptyCell);
-				
-				result = expandedState.alphaBetaSearchResult(depth, alpha, beta);
-				
-				if (Agent.debugMode)
-					System.out.println("Option: " + expandedState.getNextBlockToPlayIn() + ", result: " + result);
-				
-				if (result > alpha)
-				{
-					bestMoveToMake = expandedState.getNextBlockToPlayIn();
-					alpha = result;
-				}					
-				
-			}
-			
-			if (Agent.debugMode)
-				System.out.println("Went with: " + alpha);
-			
-			return bestMoveToMake;	
+		alphaBetaEngine.setSearchThreads(searchLimits.getThreads());
+		return alphaBetaEngine.searchToDepth(currentGameState, depth);
+	}
+	
+	
+	/**
+	 * Looks up the current position in the opening book. 
+	 * @param blockToPlayIn	The block that is to be played in
+	 * @return				The position of the book move, or 0 if there is no book, the position 
+	 * isn't in it or the move isn't valid
+	 */
+	private int getBookMove(Block blockToPlayIn)
+	{
+		if (openingBook == null)
+			return 0;
+		
+		int bookMove = openingBook.getMove(currentGameState.getPositionKey());
+		if (bookMove == 0 || !blockToPlayIn.isValidMove(bookMove))
+			return 0;
+		
+		if (Agent.debugMode)
+			System.out.println("Book move: " + bookMove);
 		
+		return bookMove;
 	}
 	
+	/**
+	 * Solves the current position with the endgame solver, if it has few enough empty cells. 
+	 * The solver is given no more nodes than it can visit in a quarter of the time for a move, 
+	 * and once it fails to solve a position it waits for a few more cells to be filled. 
+	 * Only a proven win is played, as the solver treats every drawing move alike and will 
+	 * happily send the opponent to a full block. When the position is drawn or lost the search 
+	 * is left to choose the move most likely to make the opponent go wrong.
+	 * @return	The position of a winning move, or 0 if the position wasn't solved or isn't won
+	 */
+	private int getSolvedMove()
+	{
+		int emptyCells = currentGameState.getNumberOfEmptyCells();
+		if (emptyCells > Math.min(endgameEmptyCells, endgameRetryEmptyCells))
+			return 0;
+		
+		if (endgameSolver == null)
+			endgameSolver = new EndgameSolver();
+		
+		long maxNodes = endgameMaxNodes;
+		long moveTimeMillis = searchLimits.getTimeMillis();
+		if (moveTimeMillis != 0)
+			maxNodes = Math.min(maxNodes, 
+					Math.max(1, moveTimeMillis - ponderTimeForNextMove) * ENDGAME_NODES_PER_MILLI / ENDGAME_TIME_DIVISOR);
+		
+		SearchResult solvedResult = endgameSolver.solve(currentGameState, maxNodes);
+		
+		if (Agent.debugMode)
+			System.out.println("Endgame result: " + solvedResult);
+		
+		if (solvedResult == null)
+			endgameRetryEmptyCells = emptyCells - ENDGAME_RETRY_CELLS;
+		
+		if (solvedResult == null || solvedResult.getScore() != EndgameSolver.WIN)
+			return 0;
+		
+		lastSearchResult = solvedResult;
+		return solvedResult.getMove();
+	}
 	
 	/**
 	 * Returns a position to play in that is chosen from the empty cells in the given
@@ -217,33 +675,69 @@ public class Player {
 		return currentGameState;
 	}
 	
+	/**
+	 * Returns the score of the last search of this player's moves, from the point of view of 
+	 * this player. What the score means depends on the search engine.
+	 * @return	The score of the best move found by the last search
+	 */
+	public int getLastSearchScore()
+	{
+		return lastSearchResult == null ? 0 : lastSearchResult.getScore();
+	}
 	
 	/**
-	 * If a heuristic has previously been calculated for the given block, it will be 
-	 * retrieved, saving the extra calculation. 
-	 * @param block		A Block object for which the heuristic is being calculated.
-	 * @return			Returns	-1000 if the given block has not been encountered before 
-	 * 							
+	 * Returns the move and statistics of the last search of this player's moves.
+	 * @return	The SearchResult of the last search, or null if there hasn't been one
 	 */
-	public int getHeuristcValueIfExists(Block block)
+	public SearchResult getLastSearchResult()
 	{
-		Integer heuristicValue = heuristicResults.get(block.getPositionStates());
-		if (heuristicValue == null)
-			return -1000;
-		
-		return heuristicValue;
+		return lastSearchResult;
+	}
+	
+	/**
+	 * Returns the number of positions searched by this player's searches since the program started.
+	 * @return	The total number of nodes searched
+	 */
+	public long getNodesSearched()
+	{
+		return totalSearchStatistics.getNodesSearched();
+	}
+	
+	/**
+	 * Returns the statistics of this player's searches in the current game. Searches add their 
+	 * counts to these, which also adds them to the totals. 
+	 * @return	The SearchStatistics of the current game
+	 */
+	public SearchStatistics getSearchStatistics()
+	{
+		return gameSearchStatistics;
+	}
+	
+	/**
+	 * Returns the statistics of this player's searches since the program started.
+	 * @return	The SearchStatistics of every game played
+	 */
+	public SearchStatistics getTotalSearchStatistics()
+	{
+		return totalSearchStatistics;
+	}
+	
+	/**
+	 * Returns the killer moves and history values used to order this player's searches. 
+	 * @return	The MoveOrderingHistory used by this player.
+	 */
+	public MoveOrderingHistory getMoveOrderingHistory()
+	{
+		return moveOrderingHistory;
 	}
 	
 	/**
-	 * Updates the data structure containing calculated heuristic values for different Block 
-	 * configurations. 
-	 * @param block				A Block object representing the block configuration
-	 * @param heuristicValue	An int representing the calculated heuristic value for the
-	 * given Block object. 
+	 * Returns the table in which this player's search results are stored. 
+	 * @return	The TranspositionTable used by this player.
 	 */
-	public void updateHeuristicValue(Block block, int heuristicValue)
+	public TranspositionTable getTranspositionTable()
 	{
-		heuristicResults.put(block.getPositionStates(), heuristicValue);
+		return transpositionTable;
 	}
 	
 
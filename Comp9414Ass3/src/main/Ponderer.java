@@ -0,0 +1,127 @@
+package main;
+
+import java.util.List;
+
+/**
+ * Searches on a background thread while the opponent is deciding on their move, i.e. pondering. 
+ * 
+ * The opponent has to play in the block given by this player's last move, so there are at most 
+ * nine replies they can make. The ponderer searches the position after each of those replies, 
+ * deepening the search of all of them one level at a time, until it is stopped. The results are 
+ * stored in the player's transposition table as usual, so when the opponent's real move arrives 
+ * the search of it starts with a warm table. The best move found for each reply, the depth it 
+ * was found at and the time spent on the reply are also kept. 
+ * 
+ * @author Barry Skalrud
+ *
+ */
+public class Ponderer implements Runnable {
+
+	private Game ponderState;
+	private Thread ponderThread;
+	private int[] bestMoveForReply = new int[10];
+	private int[] depthForReply = new int[10];
+	private long[] nanosSpentOnReply = new long[10];
+	
+	/**
+	 * Creates a ponderer for the given game. 
+	 * @param currentState	The game as it currently is, with the opponent to move. It is copied, not changed.
+	 */
+	public Ponderer(Game currentState)
+	{
+		ponderState = new Game(currentState, currentState.whoHasNextMove);
+		ponderState.setSearchDeadline(Game.NO_DEADLINE);
+	}
+	
+	/**
+	 * Starts pondering on a background thread.
+	 */
+	public void start()
+	{
+		ponderThread = new Thread(this, "ponderer");
+		ponderThread.setDaemon(true);
+		ponderThread.start();
+	}
+	
+	/**
+	 * Stops pondering and waits for the background thread to finish. 
+	 */
+	public void stop()
+	{
+		ponderState.requestSearchStop();
+		
+		try 
+		{
+			ponderThread.join();
+		} 
+		catch (InterruptedException e) 
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	@Override
+	public void run()
+	{
+		List<Integer> opponentReplies = ponderState.getBlock(ponderState.getNextBlockToPlayIn()).getListOfEmptyCells();
+		
+		// After the opponent's reply, there is no point searching deeper than the number of empty cells left
+		int maxDepth = ponderState.getNumberOfEmptyCells() - 2;
+		
+		for (int depth = 1; depth <= maxDepth; depth++)
+		{
+			for (int opponentReply : opponentReplies)
+			{
+				long startTime = System.nanoTime();
+				ponderState.makeMove(opponentReply);
+				
+				int moveFound = 0;
+				if (!ponderState.isTerminalState() && ponderState.getBlock(ponderState.getNextBlockToPlayIn()).getEmptyPositions() != 0)
+					moveFound = ponderState.searchRootMoves(depth, ponderState.getOrderedRootMoves(bestMoveForReply[opponentReply]));
+				
+				if (!ponderState.isSearchAborted() && moveFound != 0)
+				{
+					bestMoveForReply[opponentReply] = moveFound;
+					depthForReply[opponentReply] = depth;
+					ponderState.storeSearchResult(depth + 1, ponderState.getRootScore(), TranspositionTable.EXACT, moveFound);
+				}
+				
+				ponderState.unmakeMove();
+				nanosSpentOnReply[opponentReply] += System.nanoTime() - startTime;
+				
+				if (ponderState.isSearchAborted())
+					return;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the best move found for this player if the opponent makes the given reply.
+	 * @param opponentReply	The position the opponent plays in
+	 * @return				The best move found, or 0 if no search of the reply finished.
+	 */
+	public int getBestMoveForReply(int opponentReply)
+	{
+		return bestMoveForReply[opponentReply];
+	}
+	
+	/**
+	 * Returns the depth of the deepest search of the given reply that finished.
+	 * @param opponentReply	The position the opponent plays in
+	 * @return				The depth reached, or 0 if no search of the reply finished.
+	 */
+	public int getDepthForReply(int opponentReply)
+	{
+		return depthForReply[opponentReply];
+	}
+	
+	/**
+	 * Returns the amount of time spent searching the given reply.
+	 * @param opponentReply	The position the opponent plays in
+	 * @return				The time spent, in milliseconds
+	 */
+	public long getTimeSpentOnReply(int opponentReply)
+	{
+		return nanosSpentOnReply[opponentReply] / 1000000L;
+	}
+}
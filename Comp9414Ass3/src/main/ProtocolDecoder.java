@@ -0,0 +1,286 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the commands sent by the game server straight from the bytes read from the socket,
+ * rather than reading each line into a String and parsing it.
+ *
+ * The bytes are given to the decoder as they arrive, in any number of reads, and a read can hold
+ * any number of commands, or part of one. Each byte moves a state machine on, and when the
+ * newline of a valid command is reached the command is packed into an int: the command in the
+ * lowest byte and each of its arguments in the bytes above it. That int is then passed to
+ * dispatch, which calls the ServerMessageHandler through a switch. Nothing is allocated.
+ *
+ * A line that isn't a valid command, e.g. an unknown command or a position of 0, is skipped up
+ * to its newline and counted, rather than throwing an exception, and the next line is decoded
+ * as normal. Only a '\r' just before the newline is allowed, and no other whitespace.
+ *
+ * @author Barry Skalrud
+ *
+ */
+public class ProtocolDecoder {
+	
+	public final static int START = 1;
+	public final static int SECOND_MOVE = 2;
+	public final static int THIRD_MOVE = 3;
+	public final static int NEXT_MOVE = 4;
+	public final static int LAST_MOVE = 5;
+	public final static int WIN = 6;
+	public final static int LOSS = 7;
+	public final static int DRAW = 8;
+	public final static int END = 9;
+	
+	/* The name of each command, indexed by the command */
+	private final static byte[][] COMMAND_NAMES = {
+		null,
+		"start".getBytes(),
+		"second_move".getBytes(),
+		"third_move".getBytes(),
+		"next_move".getBytes(),
+		"last_move".getBytes(),
+		"win".getBytes(),
+		"loss".getBytes(),
+		"draw".getBytes(),
+		"end".getBytes()
+	};
+	
+	/* The number of arguments of each command, indexed by the command */
+	private final static int[] ARGUMENT_COUNTS = {0, 1, 2, 3, 1, 1, 0, 0, 0, 0};
+	
+	private final static int MAX_NAME_LENGTH = 11;
+	
+	private final static String[] RESULTS = {"win.", "loss.", "draw."};
+	
+	private final static int STATE_NAME = 0;
+	private final static int STATE_ARGUMENT = 1;
+	private final static int STATE_AFTER_ARGUMENT = 2;
+	private final static int STATE_FULL_STOP = 3;
+	private final static int STATE_NEWLINE = 4;
+	private final static int STATE_MALFORMED = 5;
+	
+	private int state = STATE_NAME;
+	private byte[] name = new byte[MAX_NAME_LENGTH];
+	private int nameLength = 0;
+	private int command = 0;
+	private int argumentsRead = 0;
+	private int decodedCommand = 0;
+	
+	private long malformedLines = 0;
+	
+	/**
+	 * Decodes the bytes from the given buffer's position to its limit, dispatching each command
+	 * to the handler as soon as it is complete.
+	 * @param buffer		The bytes read from the server
+	 * @param handler		The handler of the commands
+	 * @throws IOException	If the handler couldn't send a reply
+	 */
+	public void decode(ByteBuffer buffer, ServerMessageHandler handler) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			if (decode(buffer.get()))
+				dispatch(decodedCommand, handler);
+		}
+	}
+	
+	/**
+	 * Decodes the given bytes, dispatching each command to the handler as soon as it is complete.
+	 * @param bytes			An array holding the bytes read from the server
+	 * @param offset		The index of the first byte to decode
+	 * @param length		The number of bytes to decode
+	 * @param handler		The handler of the commands
+	 * @throws IOException	If the handler couldn't send a reply
+	 */
+	public void decode(byte[] bytes, int offset, int length, ServerMessageHandler handler) throws IOException
+	{
+		for (int index = offset; index < offset + length; index++)
+		{
+			if (decode(bytes[index]))
+				dispatch(decodedCommand, handler);
+		}
+	}
+	
+	/**
+	 * Decodes one byte.
+	 * @param inByte	The next byte from the server
+	 * @return			True if the byte completed a command, which is then returned by getDecodedCommand
+	 */
+	public boolean decode(byte inByte)
+	{
+		if (inByte == '\n')
+			return endLine();
+		
+		switch (state)
+		{
+		case STATE_NAME:
+			if (inByte == '(' || inByte == '.')
+			{
+				command = findCommand();
+				if (command == 0 || (ARGUMENT_COUNTS[command] == 0) != (inByte == '.'))
+					state = STATE_MALFORMED;
+				else
+					state = (inByte == '.') ? STATE_NEWLINE : STATE_ARGUMENT;
+			}
+			else if (nameLength < MAX_NAME_LENGTH && ((inByte >= 'a' && inByte <= 'z') || inByte == '_'))
+			{
+				name[nameLength++] = inByte;
+			}
+			else
+			{
+				state = STATE_MALFORMED;
+			}
+			break;
+		case STATE_ARGUMENT:
+			int argument = decodeArgument(inByte);
+			if (argument == 0)
+			{
+				state = STATE_MALFORMED;
+			}
+			else
+			{
+				argumentsRead++;
+				command |= argument << (8 * argumentsRead);
+				state = STATE_AFTER_ARGUMENT;
+			}
+			break;
+		case STATE_AFTER_ARGUMENT:
+			boolean lastArgument = argumentsRead == ARGUMENT_COUNTS[command & 0xFF];
+			if (inByte == ',' && !lastArgument)
+				state = STATE_ARGUMENT;
+			else if (inByte == ')' && lastArgument)
+				state = STATE_FULL_STOP;
+			else
+				state = STATE_MALFORMED;
+			break;
+		case STATE_FULL_STOP:
+			state = (inByte == '.') ? STATE_NEWLINE : STATE_MALFORMED;
+			break;
+		case STATE_NEWLINE:
+			// Only a '\r' of a "\r\n" can come between the full stop and the newline
+			if (inByte != '\r')
+				state = STATE_MALFORMED;
+			break;
+		default:
+			// Skip the rest of a malformed line
+			break;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Finishes the current line, which is either a complete command, a malformed command or empty.
+	 * @return	True if the line was a complete command
+	 */
+	private boolean endLine()
+	{
+		boolean complete = state == STATE_NEWLINE;
+		if (complete)
+			decodedCommand = command;
+		else if (state != STATE_NAME || nameLength > 0)
+			malformedLines++;
+		
+		state = STATE_NAME;
+		nameLength = 0;
+		command = 0;
+		argumentsRead = 0;
+		return complete;
+	}
+	
+	/**
+	 * Returns the command whose name has been read, if there is one.
+	 * @return	The command, or 0 if the name isn't a command
+	 */
+	private int findCommand()
+	{
+		for (int candidate = START; candidate <= END; candidate++)
+		{
+			byte[] candidateName = COMMAND_NAMES[candidate];
+			if (candidateName.length != nameLength)
+				continue;
+			
+			int index = 0;
+			while (index < nameLength && name[index] == candidateName[index])
+				index++;
+			if (index == nameLength)
+				return candidate;
+		}
+		return 0;
+	}
+	
+	/**
+	 * Decodes an argument of the current command, which is a mark for start and a number from 1
+	 * to 9 for the others.
+	 * @param inByte	The byte of the argument
+	 * @return			The argument, where x is 1 and o is 2, or 0 if it isn't valid
+	 */
+	private int decodeArgument(byte inByte)
+	{
+		if ((command & 0xFF) == START)
+			return (inByte == 'x') ? 1 : (inByte == 'o') ? 2 : 0;
+		
+		return (inByte >= '1' && inByte <= '9') ? inByte - '0' : 0;
+	}
+	
+	/**
+	 * Calls the handler method of a decoded command.
+	 * @param packedCommand	The command, as returned by getDecodedCommand
+	 * @param handler		The handler of the command
+	 * @throws IOException	If the handler couldn't send a reply
+	 */
+	public static void dispatch(int packedCommand, ServerMessageHandler handler) throws IOException
+	{
+		int first = (packedCommand >>> 8) & 0xFF;
+		int second = (packedCommand >>> 16) & 0xFF;
+		int third = packedCommand >>> 24;
+		
+		switch (packedCommand & 0xFF)
+		{
+		case START:
+			handler.startGame((first == 1) ? PositionState.X : PositionState.O);
+			break;
+		case SECOND_MOVE:
+			handler.secondMove(first, second);
+			break;
+		case THIRD_MOVE:
+			handler.thirdMove(first, second, third);
+			break;
+		case NEXT_MOVE:
+			handler.nextMove(first);
+			break;
+		case LAST_MOVE:
+			handler.lastMove(first);
+			break;
+		case WIN:
+		case LOSS:
+		case DRAW:
+			handler.gameOver(RESULTS[(packedCommand & 0xFF) - WIN]);
+			break;
+		case END:
+			handler.endGame();
+			break;
+		default:
+			throw new IllegalArgumentException("Invalid command " + packedCommand);
+		}
+	}
+	
+	/**
+	 * Returns the last command completed by decode(byte), packed into an int.
+	 * @return	The command, which can be passed to dispatch
+	 */
+	public int getDecodedCommand()
+	{
+		return decodedCommand;
+	}
+	
+	/**
+	 * Returns the number of lines that have been skipped as they weren't valid commands.
+	 * @return	A long representing the number of malformed lines
+	 */
+	public long getMalformedLines()
+	{
+		return malformedLines;
+	}
+}
@@ -0,0 +1,98 @@
+package main;
+
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * 
+ * @author Barry Skalrud
+ * Compares the number of nodes searched by plain alpha-beta and by principal variation search 
+ * when searching the same positions to the same depth. The positions are reached by playing 
+ * random moves from a fixed seed, so every run searches the same positions.
+ *
+ */
+public class SearchComparison {
+	
+	private final static long POSITION_SEED = 9414;
+	
+	/**
+	 * Searches the position reached by the given random moves to the given depth with iterative 
+	 * deepening, using the given algorithm and an empty transposition table. 
+	 * @param searchAlgorithm	The algorithm to search with
+	 * @param randomMoves		The number of random moves to play before searching
+	 * @param positionNumber	Which of the positions with that many moves to search
+	 * @param depth				The depth to search to
+	 * @return					An array holding the move chosen and the number of nodes searched, or null 
+	 * if a random move ended the game or was sent to a full block
+	 */
+	public static long[] searchPosition(Player.SearchAlgorithm searchAlgorithm, int randomMoves, int positionNumber, int depth)
+	{
+		Random random = new Random(POSITION_SEED + positionNumber);
+		
+		Player player = new Player();
+		player.setSearchAlgorithm(searchAlgorithm);
+		player.initiateGame(PositionState.X);
+		
+		// Random moves are played until the player has the next move, so that it can search
+		Game position = player.getCurrentState();
+		int block = random.nextInt(9) + 1;
+		for (int i = 0; i < randomMoves || position.whoHasNextMove != PositionState.X; i++)
+		{
+			List<Integer> emptyCells = position.getBlock(block).getListOfEmptyCells();
+			if (emptyCells.isEmpty())
+				return null;
+			int move = emptyCells.get(random.nextInt(emptyCells.size()));
+			
+			if (position.whoHasNextMove == PositionState.X)
+				player.updateBoardWithPlayerMove(block, move);
+			else
+				player.makeOpponentMove(block, move);
+			
+			if (position.isTerminalState())
+				return null;
+			block = move;
+		}
+		
+		if (position.getBlock(block).getEmptyPositions() == 0)
+			return null;
+		
+		long nodesBefore = player.getNodesSearched();
+		int move = player.getNextMoveUsingIterativeDeepeningToDepth(depth);
+		
+		return new long[] {move, player.getNodesSearched() - nodesBefore};
+	}
+	
+	/**
+	 * Prints the nodes searched by each algorithm for a set of positions.
+	 * Usage: SearchComparison [depth] [positions]
+	 * @param args	The command line arguments
+	 */
+	public static void main(String[] args)
+	{
+		int depth = args.length > 0 ? Integer.valueOf(args[0]) : 8;
+		int positions = args.length > 1 ? Integer.valueOf(args[1]) : 20;
+		
+		long totalAlphaBetaNodes = 0;
+		long totalPrincipalVariationNodes = 0;
+		
+		System.out.println("position, alpha-beta move, alpha-beta nodes, pvs move, pvs nodes");
+		for (int positionNumber = 0; positionNumber < positions; positionNumber++)
+		{
+			int randomMoves = 4 + positionNumber % 8;
+			long[] alphaBeta = searchPosition(Player.SearchAlgorithm.ALPHA_BETA, randomMoves, positionNumber, depth);
+			long[] principalVariation = searchPosition(Player.SearchAlgorithm.PRINCIPAL_VARIATION, randomMoves, positionNumber, depth);
+			if (alphaBeta == null)
+				continue;
+			
+			totalAlphaBetaNodes += alphaBeta[1];
+			totalPrincipalVariationNodes += principalVariation[1];
+			
+			System.out.println(positionNumber + ", " + alphaBeta[0] + ", " + alphaBeta[1] + ", " 
+					+ principalVariation[0] + ", " + principalVariation[1]);
+		}
+		
+		System.out.println("Total: " + totalAlphaBetaNodes + " alpha-beta, " + totalPrincipalVariationNodes + " pvs ("
+				+ String.format("%.1f", 100.0 * totalPrincipalVariationNodes / totalAlphaBetaNodes) + "%)");
+	}
+}
@@ -0,0 +1,35 @@
+package main;
+
+/**
+ * A way of choosing the next move for the player controlled by this program. The player 
+ * passes its current game and the limits set for the search, and the engine returns the 
+ * move it would make along with some statistics about the search. 
+ * 
+ * An engine can keep anything it likes between searches, e.g. a tree or a table of results, 
+ * but should forget anything specific to a game when clear is called. 
+ * 
+ * @author Barry Skalrud
+ *
+ */
+public interface SearchEngine {
+	
+	/**
+	 * Searches for the best move for the player controlled by this program, who must have the 
+	 * next move in the given game.
+	 * @param position	The game to be searched. It must not be changed by the search.
+	 * @param limits	The limits on the depth, time, nodes and threads used by the search
+	 * @return			The move found and the statistics of the search. The move is 0 if no move 
+	 * could be found, e.g. because the game has finished.
+	 */
+	public SearchResult search(Game position, SearchLimits limits);
+	
+	/**
+	 * Forgets anything learnt in the current game, e.g. at the start of a new game.
+	 */
+	public void clear();
+	
+	/**
+	 * Stops any threads used by this engine. The engine can't be used after this is called.
+	 */
+	public void shutdown();
+}
@@ -0,0 +1,116 @@
+package main;
+
+/**
+ * The limits on the resources a SearchEngine can use to find a move. A limit of 0 on the 
+ * depth, time or nodes means that resource is not limited, but at least one of them must be 
+ * limited. It is up to the engine what a depth or node means, e.g. a Monte Carlo search 
+ * counts each playout as a node.
+ * 
+ * @author Barry Skalrud
+ *
+ */
+public class SearchLimits {
+	
+	public final static long DEFAULT_TIME_MILLIS = 1000;
+	
+	private int maxDepth = 0;
+	private long timeMillis = DEFAULT_TIME_MILLIS;
+	private long maxNodes = 0;
+	private int threads = 1;
+	
+	/**
+	 * Creates limits of one second on a single thread, with no limit on depth or nodes.
+	 */
+	public SearchLimits() {}
+	
+	/**
+	 * Creates a copy of the given limits.
+	 * @param copiedLimits	The limits to be copied
+	 */
+	public SearchLimits(SearchLimits copiedLimits)
+	{
+		maxDepth = copiedLimits.maxDepth;
+		timeMillis = copiedLimits.timeMillis;
+		maxNodes = copiedLimits.maxNodes;
+		threads = copiedLimits.threads;
+	}
+	
+	/**
+	 * Sets the deepest search that can be made.
+	 * @param inMaxDepth	The maximum depth, or 0 for no limit
+	 */
+	public void setMaxDepth(int inMaxDepth)
+	{
+		if (inMaxDepth < 0)
+			throw new IllegalArgumentException("The maximum depth can't be negative: " + inMaxDepth);
+		maxDepth = inMaxDepth;
+	}
+	
+	public int getMaxDepth()
+	{
+		return maxDepth;
+	}
+	
+	/**
+	 * Sets the amount of time the search can take.
+	 * @param inTimeMillis	The time in milliseconds, or 0 for no limit
+	 */
+	public void setTimeMillis(long inTimeMillis)
+	{
+		if (inTimeMillis < 0)
+			throw new IllegalArgumentException("The time can't be negative: " + inTimeMillis);
+		timeMillis = inTimeMillis;
+	}
+	
+	public long getTimeMillis()
+	{
+		return timeMillis;
+	}
+	
+	/**
+	 * Sets the number of nodes the search can visit.
+	 * @param inMaxNodes	The maximum number of nodes, or 0 for no limit
+	 */
+	public void setMaxNodes(long inMaxNodes)
+	{
+		if (inMaxNodes < 0)
+			throw new IllegalArgumentException("The maximum number of nodes can't be negative: " + inMaxNodes);
+		maxNodes = inMaxNodes;
+	}
+	
+	public long getMaxNodes()
+	{
+		return maxNodes;
+	}
+	
+	/**
+	 * Sets the number of threads the search can run on.
+	 * @param inThreads	The number of threads, at least 1
+	 */
+	public void setThreads(int inThreads)
+	{
+		if (inThreads < 1)
+			throw new IllegalArgumentException("There must be at least one search thread: " + inThreads);
+		threads = inThreads;
+	}
+	
+	public int getThreads()
+	{
+		return threads;
+	}
+	
+	/**
+	 * Returns whether the search would never stop with these limits.
+	 * @return	True if none of the depth, time and nodes are limited.
+	 */
+	public boolean isUnlimited()
+	{
+		return maxDepth == 0 && timeMillis == 0 && maxNodes == 0;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "depth " + maxDepth + ", time " + timeMillis + "ms, nodes " + maxNodes + ", threads " + threads;
+	}
+}
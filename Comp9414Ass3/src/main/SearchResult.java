@@ -0,0 +1,65 @@
+package main;
+
+/**
+ * The move chosen by a SearchEngine and the statistics of the search that chose it.
+ * 
+ * @author Barry Skalrud
+ *
+ */
+public class SearchResult {
+	
+	private int move;
+	private int score;
+	private int depthReached;
+	private long nodesSearched;
+	private long elapsedMillis;
+	
+	/**
+	 * Creates a search result.
+	 * @param inMove			The position of the move chosen (1-9), or 0 if there is none
+	 * @param inScore			The score of the move. What this means depends on the engine.
+	 * @param inDepthReached	The depth of the deepest search that finished
+	 * @param inNodesSearched	The number of nodes visited by the search
+	 * @param inElapsedMillis	The time taken by the search, in milliseconds
+	 */
+	public SearchResult(int inMove, int inScore, int inDepthReached, long inNodesSearched, long inElapsedMillis)
+	{
+		move = inMove;
+		score = inScore;
+		depthReached = inDepthReached;
+		nodesSearched = inNodesSearched;
+		elapsedMillis = inElapsedMillis;
+	}
+	
+	public int getMove()
+	{
+		return move;
+	}
+	
+	public int getScore()
+	{
+		return score;
+	}
+	
+	public int getDepthReached()
+	{
+		return depthReached;
+	}
+	
+	public long getNodesSearched()
+	{
+		return nodesSearched;
+	}
+	
+	public long getElapsedMillis()
+	{
+		return elapsedMillis;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "move " + move + ", score " + score + ", depth " + depthReached + ", nodes " + nodesSearched 
+				+ ", " + elapsedMillis + "ms";
+	}
+}
@@ -0,0 +1,331 @@
+package main;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts what this player's searches have done, so that their speed and the quality of the
+ * move ordering can be watched while the agent is running.
+ *
+ * Nothing is counted here while a search is running. Each search thread counts the nodes,
+ * leaf evaluations, cutoffs and transposition table probes of its own copy of the game in
+ * plain fields, and adds them to these totals once its search finishes, see addSearchCounts.
+ * The time taken to decide on each move, and the depth the search of it reached, are recorded
+ * once per move by recordMove.
+ *
+ * Statistics can be given a parent, which everything counted is also added to. The player
+ * keeps statistics for the current game whose parent holds the totals since the program
+ * started, so the current game's can be reset without losing the totals. The totals can be
+ * registered as an MBean, see registerMBean.
+ *
+ * @author Barry Skalrud
+ *
+ */
+public class SearchStatistics implements SearchStatisticsMBean {
+	
+	/* A move can be at most the ninth searched at a node */
+	private final static int MAX_MOVES_AT_NODE = 9;
+	
+	private SearchStatistics parent;
+	
+	private AtomicLong nodesSearched = new AtomicLong();
+	private AtomicLong leafEvaluations = new AtomicLong();
+	private AtomicLong betaCutoffs = new AtomicLong();
+	private AtomicLongArray betaCutoffsByMoveIndex = new AtomicLongArray(MAX_MOVES_AT_NODE);
+	private AtomicLong transpositionTableHits = new AtomicLong();
+	private AtomicLong transpositionTableMisses = new AtomicLong();
+	
+	/* The statistics of each move, which are only changed by recordMove */
+	private long movesSearched = 0;
+	private long totalDepthReached = 0;
+	private int maxDepthReached = 0;
+	private double totalEffectiveBranchingFactor = 0;
+	private long movesWithBranchingFactor = 0;
+	private long totalMoveNanos = 0;
+	private LatencyHistogram moveLatencies = new LatencyHistogram();
+	
+	/**
+	 * Creates statistics with nothing counted.
+	 */
+	public SearchStatistics()
+	{
+		this(null);
+	}
+	
+	/**
+	 * Creates statistics with nothing counted, which add everything counted to the given statistics too.
+	 * @param inParent	The statistics to add to, or null
+	 */
+	public SearchStatistics(SearchStatistics inParent)
+	{
+		parent = inParent;
+	}
+	
+	/**
+	 * Adds the counts of everything the searches of the given game have done to the totals. The
+	 * game should not be searched again afterwards, or its counts will be added twice.
+	 * @param searchedGame	The game that was searched
+	 */
+	public void addSearchCounts(Game searchedGame)
+	{
+		nodesSearched.addAndGet(searchedGame.getNodesSearched());
+		leafEvaluations.addAndGet(searchedGame.getLeafEvaluations());
+		betaCutoffs.addAndGet(searchedGame.getBetaCutoffs());
+		for (int moveIndex = 0; moveIndex < MAX_MOVES_AT_NODE; moveIndex++)
+			betaCutoffsByMoveIndex.addAndGet(moveIndex, searchedGame.getBetaCutoffsAtMoveIndex(moveIndex));
+		transpositionTableHits.addAndGet(searchedGame.getTranspositionTableHits());
+		transpositionTableMisses.addAndGet(searchedGame.getTranspositionTableMisses());
+		
+		if (parent != null)
+			parent.addSearchCounts(searchedGame);
+	}
+	
+	/**
+	 * Adds nodes searched by an engine that doesn't search copies of the game, e.g. the playouts
+	 * of a Monte Carlo tree search.
+	 * @param nodes		The number of nodes searched
+	 */
+	public void addNodesSearched(long nodes)
+	{
+		nodesSearched.addAndGet(nodes);
+		
+		if (parent != null)
+			parent.addNodesSearched(nodes);
+	}
+	
+	/**
+	 * Records the time taken to decide on a move and the result of the search that decided it.
+	 * @param result		The result of the search, or null if the move wasn't searched for
+	 * @param moveNanos		The time taken to decide on the move, in nanoseconds
+	 */
+	public void recordMove(SearchResult result, long moveNanos)
+	{
+		synchronized (this)
+		{
+			movesSearched++;
+			totalMoveNanos += moveNanos;
+			
+			if (result != null)
+			{
+				int depthReached = result.getDepthReached();
+				totalDepthReached += depthReached;
+				maxDepthReached = Math.max(maxDepthReached, depthReached);
+				
+				// The branching factor that would give the same number of nodes in a uniform tree
+				if (depthReached > 0 && result.getNodesSearched() > 1)
+				{
+					totalEffectiveBranchingFactor += Math.pow(result.getNodesSearched(), 1.0 / depthReached);
+					movesWithBranchingFactor++;
+				}
+			}
+		}
+		
+		moveLatencies.recordNanos(moveNanos);
+		
+		if (parent != null)
+			parent.recordMove(result, moveNanos);
+	}
+	
+	@Override
+	public synchronized long getMovesSearched()
+	{
+		return movesSearched;
+	}
+	
+	/**
+	 * Returns the number of nodes visited by all of the searches counted.
+	 * @return	A long representing the number of nodes searched.
+	 */
+	@Override
+	public long getNodesSearched()
+	{
+		return nodesSearched.get();
+	}
+	
+	/**
+	 * Returns the number of nodes whose value was given by the heuristic rather than by searching
+	 * their children, i.e. the leaves and the finished games.
+	 * @return	A long representing the number of leaf evaluations.
+	 */
+	@Override
+	public long getLeafEvaluations()
+	{
+		return leafEvaluations.get();
+	}
+	
+	@Override
+	public long getBetaCutoffs()
+	{
+		return betaCutoffs.get();
+	}
+	
+	/**
+	 * Returns the number of cutoffs caused by each move searched at a node, by the order the move
+	 * was searched in. With good move ordering, nearly all are caused by the first move.
+	 * @return	An array where element i is the number of cutoffs caused by the (i + 1)th move searched.
+	 */
+	@Override
+	public long[] getBetaCutoffsByMoveIndex()
+	{
+		long[] cutoffs = new long[MAX_MOVES_AT_NODE];
+		for (int moveIndex = 0; moveIndex < MAX_MOVES_AT_NODE; moveIndex++)
+			cutoffs[moveIndex] = betaCutoffsByMoveIndex.get(moveIndex);
+		return cutoffs;
+	}
+	
+	public long getFirstMoveBetaCutoffs()
+	{
+		return betaCutoffsByMoveIndex.get(0);
+	}
+	
+	@Override
+	public double getFirstMoveCutoffRate()
+	{
+		long cutoffs = betaCutoffs.get();
+		return cutoffs == 0 ? 0 : (double) betaCutoffsByMoveIndex.get(0) / cutoffs;
+	}
+	
+	@Override
+	public long getTranspositionTableHits()
+	{
+		return transpositionTableHits.get();
+	}
+	
+	@Override
+	public long getTranspositionTableMisses()
+	{
+		return transpositionTableMisses.get();
+	}
+	
+	@Override
+	public double getTranspositionTableHitRate()
+	{
+		long hits = transpositionTableHits.get();
+		long probes = hits + transpositionTableMisses.get();
+		return probes == 0 ? 0 : (double) hits / probes;
+	}
+	
+	@Override
+	public synchronized double getAverageDepthReached()
+	{
+		return movesSearched == 0 ? 0 : (double) totalDepthReached / movesSearched;
+	}
+	
+	@Override
+	public synchronized int getMaxDepthReached()
+	{
+		return maxDepthReached;
+	}
+	
+	/**
+	 * Returns the average effective branching factor of the moves searched, i.e. the number of
+	 * nodes searched to the power of one over the depth reached.
+	 * @return	A double representing the effective branching factor, or 0 if no move has been searched
+	 */
+	@Override
+	public synchronized double getEffectiveBranchingFactor()
+	{
+		return movesWithBranchingFactor == 0 ? 0 : totalEffectiveBranchingFactor / movesWithBranchingFactor;
+	}
+	
+	/**
+	 * Returns the number of nodes searched for each second spent deciding on moves.
+	 * @return	A long representing the nodes per second, or 0 if no move has been searched
+	 */
+	@Override
+	public long getNodesPerSecond()
+	{
+		long moveNanos;
+		synchronized (this)
+		{
+			moveNanos = totalMoveNanos;
+		}
+		return moveNanos == 0 ? 0 : (long) (nodesSearched.get() * 1e9 / moveNanos);
+	}
+	
+	@Override
+	public long getMoveTimeP50Millis()
+	{
+		return moveLatencies.getPercentileMicros(0.5) / 1000;
+	}
+	
+	@Override
+	public long getMoveTimeP99Millis()
+	{
+		return moveLatencies.getPercentileMicros(0.99) / 1000;
+	}
+	
+	/**
+	 * Returns the times taken to decide on each move.
+	 * @return	The LatencyHistogram the move times are recorded in
+	 */
+	public LatencyHistogram getMoveLatencies()
+	{
+		return moveLatencies;
+	}
+	
+	/**
+	 * Returns the main statistics on one line, e.g. to be printed at the end of a game.
+	 * @return	A String summarising the statistics.
+	 */
+	@Override
+	public String getSummary()
+	{
+		return String.format("moves=%d nodes=%d nodes/s=%d leaves=%d depth=%.1f/%d ebf=%.2f "
+				+ "cutoffs=%d first-move=%.1f%% tt-hits=%.1f%% p50=%dms p99=%dms",
+				getMovesSearched(), getNodesSearched(), getNodesPerSecond(), getLeafEvaluations(),
+				getAverageDepthReached(), getMaxDepthReached(), getEffectiveBranchingFactor(),
+				getBetaCutoffs(), 100 * getFirstMoveCutoffRate(), 100 * getTranspositionTableHitRate(),
+				getMoveTimeP50Millis(), getMoveTimeP99Millis());
+	}
+	
+	/**
+	 * Forgets everything counted by these statistics. Their parent's are kept.
+	 */
+	@Override
+	public void reset()
+	{
+		nodesSearched.set(0);
+		leafEvaluations.set(0);
+		betaCutoffs.set(0);
+		for (int moveIndex = 0; moveIndex < MAX_MOVES_AT_NODE; moveIndex++)
+			betaCutoffsByMoveIndex.set(moveIndex, 0);
+		transpositionTableHits.set(0);
+		transpositionTableMisses.set(0);
+		
+		synchronized (this)
+		{
+			movesSearched = 0;
+			totalDepthReached = 0;
+			maxDepthReached = 0;
+			totalEffectiveBranchingFactor = 0;
+			movesWithBranchingFactor = 0;
+			totalMoveNanos = 0;
+		}
+		
+		moveLatencies.clear();
+	}
+	
+	/**
+	 * Registers these statistics with the platform MBean server, under the name
+	 * main:type=SearchStatistics,name=<the given name>.
+	 * @param name	The name to register the statistics under, e.g. the port the agent is playing on
+	 * @throws IllegalStateException	If the statistics couldn't be registered, e.g. because the name is taken
+	 */
+	public void registerMBean(String name)
+	{
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+					new ObjectName("main:type=SearchStatistics,name=" + ObjectName.quote(name)));
+		}
+		catch (JMException e)
+		{
+			throw new IllegalStateException("Couldn't register the search statistics: " + e.getMessage(), e);
+		}
+	}
+}
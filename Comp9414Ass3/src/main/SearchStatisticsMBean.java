@@ -0,0 +1,45 @@
+package main;
+
+/**
+ * The management interface of SearchStatistics, so that the statistics of a running agent can
+ * be watched with a JMX client such as jconsole.
+ *
+ * @author Barry Skalrud
+ *
+ */
+public interface SearchStatisticsMBean {
+	
+	public long getMovesSearched();
+	
+	public long getNodesSearched();
+	
+	public long getLeafEvaluations();
+	
+	public long getBetaCutoffs();
+	
+	public long[] getBetaCutoffsByMoveIndex();
+	
+	public double getFirstMoveCutoffRate();
+	
+	public long getTranspositionTableHits();
+	
+	public long getTranspositionTableMisses();
+	
+	public double getTranspositionTableHitRate();
+	
+	public double getAverageDepthReached();
+	
+	public int getMaxDepthReached();
+	
+	public double getEffectiveBranchingFactor();
+	
+	public long getNodesPerSecond();
+	
+	public long getMoveTimeP50Millis();
+	
+	public long getMoveTimeP99Millis();
+	
+	public String getSummary();
+	
+	public void reset();
+}
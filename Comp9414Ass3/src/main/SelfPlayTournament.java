@@ -0,0 +1,466 @@
+package main;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Plays two configurations of the player against each other in this process, without a game
+ * server, to show whether a change has made the player stronger or weaker.
+ *
+ * Each configuration is given as the search options of the agent, see Agent.parseSearchOptions.
+ * The games are played on a pool of threads, each of which has its own pair of players. Each
+ * game starts with a number of random moves, and the games are played in pairs with the same
+ * opening and the players' marks swapped, so neither configuration is favoured by the openings.
+ *
+ * The results are tested with a sequential probability ratio test (SPRT) of whether player A
+ * is at least elo1 stronger than player B (H1) or no more than elo0 stronger (H0). The games
+ * stop as soon as either is accepted, which for a large difference takes far fewer games than
+ * a fixed number would. To check that a change costs no strength, player A can be the changed
+ * version with bounds such as -5 and 0.
+ *
+ * @author Barry Skalrud
+ *
+ */
+public class SelfPlayTournament {
+	
+	/**
+	 * The outcome of the sequential probability ratio test.
+	 */
+	public enum Verdict {
+		/* Not enough games have been played to accept either hypothesis */
+		UNDECIDED,
+		/* Player A is no more than elo0 stronger than player B */
+		H0_ACCEPTED,
+		/* Player A is at least elo1 stronger than player B */
+		H1_ACCEPTED
+	}
+	
+	/* The probability of accepting H1 when H0 is true, and of accepting H0 when H1 is true */
+	private final static double SPRT_ALPHA = 0.05;
+	private final static double SPRT_BETA = 0.05;
+	
+	public final static int DEFAULT_GAMES = 1000;
+	public final static int DEFAULT_OPENING_MOVES = 4;
+	public final static long DEFAULT_SEED = 9414;
+	public final static double DEFAULT_ELO0 = 0;
+	public final static double DEFAULT_ELO1 = 5;
+	
+	private final static int REPORT_INTERVAL_SECONDS = 10;
+	
+	private final static String USAGE = "Usage: SelfPlayTournament -a \"options\" -b \"options\" [-games n] [-threads n] "
+			+ "[-opening moves] [-seed n] [-elo0 elo] [-elo1 elo]";
+	
+	private String[] playerAOptions;
+	private String[] playerBOptions;
+	private int numberOfGames = DEFAULT_GAMES;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int openingMoves = DEFAULT_OPENING_MOVES;
+	private long seed = DEFAULT_SEED;
+	private double elo0 = DEFAULT_ELO0;
+	private double elo1 = DEFAULT_ELO1;
+	
+	private AtomicInteger nextGame = new AtomicInteger();
+	private int wins = 0;
+	private int draws = 0;
+	private int losses = 0;
+	private volatile Verdict verdict = Verdict.UNDECIDED;
+	private long startTime;
+	
+	/**
+	 * Creates a tournament between players with the given search options.
+	 * @param inPlayerAOptions	The options of player A, e.g. {"-e", "pvs", "-time", "50"}
+	 * @param inPlayerBOptions	The options of player B
+	 * @throws IllegalArgumentException	If the options of either player are not valid
+	 */
+	public SelfPlayTournament(String[] inPlayerAOptions, String[] inPlayerBOptions)
+	{
+		playerAOptions = inPlayerAOptions;
+		playerBOptions = inPlayerBOptions;
+		
+		// Check the options now, rather than on every thread once the games start
+		createPlayer(playerAOptions).shutdown();
+		createPlayer(playerBOptions).shutdown();
+	}
+	
+	public void setNumberOfGames(int inNumberOfGames)
+	{
+		numberOfGames = inNumberOfGames;
+	}
+	
+	/**
+	 * Sets the number of games played at the same time. Each player also uses the number of
+	 * search threads given in its options.
+	 * @param inThreads		The number of games to play at once, which must be at least 1
+	 */
+	public void setThreads(int inThreads)
+	{
+		if (inThreads < 1)
+			throw new IllegalArgumentException("Threads must be 1 or more");
+		threads = inThreads;
+	}
+	
+	/**
+	 * Sets the number of random moves each game starts with. The first move is always random,
+	 * as it is chosen by the game server in a real game.
+	 * @param inOpeningMoves	The number of random moves
+	 */
+	public void setOpeningMoves(int inOpeningMoves)
+	{
+		openingMoves = Math.max(1, inOpeningMoves);
+	}
+	
+	public void setSeed(long inSeed)
+	{
+		seed = inSeed;
+	}
+	
+	/**
+	 * Sets the hypotheses tested by the SPRT.
+	 * @param inElo0	The Elo difference of player A over player B under H0
+	 * @param inElo1	The Elo difference under H1, which must be more than inElo0
+	 */
+	public void setEloBounds(double inElo0, double inElo1)
+	{
+		if (inElo1 <= inElo0)
+			throw new IllegalArgumentException("elo1 must be more than elo0");
+		elo0 = inElo0;
+		elo1 = inElo1;
+	}
+	
+	/**
+	 * Plays the games, returning once they have all been played or the SPRT has accepted one
+	 * of the hypotheses.
+	 * @param reportProgress	True to print the results so far every few seconds
+	 * @throws InterruptedException	If the thread is interrupted while waiting for the games
+	 */
+	public void run(boolean reportProgress) throws InterruptedException
+	{
+		startTime = System.nanoTime();
+		ExecutorService gamePool = Executors.newFixedThreadPool(threads);
+		
+		for (int thread = 0; thread < threads; thread++)
+		{
+			gamePool.execute(new Runnable() {
+				@Override
+				public void run() {
+					playGames();
+				}
+			});
+		}
+		gamePool.shutdown();
+		
+		while (!gamePool.awaitTermination(REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS))
+		{
+			if (reportProgress)
+				System.out.println(getStatus());
+		}
+	}
+	
+	/**
+	 * Plays games on the calling thread until there are no more to play, with a pair of
+	 * players that are kept for all of the games.
+	 */
+	private void playGames()
+	{
+		Player playerA = createPlayer(playerAOptions);
+		Player playerB = createPlayer(playerBOptions);
+		
+		try
+		{
+			for (int game = nextGame.getAndIncrement(); game < numberOfGames && verdict == Verdict.UNDECIDED;
+					game = nextGame.getAndIncrement())
+			{
+				// Both games of a pair have the same opening, with player A playing X in the first
+				boolean playerAIsX = game % 2 == 0;
+				Random openingRandom = new Random(seed + game / 2);
+				
+				PositionState winner = playerAIsX
+						? playGame(playerA, playerB, openingRandom, openingMoves)
+						: playGame(playerB, playerA, openingRandom, openingMoves);
+				
+				if (winner == null)
+					recordResult(0, 1, 0);
+				else if ((winner == PositionState.X) == playerAIsX)
+					recordResult(1, 0, 0);
+				else
+					recordResult(0, 0, 1);
+			}
+		}
+		finally
+		{
+			playerA.shutdown();
+			playerB.shutdown();
+		}
+	}
+	
+	private synchronized void recordResult(int win, int draw, int loss)
+	{
+		// Games that finish after the test has accepted a hypothesis aren't counted, so the results match the verdict
+		if (verdict != Verdict.UNDECIDED)
+			return;
+		
+		wins += win;
+		draws += draw;
+		losses += loss;
+		
+		double logLikelihoodRatio = getLogLikelihoodRatio();
+		if (logLikelihoodRatio >= Math.log((1 - SPRT_BETA) / SPRT_ALPHA))
+			verdict = Verdict.H1_ACCEPTED;
+		else if (logLikelihoodRatio <= Math.log(SPRT_BETA / (1 - SPRT_ALPHA)))
+			verdict = Verdict.H0_ACCEPTED;
+	}
+	
+	private static Player createPlayer(String[] options)
+	{
+		Player player = new Player();
+		Agent.parseSearchOptions(options, 0, player);
+		return player;
+	}
+	
+	/**
+	 * Plays a game between the given players, as the game server would. The first moves are
+	 * chosen randomly, and the rest by the players. A player that makes an invalid move loses.
+	 * @param xPlayer		The player playing X, who moves first
+	 * @param oPlayer		The player playing O
+	 * @param random		The random numbers to choose the opening moves with
+	 * @param openingMoves	The number of random moves to start with
+	 * @return				The mark of the winner, or null if the game is drawn
+	 */
+	public static PositionState playGame(Player xPlayer, Player oPlayer, Random random, int openingMoves)
+	{
+		xPlayer.initiateGame(PositionState.X);
+		oPlayer.initiateGame(PositionState.O);
+		
+		Player playerToMove = xPlayer;
+		Player waitingPlayer = oPlayer;
+		int block = random.nextInt(9) + 1;
+		
+		for (int move = 0; move < openingMoves; move++)
+		{
+			List<Integer> emptyCells = playerToMove.getCurrentState().getBlock(block).getListOfEmptyCells();
+			if (emptyCells.isEmpty())
+				return null;
+			
+			int position = emptyCells.get(random.nextInt(emptyCells.size()));
+			playerToMove.updateBoardWithPlayerMove(block, position);
+			waitingPlayer.makeOpponentMove(block, position);
+			
+			if (playerToMove.getCurrentState().isTerminalState())
+				return playerToMove.getPlayersMark();
+			
+			block = position;
+			Player nextPlayerToMove = waitingPlayer;
+			waitingPlayer = playerToMove;
+			playerToMove = nextPlayerToMove;
+		}
+		
+		while (true)
+		{
+			// The game is drawn when the block to play in is full
+			Game waitingPlayersState = waitingPlayer.getCurrentState();
+			Block blockToPlayIn = waitingPlayersState.getBlock(waitingPlayersState.getNextBlockToPlayIn());
+			if (blockToPlayIn.getEmptyPositions() == 0)
+				return null;
+			
+			int position = playerToMove.decideNextMove();
+			if (position < 1 || position > 9 || !blockToPlayIn.isValidMove(position))
+				return waitingPlayer.getPlayersMark();
+			
+			waitingPlayer.makeOpponentMove(position);
+			
+			if (waitingPlayersState.isTerminalState())
+				return playerToMove.getPlayersMark();
+			
+			Player nextPlayerToMove = waitingPlayer;
+			waitingPlayer = playerToMove;
+			playerToMove = nextPlayerToMove;
+		}
+	}
+	
+	/**
+	 * Returns the log-likelihood ratio of H1 to H0, given the results so far, see the static
+	 * version of this method.
+	 * @return	A double representing the log-likelihood ratio
+	 */
+	public synchronized double getLogLikelihoodRatio()
+	{
+		return getLogLikelihoodRatio(wins, draws, losses, elo0, elo1);
+	}
+	
+	/**
+	 * Returns the log-likelihood ratio of the hypothesis that player A is elo1 stronger than
+	 * player B to the hypothesis that it is elo0 stronger. This uses the normal approximation
+	 * to the distribution of the mean score, with the variance taken from the results.
+	 * @param wins		The number of games won by player A
+	 * @param draws		The number of games drawn
+	 * @param losses	The number of games lost by player A
+	 * @param elo0		The Elo difference under H0
+	 * @param elo1		The Elo difference under H1
+	 * @return			A double representing the log-likelihood ratio, or 0 if the results
+	 * don't vary, e.g. when every game was drawn
+	 */
+	public static double getLogLikelihoodRatio(int wins, int draws, int losses, double elo0, double elo1)
+	{
+		int games = wins + draws + losses;
+		if (games == 0)
+			return 0;
+		
+		double score = (wins + draws / 2.0) / games;
+		double variance = (wins * (1 - score) * (1 - score) + draws * (0.5 - score) * (0.5 - score)
+				+ losses * score * score) / games;
+		if (variance == 0)
+			return 0;
+		
+		double score0 = getExpectedScore(elo0);
+		double score1 = getExpectedScore(elo1);
+		return (score1 - score0) * (2 * score - score0 - score1) / (2 * variance / games);
+	}
+	
+	/**
+	 * Returns the expected score per game of a player that is the given number of Elo points
+	 * stronger than its opponent.
+	 * @param elo	The Elo difference
+	 * @return		A double from 0 to 1
+	 */
+	private static double getExpectedScore(double elo)
+	{
+		return 1 / (1 + Math.pow(10, -elo / 400));
+	}
+	
+	/**
+	 * Returns the Elo difference of player A over player B suggested by the results so far.
+	 * @return	A double representing the Elo difference, which is infinite if one player won every game
+	 */
+	public synchronized double getEloDifference()
+	{
+		int games = wins + draws + losses;
+		if (games == 0)
+			return 0;
+		
+		double score = (wins + draws / 2.0) / games;
+		return -400 * Math.log10(1 / score - 1);
+	}
+	
+	public Verdict getVerdict()
+	{
+		return verdict;
+	}
+	
+	public synchronized int getWins()
+	{
+		return wins;
+	}
+	
+	public synchronized int getDraws()
+	{
+		return draws;
+	}
+	
+	public synchronized int getLosses()
+	{
+		return losses;
+	}
+	
+	public synchronized int getGamesPlayed()
+	{
+		return wins + draws + losses;
+	}
+	
+	/**
+	 * Returns the results so far on one line.
+	 * @return	A String with the games played and their rate, the results of player A, and the SPRT
+	 */
+	public synchronized String getStatus()
+	{
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		return String.format("games=%d games/s=%.2f A: +%d =%d -%d elo=%.1f llr=%.2f [%.2f, %.2f] %s",
+				getGamesPlayed(), getGamesPlayed() / seconds, wins, draws, losses, getEloDifference(),
+				getLogLikelihoodRatio(), Math.log(SPRT_BETA / (1 - SPRT_ALPHA)),
+				Math.log((1 - SPRT_BETA) / SPRT_ALPHA), verdict);
+	}
+	
+	public static void main(String[] args) throws InterruptedException
+	{
+		String[] playerAOptions = null;
+		String[] playerBOptions = null;
+		int numberOfGames = DEFAULT_GAMES;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int openingMoves = DEFAULT_OPENING_MOVES;
+		long seed = DEFAULT_SEED;
+		double elo0 = DEFAULT_ELO0;
+		double elo1 = DEFAULT_ELO1;
+		
+		SelfPlayTournament tournament;
+		try
+		{
+			for (int argument = 0; argument < args.length; argument++)
+			{
+				String option = args[argument];
+				if (argument + 1 >= args.length)
+					throw new IllegalArgumentException("Missing value for " + option);
+				String value = args[++argument];
+				
+				switch (option)
+				{
+				case "-a":
+					playerAOptions = splitOptions(value);
+					break;
+				case "-b":
+					playerBOptions = splitOptions(value);
+					break;
+				case "-games":
+					numberOfGames = Integer.valueOf(value);
+					break;
+				case "-threads":
+					threads = Integer.valueOf(value);
+					break;
+				case "-opening":
+					openingMoves = Integer.valueOf(value);
+					break;
+				case "-seed":
+					seed = Long.valueOf(value);
+					break;
+				case "-elo0":
+					elo0 = Double.valueOf(value);
+					break;
+				case "-elo1":
+					elo1 = Double.valueOf(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option " + option);
+				}
+			}
+			
+			if (playerAOptions == null || playerBOptions == null)
+				throw new IllegalArgumentException("Both -a and -b must be given");
+			
+			tournament = new SelfPlayTournament(playerAOptions, playerBOptions);
+			tournament.setNumberOfGames(numberOfGames);
+			tournament.setThreads(threads);
+			tournament.setOpeningMoves(openingMoves);
+			tournament.setSeed(seed);
+			tournament.setEloBounds(elo0, elo1);
+		}
+		catch (IllegalArgumentException e)
+		{
+			// This includes a NumberFormatException from an invalid number
+			System.out.println(e.getMessage());
+			System.out.println(USAGE);
+			return;
+		}
+		
+		tournament.run(true);
+		System.out.println(tournament.getStatus());
+	}
+	
+	private static String[] splitOptions(String options)
+	{
+		String trimmedOptions = options.trim();
+		return trimmedOptions.isEmpty() ? new String[0] : trimmedOptions.split("\\s+");
+	}
+}
@@ -0,0 +1,17 @@
+package main;
+
+/**
+ * A connection to the game server that the Controller can send this player's moves through, 
+ * see TCPConnection and NioConnection.
+ * 
+ * @author Barry Skalrud
+ *
+ */
+public interface ServerConnection {
+	
+	/**
+	 * Sends the position of this player's move to the game server, on a line of its own.
+	 * @param position	The position of the move in the block being played in (1-9)
+	 */
+	public void sendMoveToServer(int position);
+}
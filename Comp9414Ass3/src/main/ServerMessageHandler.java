@@ -0,0 +1,61 @@
+package main;
+
+import java.io.IOException;
+
+/**
+ * Handles the commands sent by the game server, once they have been decoded, see
+ * ProtocolDecoder. Blocks and positions are numbered 1 to 9.
+ *
+ * @author Barry Skalrud
+ *
+ */
+public interface ServerMessageHandler {
+	
+	/**
+	 * start(x). or start(o).
+	 * @param mark	The mark this player is using
+	 */
+	public void startGame(PositionState mark);
+	
+	/**
+	 * second_move(b,p). The opponent has made the first move.
+	 * @param blockNumber		The block the opponent played in
+	 * @param positionNumber	The position the opponent played
+	 * @throws IOException		If the reply can't be sent
+	 */
+	public void secondMove(int blockNumber, int positionNumber) throws IOException;
+	
+	/**
+	 * third_move(b,p,q). The server made this player's first move, at p in block b, and the
+	 * opponent replied at q in block p.
+	 * @param blockNumber				The block of this player's first move
+	 * @param positionNumber			The position of this player's first move
+	 * @param opponentsPositionNumber	The position of the opponent's reply
+	 * @throws IOException				If the reply can't be sent
+	 */
+	public void thirdMove(int blockNumber, int positionNumber, int opponentsPositionNumber) throws IOException;
+	
+	/**
+	 * next_move(p). The opponent has played at p in the block this player's last move sent them to.
+	 * @param positionNumber	The position the opponent played
+	 * @throws IOException		If the reply can't be sent
+	 */
+	public void nextMove(int positionNumber) throws IOException;
+	
+	/**
+	 * last_move(p). The opponent's move at p ended the game, and no reply is wanted.
+	 * @param positionNumber	The position the opponent played
+	 */
+	public void lastMove(int positionNumber);
+	
+	/**
+	 * win., loss. or draw.
+	 * @param result	The message, e.g. win.
+	 */
+	public void gameOver(String result);
+	
+	/**
+	 * end. The server has finished with this connection.
+	 */
+	public void endGame();
+}
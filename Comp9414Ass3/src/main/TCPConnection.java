@@ -1,22 +1,29 @@
 package main;
 
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.Socket;
 
-public class TCPConnection {
+public class TCPConnection implements ServerConnection {
 
 	private Socket clientSocket;
+	private OutputStream outToServer;
 	private Controller gameController;
 	private int serverPort;
+	
+	/* A move is a digit and a newline, which are written from this array so nothing is allocated */
+	private byte[] moveMessage = {'0', '\n'};
+	
+	/* The messages from the server are read into this array and decoded from it, see ProtocolDecoder */
+	private byte[] inputBuffer = new byte[4096];
+	private ProtocolDecoder decoder = new ProtocolDecoder();
 
 	
 	public TCPConnection(int inPort, Controller inController)  {
 		serverPort = inPort;
 		gameController = inController;
-		gameController.setTCPConnection(this);
+		gameController.setServerConnection(this);
 	}
 
 	/**
@@ -29,11 +36,22 @@ public class TCPConnection {
 		try 
 		{
 			clientSocket = new Socket("localhost", serverPort);
-			BufferedReader inFromServer = new BufferedReader(
-					new InputStreamReader(clientSocket.getInputStream()));
+			
+			// Moves are sent as soon as they are written, rather than waiting to be combined with more data
+			clientSocket.setTcpNoDelay(true);
+			outToServer = clientSocket.getOutputStream();
+			InputStream inFromServer = clientSocket.getInputStream();
 			while (gameController.isGameActive()) {
-				String newLine = inFromServer.readLine();
-				gameController.translateMessageFromServer(newLine);
+				int bytesRead = inFromServer.read(inputBuffer);
+				
+				// The server has closed the connection
+				if (bytesRead == -1)
+					break;
+				
+				if (Agent.debugMode)
+					System.out.print("Message from server: " + new String(inputBuffer, 0, bytesRead));
+				
+				decoder.decode(inputBuffer, 0, bytesRead, gameController);
 			}
 		} 
 		catch (IOException e) 
@@ -50,23 +68,23 @@ public class TCPConnection {
 	}
 	
 	/**
-	 * Sends a string to the game server. In all cases this should be a move consisting of a single character.
-	 * @param outMove		The message to be sent to the server, e.g. "4"
-	 * @throws IOException	Exception thrown if there is an issue with sending data to the server. 
+	 * Sends a move to the game server. 
+	 * @param position		The position of the move, e.g. 4
 	 */
-	public void sendMoveToServer(String outMove)  
+	@Override
+	public void sendMoveToServer(int position)  
 	{
 		if (Agent.debugMode)
-			System.out.println("Message sent to server: " + outMove);
+			System.out.println("Message sent to server: " + position);
 		
 		try 
 		{
-			DataOutputStream outToServer = new DataOutputStream(clientSocket.getOutputStream());
-			outToServer.writeBytes(outMove + '\n');
+			moveMessage[0] = (byte) ('0' + position);
+			outToServer.write(moveMessage);
 		} 
 		catch (IOException e)
 		{
-			System.out.println("Unable to send messgae:" +  outMove + ", to server");
+			System.out.println("Unable to send messgae:" +  position + ", to server");
 		}
 	}
 
@@ -0,0 +1,276 @@
+package main;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * A fixed size hash table of the results of previous searches, keyed by the Zobrist key 
+ * of the position that was searched. 
+ * 
+ * Each entry is packed into a single long so that the table is just two primitive arrays. 
+ * An entry stores the remaining depth of the search, the score that was found, whether 
+ * that score is exact or only a lower or upper bound and the best move that was found. 
+ * An entry of 0 means that the slot is empty. 
+ * 
+ * The table can be shared by several search threads without locking. Each slot stores the 
+ * key XORed with the entry, and a probe only accepts the entry if XORing them gives back 
+ * the key that was asked for. If two threads write the same slot at the same time and the 
+ * key and entry of the slot end up coming from different writes, the check fails and the 
+ * slot is treated as empty. 
+ * 
+ * The deeper entries can be saved to a snapshot file and loaded into another table, so that 
+ * a player started later begins with the results of earlier games. A snapshot holds the key 
+ * and entry of each slot saved, after a header like that of an OpeningBook, and is memory 
+ * mapped when it is loaded. 
+ * 
+ * @author Barry Skalrud
+ *
+ */
+public class TranspositionTable {
+
+	/**
+	 * Decides whether a new result should overwrite the entry already in its slot.
+	 */
+	public enum ReplacementPolicy {
+		/* The newest result always replaces the existing entry */
+		ALWAYS_REPLACE,
+		/* A different position only replaces the existing entry if it was searched at least as deeply */
+		DEPTH_PREFERRED
+	}
+	
+	public final static int EXACT = 1;
+	public final static int LOWER_BOUND = 2;
+	public final static int UPPER_BOUND = 3;
+	
+	public final static int DEFAULT_SIZE = 1 << 20;
+	
+	/* Layout of an entry: score in bits 0-31, depth in bits 32-39, bound in bits 40-41 
+	 * and best move in bits 42-45. As the bound is never 0, any stored entry is non-zero. 
+	 */
+	private final static int DEPTH_SHIFT = 32;
+	private final static int BOUND_SHIFT = 40;
+	private final static int BEST_MOVE_SHIFT = 42;
+	
+	private final static int SNAPSHOT_MAGIC = 0x54545331;
+	private final static int SNAPSHOT_VERSION = 2;
+	private final static int SNAPSHOT_HEADER_SIZE = 24;
+	private final static int SNAPSHOT_ENTRY_SIZE = 16;
+	
+	private long[] keys;
+	private long[] entries;
+	private int indexMask;
+	private ReplacementPolicy replacementPolicy;
+	
+	/**
+	 * Creates a table with the default size and the depth preferred replacement policy. 
+	 */
+	public TranspositionTable()
+	{
+		this(DEFAULT_SIZE, ReplacementPolicy.DEPTH_PREFERRED);
+	}
+	
+	/**
+	 * Creates a new, empty table. 
+	 * @param size					The number of entries in the table, which must be a power of 2
+	 * @param inReplacementPolicy	The policy used when a result is stored in a slot that is already used
+	 */
+	public TranspositionTable(int size, ReplacementPolicy inReplacementPolicy)
+	{
+		if (size <= 0 || Integer.bitCount(size) != 1)
+			throw new IllegalArgumentException("Transposition table size must be a power of 2, not " + size);
+		
+		keys = new long[size];
+		entries = new long[size];
+		indexMask = size - 1;
+		replacementPolicy = inReplacementPolicy;
+	}
+	
+	/**
+	 * Looks up the entry for the given position. 
+	 * @param key	The Zobrist key of the position
+	 * @return		The packed entry for the position, or 0 if there isn't one. 
+	 */
+	public long probe(long key)
+	{
+		int index = (int) key & indexMask;
+		long entry = entries[index];
+		
+		if ((keys[index] ^ entry) != key)
+			return 0;
+		
+		return entry;
+	}
+	
+	/**
+	 * Stores the result of a search, subject to the replacement policy. 
+	 * @param key		The Zobrist key of the position that was searched
+	 * @param depth		The remaining depth of the search
+	 * @param score		The score that was found
+	 * @param bound		One of EXACT, LOWER_BOUND or UPPER_BOUND
+	 * @param bestMove	The best move that was found (1-9), or 0 if there wasn't one
+	 */
+	public void store(long key, int depth, int score, int bound, int bestMove)
+	{
+		int index = (int) key & indexMask;
+		long existingEntry = entries[index];
+		boolean samePosition = (keys[index] ^ existingEntry) == key;
+		
+		if (replacementPolicy == ReplacementPolicy.DEPTH_PREFERRED && existingEntry != 0
+				&& !samePosition && getDepth(existingEntry) > depth)
+			return;
+		
+		/* Keep the best move that is already known if this search didn't find one */
+		if (bestMove == 0 && samePosition && existingEntry != 0)
+			bestMove = getBestMove(existingEntry);
+		
+		long entry = (score & 0xFFFFFFFFL)
+				| ((long) depth << DEPTH_SHIFT)
+				| ((long) bound << BOUND_SHIFT)
+				| ((long) bestMove << BEST_MOVE_SHIFT);
+		
+		entries[index] = entry;
+		keys[index] = key ^ entry;
+	}
+	
+	/**
+	 * Writes the entries searched to at least the given depth to a snapshot file. The file is 
+	 * written beside the given one and then renamed, so that a table loading the snapshot at 
+	 * the same time never sees a partly written file. 
+	 * @param file		The snapshot file to write
+	 * @param minDepth	The least remaining depth of an entry that is saved
+	 * @return			The number of entries saved
+	 * @throws IOException	If the file can't be written
+	 */
+	public int writeSnapshot(File file, int minDepth) throws IOException
+	{
+		int numberOfEntries = 0;
+		for (int index = 0; index < entries.length; index++)
+		{
+			if (entries[index] != 0 && getDepth(entries[index]) >= minDepth)
+				numberOfEntries++;
+		}
+		
+		File partFile = File.createTempFile(file.getName(), ".part", file.getAbsoluteFile().getParentFile());
+		try
+		{
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partFile))))
+			{
+				output.writeInt(SNAPSHOT_MAGIC);
+				output.writeInt(SNAPSHOT_VERSION);
+				output.writeLong(ZobristKeys.getKeysCheck());
+				output.writeInt(numberOfEntries);
+				output.writeInt(0);
+				
+				// Entries written by another thread since they were counted are left out
+				int entriesWritten = 0;
+				for (int index = 0; index < entries.length && entriesWritten < numberOfEntries; index++)
+				{
+					long entry = entries[index];
+					if (entry != 0 && getDepth(entry) >= minDepth)
+					{
+						output.writeLong(keys[index] ^ entry);
+						output.writeLong(entry);
+						entriesWritten++;
+					}
+				}
+				for (; entriesWritten < numberOfEntries; entriesWritten++)
+				{
+					output.writeLong(0);
+					output.writeLong(0);
+				}
+			}
+			
+			Files.move(partFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally
+		{
+			partFile.delete();
+		}
+		
+		return numberOfEntries;
+	}
+	
+	/**
+	 * Adds the entries in a snapshot file to this table, subject to the replacement policy. 
+	 * The table can be a different size from the one that was saved. 
+	 * @param file	The snapshot file, written by writeSnapshot
+	 * @return		The number of entries in the snapshot
+	 * @throws IOException	If the file can't be read, or isn't a snapshot for this version of the player
+	 */
+	public int loadSnapshot(File file) throws IOException
+	{
+		try (RandomAccessFile snapshotFile = new RandomAccessFile(file, "r"))
+		{
+			MappedByteBuffer buffer = snapshotFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, snapshotFile.length());
+			
+			if (buffer.capacity() < SNAPSHOT_HEADER_SIZE || buffer.getInt(0) != SNAPSHOT_MAGIC)
+				throw new IOException(file + " is not a transposition table snapshot");
+			if (buffer.getInt(4) != SNAPSHOT_VERSION)
+				throw new IOException(file + " is version " + buffer.getInt(4) + " of the snapshot, not " + SNAPSHOT_VERSION);
+			if (buffer.getLong(8) != ZobristKeys.getKeysCheck())
+				throw new IOException(file + " was made with different Zobrist keys");
+			
+			int numberOfEntries = buffer.getInt(16);
+			if (numberOfEntries < 0 || buffer.capacity() != SNAPSHOT_HEADER_SIZE + (long) numberOfEntries * SNAPSHOT_ENTRY_SIZE)
+				throw new IOException(file + " is not complete");
+			
+			for (int entryNumber = 0; entryNumber < numberOfEntries; entryNumber++)
+			{
+				int offset = SNAPSHOT_HEADER_SIZE + entryNumber * SNAPSHOT_ENTRY_SIZE;
+				long entry = buffer.getLong(offset + 8);
+				if (entry != 0)
+					store(buffer.getLong(offset), getDepth(entry), getScore(entry), getBound(entry), getBestMove(entry));
+			}
+			
+			return numberOfEntries;
+		}
+	}
+	
+	/**
+	 * Removes every entry from the table.
+	 */
+	public void clear()
+	{
+		Arrays.fill(keys, 0);
+		Arrays.fill(entries, 0);
+	}
+	
+	public ReplacementPolicy getReplacementPolicy()
+	{
+		return replacementPolicy;
+	}
+	
+	public void setReplacementPolicy(ReplacementPolicy inReplacementPolicy)
+	{
+		replacementPolicy = inReplacementPolicy;
+	}
+	
+	public static int getScore(long entry)
+	{
+		return (int) entry;
+	}
+	
+	public static int getDepth(long entry)
+	{
+		return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+	}
+	
+	public static int getBound(long entry)
+	{
+		return (int) (entry >>> BOUND_SHIFT) & 0x3;
+	}
+	
+	public static int getBestMove(long entry)
+	{
+		return (int) (entry >>> BEST_MOVE_SHIFT) & 0xF;
+	}
+}
@@ -0,0 +1,134 @@
+package main;
+
+import java.util.Random;
+
+/**
+ * The random keys used to calculate a Zobrist hash of a Game. The key of a game is the XOR 
+ * of the key of every mark on the board, the key of the block that is to be played in next, 
+ * the key of the block that was last played in and, if O has the next move, the side to 
+ * move key. Because XOR is its own inverse, the key can be updated incrementally as each 
+ * move is made. 
+ * 
+ * The keys are generated from a fixed seed so that the key of a position is the same from 
+ * one run of the program to the next.
+ * 
+ * The keys are also provided for each symmetry of the board, see BoardSymmetry, so that the 
+ * key of a rotated or reflected position can be kept up to date in the same way. The key of 
+ * a mark under a symmetry is the key of the cell the symmetry moves it to. 
+ * 
+ * @author Barry Skalrud
+ *
+ */
+public final class ZobristKeys {
+
+	private final static long SEED = 9414L;
+	
+	/* Indexed by [mark][block number][position] */
+	private final static long[][][] MARK_KEYS = new long[2][10][10];
+	private final static long[] NEXT_BLOCK_KEYS = new long[10];
+	private final static long[] LAST_BLOCK_KEYS = new long[10];
+	private final static long O_TO_MOVE_KEY;
+	
+	/* Indexed by [symmetry][mark][block number][position] and [symmetry][block number] */
+	private final static long[][][][] SYMMETRIC_MARK_KEYS = new long[BoardSymmetry.NUMBER_OF_SYMMETRIES][2][10][10];
+	private final static long[][] SYMMETRIC_NEXT_BLOCK_KEYS = new long[BoardSymmetry.NUMBER_OF_SYMMETRIES][10];
+	private final static long[][] SYMMETRIC_LAST_BLOCK_KEYS = new long[BoardSymmetry.NUMBER_OF_SYMMETRIES][10];
+	
+	static 
+	{
+		Random random = new Random(SEED);
+		
+		for (int mark = 0; mark < 2; mark++)
+			for (int block = 1; block <= 9; block++)
+				for (int position = 1; position <= 9; position++)
+					MARK_KEYS[mark][block][position] = random.nextLong();
+		
+		/* Index 0 is used before any move has been made, so it gets a key as well */
+		for (int block = 0; block <= 9; block++)
+		{
+			NEXT_BLOCK_KEYS[block] = random.nextLong();
+			LAST_BLOCK_KEYS[block] = random.nextLong();
+		}
+		
+		O_TO_MOVE_KEY = random.nextLong();
+		
+		for (int symmetry = 0; symmetry < BoardSymmetry.NUMBER_OF_SYMMETRIES; symmetry++)
+		{
+			for (int cell = 0; cell < BoardSymmetry.NUMBER_OF_CELLS; cell++)
+			{
+				int mappedCell = BoardSymmetry.mapCell(symmetry, cell);
+				for (int mark = 0; mark < 2; mark++)
+					SYMMETRIC_MARK_KEYS[symmetry][mark][cell / 9 + 1][cell % 9 + 1] = MARK_KEYS[mark][mappedCell / 9 + 1][mappedCell % 9 + 1];
+			}
+			
+			for (int block = 0; block <= 9; block++)
+			{
+				SYMMETRIC_NEXT_BLOCK_KEYS[symmetry][block] = NEXT_BLOCK_KEYS[BoardSymmetry.mapPosition(symmetry, block)];
+				SYMMETRIC_LAST_BLOCK_KEYS[symmetry][block] = LAST_BLOCK_KEYS[BoardSymmetry.mapPosition(symmetry, block)];
+			}
+		}
+	}
+	
+	private ZobristKeys() {}
+	
+	/**
+	 * Returns the key for a mark in a given cell of the board.
+	 * @param mark			The mark in the cell, X or O
+	 * @param blockNumber	The block containing the cell (1-9)
+	 * @param position		The position of the cell in the block (1-9)
+	 * @return				A long representing the key of the mark in that cell.
+	 */
+	public static long getMarkKey(PositionState mark, int blockNumber, int position)
+	{
+		return MARK_KEYS[mark.ordinal()][blockNumber][position];
+	}
+	
+	public static long getNextBlockKey(int blockNumber)
+	{
+		return NEXT_BLOCK_KEYS[blockNumber];
+	}
+	
+	public static long getLastBlockKey(int blockNumber)
+	{
+		return LAST_BLOCK_KEYS[blockNumber];
+	}
+	
+	public static long getOToMoveKey()
+	{
+		return O_TO_MOVE_KEY;
+	}
+	
+	/**
+	 * Returns the key for a mark in a given cell of the board once a symmetry is applied to it.
+	 * @param symmetry		The symmetry (0-7), see BoardSymmetry
+	 * @param mark			The mark in the cell, X or O
+	 * @param blockNumber	The block containing the cell (1-9)
+	 * @param position		The position of the cell in the block (1-9)
+	 * @return				A long representing the key of the mark in the cell it is moved to.
+	 */
+	public static long getMarkKey(int symmetry, PositionState mark, int blockNumber, int position)
+	{
+		return SYMMETRIC_MARK_KEYS[symmetry][mark.ordinal()][blockNumber][position];
+	}
+	
+	public static long getNextBlockKey(int symmetry, int blockNumber)
+	{
+		return SYMMETRIC_NEXT_BLOCK_KEYS[symmetry][blockNumber];
+	}
+	
+	public static long getLastBlockKey(int symmetry, int blockNumber)
+	{
+		return SYMMETRIC_LAST_BLOCK_KEYS[symmetry][blockNumber];
+	}
+	
+	/**
+	 * Returns a value that changes whenever the keys do, so that files holding keys made by 
+	 * another version of the program, such as an OpeningBook, aren't used.
+	 * @return	A long combining some of the keys
+	 */
+	public static long getKeysCheck()
+	{
+		return O_TO_MOVE_KEY ^ getMarkKey(PositionState.X, 1, 1) ^ getMarkKey(PositionState.O, 9, 9) 
+				^ getNextBlockKey(5);
+	}
+}
@@ -7,6 +7,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import main.Block;
+import main.BlockStateTable;
 import main.Player;
 import main.PositionState;
 
@@ -196,14 +197,19 @@ public class BlockTest {
 		testBlock.setPosition(6, currentPlayer);
 		testBlock.setPosition(4, opponent);
 		
-		assertEquals("hashtable should give back -1", -1, testPlayer.getHeuristcValueIfExists(testBlock));
 		// heuristic should be -180
 		assertEquals("opponent wins", -180, testBlock.calculateHeuristicValue());
+		assertEquals("table should give back the same value", -180, BlockStateTable.getHeuristicValue(currentPlayer, testBlock.getStateIndex()));
 		
 		
 		Block newBlock = new Block(testBlock);
 		
-		assertEquals("hashtable should give back the right heuristic value", testBlock.calculateHeuristicValue(), testPlayer.getHeuristcValueIfExists(newBlock) );
+		assertEquals("copy should have the same state index", testBlock.getStateIndex(), newBlock.getStateIndex());
+		assertEquals("copy should give back the right heuristic value", testBlock.calculateHeuristicValue(), newBlock.calculateHeuristicValue());
+		
+		newBlock.setPosition(4, PositionState.E);
+		
+		assertEquals("clearing a position should update the state index", 1, newBlock.calculateHeuristicValue());
 		
 	}
 			
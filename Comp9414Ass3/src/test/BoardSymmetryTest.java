@@ -0,0 +1,78 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import main.BlockStateTable;
+import main.BoardSymmetry;
+import main.Game;
+import main.Player;
+import main.PositionState;
+import main.TranspositionTable;
+
+import org.junit.Test;
+
+public class BoardSymmetryTest {
+	
+	@Test
+	public void testBlockValuesAreSymmetric()
+	{
+		for (int stateIndex = 0; stateIndex < BlockStateTable.NUM_STATES; stateIndex++)
+		{
+			for (int symmetry = 0; symmetry < BoardSymmetry.NUMBER_OF_SYMMETRIES; symmetry++)
+			{
+				int mappedStateIndex = BoardSymmetry.mapStateIndex(symmetry, stateIndex);
+				assertEquals(BlockStateTable.getHeuristicValue(PositionState.X, stateIndex), 
+						BlockStateTable.getHeuristicValue(PositionState.X, mappedStateIndex));
+				assertEquals(stateIndex, BoardSymmetry.mapStateIndex(BoardSymmetry.getInverse(symmetry), mappedStateIndex));
+			}
+		}
+	}
+	
+	@Test
+	public void testRotatedPositionSharesEntry()
+	{
+		Player testPlayer = new Player();
+		testPlayer.initiateGame(PositionState.X);
+		Game game = new Game(testPlayer);
+		Game rotatedGame = new Game(testPlayer);
+		int rotation = 1;
+		
+		int[][] moves = {{1, 2}, {2, 6}, {6, 5}};
+		for (int[] move : moves)
+		{
+			game.setMove(game.whoHasNextMove, move[0], move[1]);
+			rotatedGame.setMove(rotatedGame.whoHasNextMove, BoardSymmetry.mapPosition(rotation, move[0]), 
+					BoardSymmetry.mapPosition(rotation, move[1]));
+		}
+		
+		assertTrue(game.getPositionKey() != rotatedGame.getPositionKey());
+		assertEquals(game.getCanonicalKey(), rotatedGame.getCanonicalKey());
+		
+		// The best move found for one is rotated for the other
+		game.storeSearchResult(5, 30, TranspositionTable.EXACT, 3);
+		assertEquals(3, game.getStoredBestMove());
+		assertEquals(BoardSymmetry.mapPosition(rotation, 3), rotatedGame.getStoredBestMove());
+	}
+	
+	@Test
+	public void testSymmetricRootMovesSearchedOnce()
+	{
+		Player testPlayer = new Player();
+		testPlayer.initiateGame(PositionState.O);
+		Game game = new Game(testPlayer);
+		
+		// Every symmetry leaves a mark in the middle of the middle block where it is
+		game.setMove(PositionState.X, 5, 5);
+		List<Integer> rootMoves = game.getOrderedRootMoves(0);
+		assertEquals("a corner and an edge", 2, rootMoves.size());
+		
+		// Only the reflection in the diagonal through 1, 5 and 9 leaves this unchanged
+		game.setMove(PositionState.O, 5, 1);
+		game.setMove(PositionState.X, 1, 5);
+		rootMoves = game.getOrderedRootMoves(0);
+		assertEquals("2, 3 and 6 are reflections of 4, 7 and 8", 4, rootMoves.size());
+		assertTrue(rootMoves.contains(2) != rootMoves.contains(4));
+	}
+}
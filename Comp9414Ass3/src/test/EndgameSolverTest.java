@@ -0,0 +1,166 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import main.EndgameSolver;
+import main.Game;
+import main.Player;
+import main.PositionState;
+import main.SearchResult;
+
+import org.junit.Test;
+
+public class EndgameSolverTest {
+	
+	private final static int[][] LINES = {{1, 2, 3}, {4, 5, 6}, {7, 8, 9}, {1, 4, 7}, {2, 5, 8}, {3, 6, 9}, {1, 5, 9}, {3, 5, 7}};
+	
+	/* A win with the move at ply n scores WIN_SCORE - n in the reference search */
+	private final static int WIN_SCORE = 100;
+	
+	@Test
+	public void testImmediateWinFound()
+	{
+		Player player = new Player();
+		player.initiateGame(PositionState.X);
+		Game game = player.getCurrentState();
+		game.setMove(PositionState.X, 1, 5);
+		game.setMove(PositionState.O, 5, 1);
+		game.setMove(PositionState.X, 1, 9);
+		game.setMove(PositionState.O, 9, 1);
+		
+		EndgameSolver solver = new EndgameSolver();
+		SearchResult result = solver.solve(game, 1000);
+		assertEquals(1, result.getMove());
+		assertEquals(EndgameSolver.WIN, result.getScore());
+		assertEquals(1, solver.getPliesToWin());
+	}
+	
+	@Test
+	public void testOutcomesMatchFullSearch()
+	{
+		Player player = new Player();
+		Random random = new Random(9414);
+		int positionsChecked = 0;
+		
+		while (positionsChecked < 30)
+		{
+			Game game = createRandomGame(player, random, 20 + random.nextInt(20));
+			if (game == null)
+				continue;
+			
+			// Positions the solver finds hard take far too long to search without a transposition table
+			EndgameSolver solver = new EndgameSolver(1 << 10);
+			SearchResult result = solver.solve(game, 10000);
+			if (result == null)
+				continue;
+			
+			int blockToPlayIn = game.getNextBlockToPlayIn();
+			int score = solveWithoutTable(game, game.whoHasNextMove, blockToPlayIn, 0, -WIN_SCORE, WIN_SCORE);
+			assertEquals(Integer.signum(score), result.getScore());
+			assertEquals(score > 0 ? WIN_SCORE - score : 0, solver.getPliesToWin());
+			
+			// The move found must achieve the outcome, and a win must be the quickest
+			int move = result.getMove();
+			int moverPositions = game.getBlock(blockToPlayIn).getPositions(game.whoHasNextMove) | (1 << move);
+			if (!isWinningPositions(moverPositions))
+			{
+				game.getBlock(blockToPlayIn).setPosition(move, game.whoHasNextMove);
+				int moveScore = -solveWithoutTable(game, opponentOf(game.whoHasNextMove), move, 1, -WIN_SCORE, WIN_SCORE);
+				if (score > 0)
+					assertEquals(score, moveScore);
+				else
+					assertEquals(Integer.signum(score), Integer.signum(moveScore));
+			}
+			else
+				assertEquals(WIN_SCORE - 1, score);
+			positionsChecked++;
+		}
+	}
+	
+	@Test
+	public void testGivesUpAtNodeLimit()
+	{
+		Player player = new Player();
+		Game game = null;
+		Random random = new Random(1);
+		while (game == null)
+			game = createRandomGame(player, random, 70);
+		
+		assertNull(new EndgameSolver().solve(game, 100));
+	}
+	
+	/**
+	 * Starts a new game for the player and plays random moves until it has the given number 
+	 * of empty cells.
+	 * @return	The game, or null if it finished first
+	 */
+	private static Game createRandomGame(Player player, Random random, int emptyCells)
+	{
+		player.initiateGame(PositionState.X);
+		Game game = player.getCurrentState();
+		int block = 1 + random.nextInt(9);
+		
+		while (game.getNumberOfEmptyCells() > emptyCells)
+		{
+			List<Integer> emptyPositions = game.getBlock(block).getListOfEmptyCells();
+			if (emptyPositions.isEmpty())
+				return null;
+			
+			int position = emptyPositions.get(random.nextInt(emptyPositions.size()));
+			game.setMove(game.whoHasNextMove, block, position);
+			if (game.isTerminalState())
+				return null;
+			block = position;
+		}
+		
+		return game.getBlock(block).getEmptyPositions() == 0 ? null : game;
+	}
+	
+	/* A plain alpha-beta negamax of how soon the game is decided, which only changes the blocks and not the rest of the game */
+	private static int solveWithoutTable(Game game, PositionState mover, int block, int ply, int alpha, int beta)
+	{
+		int emptyPositions = game.getBlock(block).getEmptyPositions();
+		if (emptyPositions == 0)
+			return EndgameSolver.DRAW;
+		
+		int bestScore = -WIN_SCORE;
+		for (int position = 1; position <= 9 && alpha < beta; position++)
+		{
+			if ((emptyPositions & (1 << position)) == 0)
+				continue;
+			
+			int score;
+			if (isWinningPositions(game.getBlock(block).getPositions(mover) | (1 << position)))
+				score = WIN_SCORE - (ply + 1);
+			else
+			{
+				game.getBlock(block).setPosition(position, mover);
+				score = -solveWithoutTable(game, opponentOf(mover), position, ply + 1, -beta, -alpha);
+				game.getBlock(block).setPosition(position, PositionState.E);
+			}
+			bestScore = Math.max(bestScore, score);
+			alpha = Math.max(alpha, score);
+		}
+		
+		return bestScore;
+	}
+	
+	private static boolean isWinningPositions(int positions)
+	{
+		for (int[] line : LINES)
+		{
+			int lineMask = (1 << line[0]) | (1 << line[1]) | (1 << line[2]);
+			if ((positions & lineMask) == lineMask)
+				return true;
+		}
+		return false;
+	}
+	
+	private static PositionState opponentOf(PositionState mark)
+	{
+		return mark == PositionState.X ? PositionState.O : PositionState.X;
+	}
+}
@@ -0,0 +1,99 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.Socket;
+
+import main.GameServer;
+
+import org.junit.Test;
+
+public class GameServerTest {
+	
+	private final static String[] SHALLOW_OPTIONS = {"-time", "0", "-depth", "2"};
+	
+	@Test(timeout = 60000)
+	public void testAgentsPlayScriptedOpponent() throws IOException, InterruptedException
+	{
+		GameServer server = new GameServer(0);
+		server.setOpponent(GameServer.Opponent.RANDOM);
+		server.setNumberOfGames(4);
+		server.setSeed(1);
+		server.start();
+		server.startAgents(2, SHALLOW_OPTIONS);
+		
+		server.awaitGames();
+		server.stop();
+		
+		assertEquals(4, server.getGamesFinished());
+		assertTrue(server.getMoveLatencies().getCount() >= 4);
+		assertTrue(server.getStatus().contains("forfeits=0"));
+	}
+	
+	@Test(timeout = 60000)
+	public void testAgentsPlayEachOther() throws IOException, InterruptedException
+	{
+		GameServer server = new GameServer(0);
+		server.setNumberOfGames(2);
+		server.start();
+		server.startAgents(2, SHALLOW_OPTIONS);
+		
+		server.awaitGames();
+		server.stop();
+		
+		assertEquals(2, server.getGamesFinished());
+		assertTrue(server.getStatus().contains("forfeits=0"));
+		
+		// Stopping the server shuts down the agents' search pool, whose idle threads then end
+		long deadline = System.currentTimeMillis() + 5000;
+		while (isSearchThreadAlive() && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		assertFalse("the agents' search threads should end", isSearchThreadAlive());
+	}
+	
+	@Test(timeout = 60000)
+	public void testInvalidMoveForfeitsGame() throws IOException, InterruptedException
+	{
+		GameServer server = new GameServer(0);
+		server.setOpponent(GameServer.Opponent.RANDOM);
+		server.setNumberOfGames(1);
+		server.start();
+		
+		Socket socket = new Socket("localhost", server.getPort());
+		BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+		PrintStream output = new PrintStream(socket.getOutputStream(), true);
+		
+		String message = input.readLine();
+		assertTrue(message, message.startsWith("start("));
+		
+		// Reply to every request for a move with a position that isn't on the board
+		String lastMessage = message;
+		for (message = input.readLine(); message != null; message = input.readLine())
+		{
+			if (message.contains("_move(") && !message.startsWith("last_move"))
+				output.println("0");
+			lastMessage = message;
+		}
+		socket.close();
+		
+		server.awaitGames();
+		server.stop();
+		
+		assertEquals("end.", lastMessage);
+		assertTrue(server.getStatus().contains("forfeits=1"));
+	}
+	
+	private static boolean isSearchThreadAlive()
+	{
+		for (Thread thread : Thread.getAllStackTraces().keySet())
+		{
+			if (thread.getName().startsWith("search-") && thread.isAlive())
+				return true;
+		}
+		return false;
+	}
+}
@@ -1,6 +1,11 @@
 package test;
 
 
+import main.Game;
+import main.MoveOrderingHistory;
+import main.Player;
+import main.PositionState;
+
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -13,4 +18,72 @@ public class GameTest {
 	{
 		
 	}
+	
+	@Test
+	public void testMakeAndUnmakeMove()
+	{
+		Player testPlayer = new Player();
+		testPlayer.initiateGame(PositionState.X);
+		Game testGame = testPlayer.getCurrentState();
+		
+		testGame.setMove(PositionState.X, 5, 3);
+		int heuristicBefore = testGame.heuristicFunctionValueOfGame();
+		
+		testGame.makeMove(7);
+		
+		assertEquals("move should be made in block 3", 'o', testGame.getBlock(3).getPosition(7));
+		assertEquals("next block should be 7", 7, testGame.getNextBlockToPlayIn());
+		assertEquals("X should be next", PositionState.X, testGame.whoHasNextMove);
+		
+		testGame.makeMove(1);
+		testGame.unmakeMove();
+		testGame.unmakeMove();
+		
+		assertTrue("cell should be empty again", testGame.getBlock(3).isValidMove(7));
+		assertTrue("cell should be empty again", testGame.getBlock(7).isValidMove(1));
+		assertEquals("next block should be restored", 3, testGame.getNextBlockToPlayIn());
+		assertEquals("last block should be restored", 5, testGame.getLastBlockPlayedIn());
+		assertEquals("O should be next again", PositionState.O, testGame.whoHasNextMove);
+		assertEquals("heuristic should be restored", heuristicBefore, testGame.heuristicFunctionValueOfGame());
+	}
+	
+	@Test
+	public void testKillerMoveTriedFirst()
+	{
+		// Without a killer move, the first move tried causes the cutoff and becomes the killer
+		int normalFirstMove = getFirstMoveTriedAtPlyOne(new Player(), 0);
+		
+		Player testPlayer = new Player();
+		int killerMove = (normalFirstMove == 1) ? 2 : 1;
+		assertEquals(killerMove, getFirstMoveTriedAtPlyOne(testPlayer, killerMove));
+		assertEquals("no other move should have caused a cutoff", 0, testPlayer.getMoveOrderingHistory().getKillerMove(1, 1));
+	}
+	
+	/**
+	 * Searches a position one move from the root with a window that the first move tried 
+	 * falls outside of, so that it causes a cutoff and is recorded as the killer move. 
+	 * @param testPlayer	A new player to search with
+	 * @param killerMove	The killer move to record at ply 1 before searching, or 0 for none
+	 * @return				The most recent killer move at ply 1 after the search
+	 */
+	private static int getFirstMoveTriedAtPlyOne(Player testPlayer, int killerMove)
+	{
+		testPlayer.initiateGame(PositionState.X);
+		Game testGame = testPlayer.getCurrentState();
+		testGame.setMove(PositionState.X, 5, 3);
+		testGame.setSearchDeadline(Game.NO_DEADLINE);
+		testGame.makeMove(7);
+		
+		// The cutoff is recorded in another block, so the history doesn't favour the move in block 7
+		MoveOrderingHistory history = testPlayer.getMoveOrderingHistory();
+		if (killerMove != 0)
+			history.recordCutoff(1, testGame.whoHasNextMove, 1, killerMove, 1);
+		
+		if (testGame.isOpponentPlaying())
+			testGame.alphaBetaSearchResult(1, Integer.MAX_VALUE - 1, Integer.MAX_VALUE);
+		else
+			testGame.alphaBetaSearchResult(1, Integer.MIN_VALUE, Integer.MIN_VALUE + 1);
+		
+		return history.getKillerMove(1, 0);
+	}
 }
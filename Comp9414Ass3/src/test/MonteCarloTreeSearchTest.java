@@ -0,0 +1,65 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import main.Game;
+import main.MonteCarloTreeSearch;
+import main.Player;
+import main.PositionState;
+
+import org.junit.Test;
+
+public class MonteCarloTreeSearchTest {
+	
+	/**
+	 * Sets up a game where X is to move in block 5 and can win by playing in position 3.
+	 */
+	private Game initialiseGame()
+	{
+		Player testPlayer = new Player();
+		testPlayer.initiateGame(PositionState.X);
+		Game testGame = testPlayer.getCurrentState();
+		
+		testGame.setMove(PositionState.X, 5, 1);
+		testGame.setMove(PositionState.O, 1, 5);
+		testGame.setMove(PositionState.X, 5, 2);
+		testGame.setMove(PositionState.O, 2, 5);
+		return testGame;
+	}
+	
+	@Test
+	public void testFindsWinningMove()
+	{
+		MonteCarloTreeSearch search = new MonteCarloTreeSearch(1, 1 << 16);
+		
+		assertEquals(3, search.search(initialiseGame(), Game.NO_DEADLINE, 20000));
+		search.shutdown();
+	}
+	
+	@Test
+	public void testFindsWinningMoveWithSeveralThreads()
+	{
+		MonteCarloTreeSearch search = new MonteCarloTreeSearch(4, 1 << 16);
+		
+		assertEquals(3, search.search(initialiseGame(), Game.NO_DEADLINE, 20000));
+		search.shutdown();
+	}
+	
+	@Test
+	public void testTreeIsReusedAfterTwoMoves()
+	{
+		MonteCarloTreeSearch search = new MonteCarloTreeSearch(1, 1 << 16);
+		Game testGame = initialiseGame();
+		
+		search.search(testGame, Game.NO_DEADLINE, 20000);
+		int nodesUsed = search.getNodesUsed();
+		
+		testGame.setMove(PositionState.X, 5, 9);
+		testGame.setMove(PositionState.O, 9, 1);
+		search.search(testGame, Game.NO_DEADLINE, 64);
+		
+		assertTrue("the tree should not be cleared", search.getNodesUsed() >= nodesUsed);
+		search.shutdown();
+	}
+
+}
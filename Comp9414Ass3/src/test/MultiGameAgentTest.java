@@ -0,0 +1,77 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import main.GameServer;
+import main.MultiGameAgent;
+
+import org.junit.Test;
+
+public class MultiGameAgentTest {
+	
+	@Test(timeout = 60000)
+	public void testSessionsPlayUntilServerStops() throws IOException, InterruptedException
+	{
+		GameServer server = new GameServer(0);
+		server.setOpponent(GameServer.Opponent.RANDOM);
+		server.setNumberOfGames(6);
+		server.start();
+		
+		MultiGameAgent multiGameAgent = new MultiGameAgent(server.getPort(), new String[] {"-time", "0", "-depth", "2"});
+		multiGameAgent.setSearchConcurrency(2);
+		multiGameAgent.start(3);
+		
+		server.awaitGames();
+		server.stop();
+		multiGameAgent.awaitSessions();
+		
+		assertEquals(6, server.getGamesFinished());
+		assertEquals(6, multiGameAgent.getGamesPlayed());
+		assertTrue(server.getStatus().contains("forfeits=0"));
+		
+		// Players are reused by later games, so there is at most one for each session
+		assertTrue(multiGameAgent.getPlayersCreated() <= 3);
+	}
+	
+	@Test(timeout = 60000)
+	public void testSessionsPlayWithNio() throws IOException, InterruptedException
+	{
+		GameServer server = new GameServer(0);
+		server.setOpponent(GameServer.Opponent.RANDOM);
+		server.setNumberOfGames(6);
+		server.start();
+		
+		MultiGameAgent multiGameAgent = new MultiGameAgent(server.getPort(), new String[] {"-time", "0", "-depth", "2"});
+		multiGameAgent.setSearchConcurrency(2);
+		multiGameAgent.setUseNio(true);
+		multiGameAgent.start(3);
+		
+		server.awaitGames();
+		server.stop();
+		multiGameAgent.awaitSessions();
+		
+		assertEquals(6, server.getGamesFinished());
+		assertEquals(6, multiGameAgent.getGamesPlayed());
+		assertTrue(server.getStatus().contains("forfeits=0"));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidOptionsRejected()
+	{
+		new MultiGameAgent(0, new String[] {"-threads", "none"});
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testPonderingRejected()
+	{
+		new MultiGameAgent(0, new String[] {"-time", "0", "-depth", "2", "-ponder"});
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testSearchThreadsRejected()
+	{
+		new MultiGameAgent(0, new String[] {"-time", "0", "-depth", "2", "-threads", "2"});
+	}
+}
@@ -0,0 +1,79 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import main.OpeningBook;
+import main.OpeningBookGenerator;
+import main.Player;
+import main.PositionState;
+
+import org.junit.Test;
+
+public class OpeningBookTest {
+	
+	private final static String[] SHALLOW_OPTIONS = {"-time", "0", "-depth", "2"};
+	
+	@Test
+	public void testBookHasEveryGeneratedMove() throws IOException, InterruptedException
+	{
+		OpeningBookGenerator generator = new OpeningBookGenerator(SHALLOW_OPTIONS);
+		generator.setPlies(3);
+		generator.setThreads(2);
+		Map<Long, Integer> bookMoves = generator.generate();
+		
+		// O's first move after each of X's 81, and X's first move after each of O's replies
+		assertTrue(bookMoves.size() > 81);
+		
+		File bookFile = File.createTempFile("book", ".bin");
+		bookFile.deleteOnExit();
+		OpeningBook.write(bookFile, bookMoves);
+		OpeningBook book = OpeningBook.load(bookFile);
+		
+		assertEquals(bookMoves.size(), book.getNumberOfEntries());
+		for (Map.Entry<Long, Integer> bookMove : bookMoves.entrySet())
+			assertEquals(bookMove.getValue().intValue(), book.getMove(bookMove.getKey()));
+		
+		// The empty board is never in the book, as the server makes the first move
+		Player player = new Player();
+		player.initiateGame(PositionState.X);
+		assertEquals(0, book.getMove(player.getCurrentState().getPositionKey()));
+	}
+	
+	@Test
+	public void testPlayerPlaysBookMove() throws IOException, InterruptedException
+	{
+		OpeningBookGenerator generator = new OpeningBookGenerator(SHALLOW_OPTIONS);
+		generator.setPlies(2);
+		File bookFile = File.createTempFile("book", ".bin");
+		bookFile.deleteOnExit();
+		OpeningBook.write(bookFile, generator.generate());
+		
+		Player player = new Player();
+		player.setOpeningBook(OpeningBook.load(bookFile));
+		player.initiateGame(PositionState.O);
+		player.makeOpponentMove(5, 3);
+		
+		int bookMove = player.getOpeningBook().getMove(player.getCurrentState().getPositionKey());
+		assertTrue(bookMove >= 1 && bookMove <= 9);
+		assertEquals(bookMove, player.decideNextMove());
+		player.shutdown();
+	}
+	
+	@Test(expected = IOException.class)
+	public void testOtherFileRejected() throws IOException
+	{
+		File notABook = File.createTempFile("book", ".bin");
+		notABook.deleteOnExit();
+		try (FileOutputStream output = new FileOutputStream(notABook))
+		{
+			output.write(new byte[64]);
+		}
+		
+		OpeningBook.load(notABook);
+	}
+}
@@ -1,10 +1,107 @@
 package test;
 
+import static org.junit.Assert.*;
+
+import main.Agent;
+import main.MonteCarloTreeSearch;
+import main.Player;
+import main.PositionState;
+import main.SearchResult;
+
 import org.junit.Test;
 
 public class PlayerTest {
 	
 	
-	 
+	private Player initialisePlayer(int searchThreads)
+	{
+		Player testPlayer = new Player();
+		testPlayer.initiateGame(PositionState.O);
+		testPlayer.setSearchThreads(searchThreads);
+		
+		testPlayer.makeOpponentMove(5, 1);
+		testPlayer.updateBoardWithPlayerMove(1, 5);
+		testPlayer.makeOpponentMove(5, 9);
+		testPlayer.updateBoardWithPlayerMove(9, 1);
+		testPlayer.makeOpponentMove(1, 3);
+		return testPlayer;
+	}
+	
+	@Test
+	public void testParallelSearchChoosesSameMoveAsSerialSearch()
+	{
+		Player serialPlayer = initialisePlayer(1);
+		Player parallelPlayer = initialisePlayer(4);
+		
+		for (int depth = 1; depth <= 6; depth++)
+			assertEquals("depth " + depth, serialPlayer.getNextMoveUsingAlphaBeta(depth), parallelPlayer.getNextMoveUsingAlphaBeta(depth));
+		
+		parallelPlayer.setSearchThreads(1);
+	}
+	
+	@Test
+	public void testPrincipalVariationSearchChoosesSameMoveAsAlphaBeta()
+	{
+		Player alphaBetaPlayer = initialisePlayer(1);
+		Player principalVariationPlayer = initialisePlayer(1);
+		principalVariationPlayer.setSearchAlgorithm(Player.SearchAlgorithm.PRINCIPAL_VARIATION);
+		
+		for (int depth = 1; depth <= 8; depth++)
+		{
+			assertEquals("depth " + depth, alphaBetaPlayer.getNextMoveUsingIterativeDeepeningToDepth(depth), 
+					principalVariationPlayer.getNextMoveUsingIterativeDeepeningToDepth(depth));
+			assertEquals("depth " + depth, alphaBetaPlayer.getLastSearchScore(), principalVariationPlayer.getLastSearchScore());
+		}
+	}
+
+	@Test
+	public void testSearchOptionsChooseEngineAndLimits()
+	{
+		Player testPlayer = initialisePlayer(1);
+		Agent.parseSearchOptions(new String[] {"-e", "mcts", "-time", "0", "-nodes", "5000", "-threads", "2"}, 0, testPlayer);
+		
+		assertTrue(testPlayer.getSearchEngine() instanceof MonteCarloTreeSearch);
+		assertEquals(5000, testPlayer.getSearchLimits().getMaxNodes());
+		assertEquals(2, testPlayer.getSearchThreads());
+		
+		testPlayer.setSearchAlgorithm(Player.SearchAlgorithm.ALPHA_BETA);
+		testPlayer.getSearchLimits().setThreads(1);
+	}
+	
+	@Test
+	public void testLazySmpSearchReportsScore()
+	{
+		Player serialPlayer = initialisePlayer(1);
+		Player lazySmpPlayer = initialisePlayer(1);
+		Agent.parseSearchOptions(new String[] {"-time", "0", "-depth", "5"}, 0, serialPlayer);
+		Agent.parseSearchOptions(new String[] {"-time", "0", "-depth", "5", "-threads", "2", "-parallel", "lazysmp"}, 0, lazySmpPlayer);
+		
+		serialPlayer.getNextMove(serialPlayer.getSearchLimits());
+		lazySmpPlayer.getNextMove(lazySmpPlayer.getSearchLimits());
+		
+		assertEquals(5, lazySmpPlayer.getLastSearchResult().getDepthReached());
+		assertEquals(serialPlayer.getLastSearchScore(), lazySmpPlayer.getLastSearchScore());
+		lazySmpPlayer.shutdown();
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testSearchOptionsRejectUnknownEngine()
+	{
+		Agent.parseSearchOptions(new String[] {"-e", "minimax"}, 0, new Player());
+	}
+	
+	@Test
+	public void testNodeLimitStopsSearch()
+	{
+		Player testPlayer = initialisePlayer(1);
+		testPlayer.getSearchLimits().setTimeMillis(0);
+		testPlayer.getSearchLimits().setMaxNodes(20000);
+		
+		testPlayer.decideNextMove();
+		SearchResult result = testPlayer.getLastSearchResult();
+		
+		assertTrue("move should be found", result.getMove() != 0);
+		assertTrue("nodes searched: " + result.getNodesSearched(), result.getNodesSearched() < 20000 + 2048);
+	}
 
 }
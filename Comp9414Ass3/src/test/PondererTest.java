@@ -0,0 +1,75 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import main.Game;
+import main.Player;
+import main.Ponderer;
+import main.PositionState;
+
+import org.junit.Test;
+
+public class PondererTest {
+	
+	private final static long PONDER_TIMEOUT_MILLIS = 10000;
+	
+	/* Sets up a game in which this player has just moved and the opponent must play in block 1 */
+	private Player initialisePlayer()
+	{
+		Player testPlayer = new Player();
+		testPlayer.initiateGame(PositionState.O);
+		
+		testPlayer.makeOpponentMove(5, 1);
+		testPlayer.updateBoardWithPlayerMove(1, 5);
+		testPlayer.makeOpponentMove(5, 9);
+		testPlayer.updateBoardWithPlayerMove(9, 1);
+		return testPlayer;
+	}
+	
+	@Test
+	public void testBestMoveForReplyStoredInTable() throws InterruptedException
+	{
+		Player player = initialisePlayer();
+		Game game = player.getCurrentState();
+		int reply = 3;
+		
+		Ponderer ponderer = new Ponderer(game);
+		ponderer.start();
+		long deadline = System.currentTimeMillis() + PONDER_TIMEOUT_MILLIS;
+		while (ponderer.getDepthForReply(reply) < 2 && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		ponderer.stop();
+		
+		assertTrue("the reply should have been searched", ponderer.getDepthForReply(reply) >= 2);
+		
+		game.makeMove(reply);
+		assertEquals(ponderer.getBestMoveForReply(reply), game.getStoredBestMove());
+		game.unmakeMove();
+		player.shutdown();
+	}
+	
+	@Test
+	public void testStopPonderingEndsThread() throws InterruptedException
+	{
+		Player player = initialisePlayer();
+		player.setPonderingEnabled(true);
+		player.startPondering();
+		
+		Thread.sleep(50);
+		assertTrue("the ponderer should still be searching", isPonderThreadAlive());
+		
+		player.stopPondering(0);
+		assertFalse(isPonderThreadAlive());
+		player.shutdown();
+	}
+	
+	private static boolean isPonderThreadAlive()
+	{
+		for (Thread thread : Thread.getAllStackTraces().keySet())
+		{
+			if (thread.getName().equals("ponderer") && thread.isAlive())
+				return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,194 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import main.Controller;
+import main.PositionState;
+import main.ProtocolDecoder;
+
+import org.junit.Test;
+
+public class ProtocolDecoderTest {
+	
+	private final static String GAME = "start(x).\nthird_move(5,1,9).\nnext_move(3).\nnext_move(7).\nlast_move(2).\nloss.\nend.\n";
+	
+	private final static String[] GAME_CALLS = {"start X", "third 5 1 9", "next 3", "next 7", "last 2", "over loss.", "end"};
+	
+	private final static String[] VALID_LINES = {"start(x).", "start(o).", "second_move(3,4).", "third_move(1,2,3).",
+		"next_move(9).", "last_move(1).", "win.", "loss.", "draw.", "end."};
+	
+	/* The bytes that a mutation can insert, including some that are close to valid */
+	private final static String MUTATION_BYTES = "startsecond_movethird_movenextlastwinlossdrawend(),.xo0123456789 \r-+";
+	
+	/**
+	 * A Controller that records the calls made to it, rather than playing the game.
+	 */
+	private static class RecordingController extends Controller {
+		
+		private List<String> calls = new ArrayList<String>();
+		
+		@Override
+		public void startGame(PositionState mark) {
+			calls.add("start " + mark);
+		}
+		
+		@Override
+		public void secondMove(int blockNumber, int positionNumber) {
+			calls.add("second " + blockNumber + " " + positionNumber);
+		}
+		
+		@Override
+		public void thirdMove(int blockNumber, int positionNumber, int opponentsPositionNumber) {
+			calls.add("third " + blockNumber + " " + positionNumber + " " + opponentsPositionNumber);
+		}
+		
+		@Override
+		public void nextMove(int position) {
+			calls.add("next " + position);
+		}
+		
+		@Override
+		public void lastMove(int position) {
+			calls.add("last " + position);
+		}
+		
+		@Override
+		public void gameOver(String result) {
+			calls.add("over " + result);
+		}
+		
+		@Override
+		public void endGame() {
+			calls.add("end");
+		}
+	}
+	
+	@Test
+	public void testDecodesGameInOneRead() throws IOException
+	{
+		RecordingController controller = new RecordingController();
+		ProtocolDecoder decoder = new ProtocolDecoder();
+		decoder.decode(ByteBuffer.wrap(GAME.getBytes()), controller);
+		
+		assertArrayEquals(GAME_CALLS, controller.calls.toArray());
+		assertEquals(0, decoder.getMalformedLines());
+	}
+	
+	@Test
+	public void testDecodesGameSplitAcrossReads() throws IOException
+	{
+		RecordingController controller = new RecordingController();
+		ProtocolDecoder decoder = new ProtocolDecoder();
+		byte[] bytes = GAME.replace("\n", "\r\n").getBytes();
+		
+		// Reads of 1 to 4 bytes, so that every command is split somewhere
+		for (int offset = 0; offset < bytes.length; offset += 1 + offset % 4)
+			decoder.decode(bytes, offset, Math.min(1 + offset % 4, bytes.length - offset), controller);
+		
+		assertArrayEquals(GAME_CALLS, controller.calls.toArray());
+	}
+	
+	@Test
+	public void testMalformedLinesSkipped() throws IOException
+	{
+		String malformed = "next_move(0).\nnext_move(12).\nsecond_move(1).\nstart(e).\nfinish.\nwin\nwin().\n"
+				+ "next_move(3)\nnext_move 3.\nthe_very_long_command_name.\n";
+		
+		RecordingController controller = new RecordingController();
+		ProtocolDecoder decoder = new ProtocolDecoder();
+		decoder.decode(ByteBuffer.wrap((malformed + "\nnext_move(4).\n").getBytes()), controller);
+		
+		assertArrayEquals(new String[] {"next 4"}, controller.calls.toArray());
+		assertEquals(10, decoder.getMalformedLines());
+	}
+	
+	/**
+	 * Decodes valid and mutated lines with both the decoder and the String parser, i.e. readLine
+	 * and Controller.translateMessageFromServer. The decoder must never throw, must accept every
+	 * valid line, and must only accept a line if the String parser makes the same calls for it.
+	 */
+	@Test
+	public void testFuzzAgainstStringParser() throws IOException
+	{
+		Random random = new Random(9414);
+		int mutatedLinesAccepted = 0;
+		
+		for (int iteration = 0; iteration < 20000; iteration++)
+		{
+			boolean mutate = iteration % 4 != 0;
+			String line = VALID_LINES[random.nextInt(VALID_LINES.length)];
+			if (mutate)
+				line = mutate(line, random);
+			
+			RecordingController decoded = new RecordingController();
+			ProtocolDecoder decoder = new ProtocolDecoder();
+			decoder.decode(ByteBuffer.wrap((line + "\n").getBytes()), decoded);
+			
+			RecordingController parsed = new RecordingController();
+			BufferedReader reader = new BufferedReader(new StringReader(line + "\n"));
+			for (String parsedLine = reader.readLine(); parsedLine != null; parsedLine = reader.readLine())
+			{
+				try
+				{
+					parsed.translateMessageFromServer(parsedLine);
+				}
+				catch (RuntimeException e)
+				{
+					parsed.calls.add("exception");
+				}
+			}
+			
+			if (!mutate)
+				assertEquals(line, 1, decoded.calls.size());
+			if (!decoded.calls.isEmpty())
+			{
+				assertEquals(line, parsed.calls, decoded.calls);
+				if (mutate)
+					mutatedLinesAccepted++;
+			}
+			else
+			{
+				assertEquals(line, 1, decoder.getMalformedLines());
+			}
+		}
+		
+		// Some mutations leave the line valid, e.g. by changing a digit
+		assertTrue(mutatedLinesAccepted > 0);
+	}
+	
+	private static String mutate(String line, Random random)
+	{
+		StringBuilder mutated = new StringBuilder(line);
+		int mutations = 1 + random.nextInt(3);
+		
+		for (int mutation = 0; mutation < mutations; mutation++)
+		{
+			int index = random.nextInt(mutated.length() + 1);
+			char replacement = MUTATION_BYTES.charAt(random.nextInt(MUTATION_BYTES.length()));
+			
+			switch (random.nextInt(3))
+			{
+			case 0:
+				mutated.insert(index, replacement);
+				break;
+			case 1:
+				if (index < mutated.length())
+					mutated.setCharAt(index, replacement);
+				break;
+			default:
+				if (index < mutated.length())
+					mutated.deleteCharAt(index);
+				break;
+			}
+		}
+		return mutated.toString();
+	}
+}
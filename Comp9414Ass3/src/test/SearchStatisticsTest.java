@@ -0,0 +1,69 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import main.Game;
+import main.LatencyHistogram;
+import main.Player;
+import main.PositionState;
+import main.SearchStatistics;
+
+import org.junit.Test;
+
+public class SearchStatisticsTest {
+	
+	@Test
+	public void testLatencyPercentiles()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int millis = 1; millis <= 100; millis++)
+			histogram.recordNanos(millis * 1000000L);
+		
+		assertEquals(100, histogram.getCount());
+		
+		// Percentiles are only accurate to the width of a bucket, which is under 1/16 of the time
+		long median = histogram.getPercentileMicros(0.5);
+		long p99 = histogram.getPercentileMicros(0.99);
+		assertTrue("median " + median, median >= 50000 && median < 50000 * 17 / 16);
+		assertTrue("p99 " + p99, p99 >= 99000 && p99 < 99000 * 17 / 16);
+		assertTrue("max " + histogram.getPercentileMicros(1), histogram.getPercentileMicros(1) >= 100000);
+		
+		histogram.clear();
+		assertEquals(0, histogram.getPercentileMicros(0.99));
+	}
+	
+	@Test
+	public void testSearchCountsAddedToGameAndTotal()
+	{
+		Player testPlayer = new Player();
+		testPlayer.initiateGame(PositionState.O);
+		testPlayer.getSearchLimits().setTimeMillis(0);
+		testPlayer.getSearchLimits().setMaxDepth(5);
+		
+		testPlayer.makeOpponentMove(5, 1);
+		testPlayer.updateBoardWithPlayerMove(1, 5);
+		testPlayer.makeOpponentMove(5, 9);
+		testPlayer.decideNextMove();
+		Game currentState = testPlayer.getCurrentState();
+		testPlayer.makeOpponentMove(currentState.getBlock(currentState.getNextBlockToPlayIn()).getListOfEmptyCells().get(0));
+		testPlayer.decideNextMove();
+		
+		SearchStatistics gameStatistics = testPlayer.getSearchStatistics();
+		assertEquals(2, gameStatistics.getMovesSearched());
+		assertTrue(gameStatistics.getNodesSearched() > 0);
+		assertTrue(gameStatistics.getLeafEvaluations() > 0);
+		assertTrue(gameStatistics.getTranspositionTableHits() + gameStatistics.getTranspositionTableMisses() > 0);
+		assertEquals(5, gameStatistics.getMaxDepthReached());
+		
+		long cutoffs = 0;
+		for (long cutoffsAtMoveIndex : gameStatistics.getBetaCutoffsByMoveIndex())
+			cutoffs += cutoffsAtMoveIndex;
+		assertEquals(gameStatistics.getBetaCutoffs(), cutoffs);
+		
+		// A new game starts its own statistics, but the totals are kept
+		testPlayer.initiateGame(PositionState.X);
+		assertEquals(0, testPlayer.getSearchStatistics().getMovesSearched());
+		assertEquals(2, testPlayer.getTotalSearchStatistics().getMovesSearched());
+		assertEquals(testPlayer.getNodesSearched(), testPlayer.getTotalSearchStatistics().getNodesSearched());
+	}
+}
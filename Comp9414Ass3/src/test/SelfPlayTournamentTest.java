@@ -0,0 +1,91 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import main.Player;
+import main.PositionState;
+import main.SelfPlayTournament;
+
+import org.junit.Test;
+
+public class SelfPlayTournamentTest {
+	
+	private final static String[] SHALLOW_OPTIONS = {"-time", "0", "-depth", "2"};
+	
+	@Test
+	public void testTournamentPlaysEveryGame() throws InterruptedException
+	{
+		SelfPlayTournament tournament = new SelfPlayTournament(SHALLOW_OPTIONS, SHALLOW_OPTIONS);
+		tournament.setNumberOfGames(6);
+		tournament.setThreads(2);
+		tournament.setEloBounds(0, 0.01);
+		tournament.run(false);
+		
+		assertEquals(6, tournament.getGamesPlayed());
+		assertEquals(6, tournament.getWins() + tournament.getDraws() + tournament.getLosses());
+		assertEquals(SelfPlayTournament.Verdict.UNDECIDED, tournament.getVerdict());
+	}
+	
+	@Test
+	public void testGameEndsWithWinOrDraw()
+	{
+		Player xPlayer = new Player();
+		Player oPlayer = new Player();
+		xPlayer.getSearchLimits().setTimeMillis(0);
+		xPlayer.getSearchLimits().setMaxDepth(2);
+		oPlayer.getSearchLimits().setTimeMillis(0);
+		oPlayer.getSearchLimits().setMaxDepth(2);
+		
+		PositionState winner = SelfPlayTournament.playGame(xPlayer, oPlayer, new Random(1), 4);
+		xPlayer.shutdown();
+		oPlayer.shutdown();
+		
+		// Neither player makes an invalid move, so a winner must have won a block
+		if (winner != null)
+			assertTrue("the winner's last block should be won", xPlayer.getCurrentState().isTerminalState());
+		else
+			assertFalse(xPlayer.getCurrentState().isTerminalState());
+	}
+	
+	@Test
+	public void testInvalidMoveForfeitsGame()
+	{
+		Player xPlayer = new Player();
+		Player oPlayer = new Player() {
+			@Override
+			public int decideNextMove() {
+				return 0;
+			}
+		};
+		
+		// After the one random opening move it is O's turn, and O forfeits
+		PositionState winner = SelfPlayTournament.playGame(xPlayer, oPlayer, new Random(1), 1);
+		xPlayer.shutdown();
+		oPlayer.shutdown();
+		
+		assertEquals(PositionState.X, winner);
+		assertFalse("the game should end without a block being won", xPlayer.getCurrentState().isTerminalState());
+	}
+	
+	@Test
+	public void testLogLikelihoodRatio()
+	{
+		assertTrue(SelfPlayTournament.getLogLikelihoodRatio(600, 200, 200, 0, 5) > 2.94);
+		assertTrue(SelfPlayTournament.getLogLikelihoodRatio(200, 200, 600, 0, 5) < -2.94);
+		assertEquals(0, SelfPlayTournament.getLogLikelihoodRatio(0, 10, 0, 0, 5), 0);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidOptionsRejected()
+	{
+		new SelfPlayTournament(new String[] {"-e", "minimax"}, SHALLOW_OPTIONS);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoThreadsRejected()
+	{
+		new SelfPlayTournament(SHALLOW_OPTIONS, SHALLOW_OPTIONS).setThreads(0);
+	}
+}
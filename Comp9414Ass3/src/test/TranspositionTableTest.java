@@ -0,0 +1,144 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import main.Game;
+import main.Player;
+import main.PositionState;
+import main.TranspositionTable;
+import main.TranspositionTable.ReplacementPolicy;
+
+import org.junit.Test;
+
+public class TranspositionTableTest {
+
+	@Test
+	public void testEntryIsPackedAndUnpacked()
+	{
+		TranspositionTable testTable = new TranspositionTable(16, ReplacementPolicy.ALWAYS_REPLACE);
+		
+		assertEquals("empty slot", 0, testTable.probe(12345L));
+		
+		testTable.store(12345L, 13, -220, TranspositionTable.UPPER_BOUND, 7);
+		long entry = testTable.probe(12345L);
+		
+		assertEquals("score", -220, TranspositionTable.getScore(entry));
+		assertEquals("depth", 13, TranspositionTable.getDepth(entry));
+		assertEquals("bound", TranspositionTable.UPPER_BOUND, TranspositionTable.getBound(entry));
+		assertEquals("best move", 7, TranspositionTable.getBestMove(entry));
+	}
+	
+	@Test
+	public void testDepthPreferredReplacement()
+	{
+		TranspositionTable testTable = new TranspositionTable(16, ReplacementPolicy.DEPTH_PREFERRED);
+		
+		// Both keys map to the same slot
+		testTable.store(1L, 9, 10, TranspositionTable.EXACT, 3);
+		testTable.store(17L, 5, 20, TranspositionTable.EXACT, 4);
+		
+		assertEquals("shallower result should not replace a deeper one", 0, testTable.probe(17L));
+		assertEquals("deeper result should be kept", 10, TranspositionTable.getScore(testTable.probe(1L)));
+		
+		testTable.setReplacementPolicy(ReplacementPolicy.ALWAYS_REPLACE);
+		testTable.store(17L, 5, 20, TranspositionTable.EXACT, 4);
+		
+		assertEquals("newest result should replace the old one", 20, TranspositionTable.getScore(testTable.probe(17L)));
+		assertEquals("old result should be gone", 0, testTable.probe(1L));
+	}
+	
+	@Test
+	public void testSnapshotKeepsDeepEntries() throws IOException
+	{
+		TranspositionTable testTable = new TranspositionTable(16, ReplacementPolicy.DEPTH_PREFERRED);
+		testTable.store(1L, 9, 10, TranspositionTable.EXACT, 3);
+		testTable.store(2L, 2, 20, TranspositionTable.LOWER_BOUND, 4);
+		testTable.store(35L, 6, -30, TranspositionTable.UPPER_BOUND, 5);
+		
+		File snapshotFile = File.createTempFile("table", ".tt");
+		snapshotFile.deleteOnExit();
+		assertEquals("entries saved", 2, testTable.writeSnapshot(snapshotFile, 4));
+		
+		// A table of a different size puts the entries in different slots
+		TranspositionTable loadedTable = new TranspositionTable(64, ReplacementPolicy.DEPTH_PREFERRED);
+		assertEquals("entries loaded", 2, loadedTable.loadSnapshot(snapshotFile));
+		
+		assertEquals("deep entry", testTable.probe(1L), loadedTable.probe(1L));
+		assertEquals("deep entry", testTable.probe(35L), loadedTable.probe(35L));
+		assertEquals("shallow entry should not be saved", 0, loadedTable.probe(2L));
+	}
+	
+	@Test(expected = IOException.class)
+	public void testSnapshotOfOtherFileRejected() throws IOException
+	{
+		File notASnapshot = File.createTempFile("table", ".tt");
+		notASnapshot.deleteOnExit();
+		try (FileOutputStream output = new FileOutputStream(notASnapshot))
+		{
+			output.write(new byte[64]);
+		}
+		
+		new TranspositionTable(16, ReplacementPolicy.DEPTH_PREFERRED).loadSnapshot(notASnapshot);
+	}
+	
+	@Test
+	public void testPlayerStartsWithSavedResults() throws IOException
+	{
+		File snapshotDirectory = File.createTempFile("snapshots", "");
+		snapshotDirectory.delete();
+		snapshotDirectory.mkdir();
+		snapshotDirectory.deleteOnExit();
+		
+		Player firstPlayer = new Player();
+		firstPlayer.setSnapshotDirectory(snapshotDirectory);
+		firstPlayer.initiateGame(PositionState.O);
+		firstPlayer.makeOpponentMove(5, 5);
+		firstPlayer.getNextMoveUsingIterativeDeepeningToDepth(6);
+		long rootKey = firstPlayer.getCurrentState().getCanonicalKey();
+		firstPlayer.saveSnapshot();
+		
+		File snapshotFile = new File(snapshotDirectory, "search-o.tt");
+		snapshotFile.deleteOnExit();
+		assertTrue("snapshot for O should be written", snapshotFile.exists());
+		
+		Player secondPlayer = new Player();
+		secondPlayer.setSnapshotDirectory(snapshotDirectory);
+		secondPlayer.initiateGame(PositionState.O);
+		assertEquals("root result should be loaded", firstPlayer.getTranspositionTable().probe(rootKey), 
+				secondPlayer.getTranspositionTable().probe(rootKey));
+		assertTrue(secondPlayer.getTranspositionTable().probe(rootKey) != 0);
+	}
+	
+	@Test
+	public void testPositionKeyIsIndependentOfMoveOrder()
+	{
+		Player testPlayer = new Player();
+		testPlayer.initiateGame(PositionState.X);
+		Game firstGame = new Game(testPlayer);
+		Game secondGame = new Game(testPlayer);
+		
+		firstGame.setMove(PositionState.X, 1, 5);
+		firstGame.setMove(PositionState.O, 5, 2);
+		firstGame.setMove(PositionState.X, 1, 9);
+		firstGame.setMove(PositionState.O, 7, 1);
+		
+		secondGame.setMove(PositionState.X, 1, 9);
+		secondGame.setMove(PositionState.O, 5, 2);
+		secondGame.setMove(PositionState.X, 1, 5);
+		secondGame.setMove(PositionState.O, 7, 1);
+		
+		assertEquals("same position reached in a different order", firstGame.getPositionKey(), secondGame.getPositionKey());
+		assertEquals("copy should have the same key", firstGame.getPositionKey(), new Game(firstGame, firstGame.whoHasNextMove).getPositionKey());
+		
+		long keyBeforeMove = firstGame.getPositionKey();
+		firstGame.makeMove(4);
+		firstGame.unmakeMove();
+		
+		assertEquals("unmaking a move should restore the key", keyBeforeMove, firstGame.getPositionKey());
+	}
+}